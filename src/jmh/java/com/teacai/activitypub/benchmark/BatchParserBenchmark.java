@@ -0,0 +1,82 @@
+package com.teacai.activitypub.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.ParallelActivityPubParser;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Backfill style NDJSON import of 10,000 Create activities, sequential against the fork-join mode
+ * at increasing parallelism.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchParserBenchmark {
+
+    private static final int RECORDS = 10_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private ActivityPubParser parser;
+
+    private ForkJoinPool pool;
+
+    private ParallelActivityPubParser parallelParser;
+
+    private byte[] ndjson;
+
+    @Setup
+    public void setUp() {
+        parser = new StreamingActivityPubParser(new ObjectMapper());
+        pool = new ForkJoinPool(parallelism);
+        parallelParser = new ParallelActivityPubParser(parser, pool, 256 * 1024, 2 * parallelism);
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < RECORDS; i++) {
+            json.append(BenchmarkCorpus.create(i)).append('\n');
+        }
+        ndjson = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long sequential() throws IOException {
+        return parser.parseAll(new ByteArrayInputStream(ndjson)).count();
+    }
+
+    @Benchmark
+    public long parallelOrdered() {
+        return parallelParser.parseAll(new ByteArrayInputStream(ndjson), true).count();
+    }
+
+    @Benchmark
+    public long parallelUnordered() {
+        return parallelParser.parseAll(new ByteArrayInputStream(ndjson), false).count();
+    }
+}
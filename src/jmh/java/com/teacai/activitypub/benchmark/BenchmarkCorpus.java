@@ -0,0 +1,108 @@
+package com.teacai.activitypub.benchmark;
+
+/**
+ * Synthetic payloads shaped like the traffic a Mastodon compatible inbox receives.
+ */
+public final class BenchmarkCorpus {
+
+    public static final String NOTE = "note";
+    public static final String CREATE_NOTE = "createNote";
+    public static final String ORDERED_COLLECTION_PAGE = "orderedCollectionPage";
+    public static final String QUESTION = "question";
+    public static final String IN_REPLY_TO_CHAIN = "inReplyToChain";
+
+    private static final String CONTEXT = "\"@context\": [\"https://www.w3.org/ns/activitystreams\", "
+            + "{\"ostatus\": \"http://ostatus.org#\", \"sensitive\": \"as:sensitive\", \"toot\": \"http://joinmastodon.org/ns#\"}]";
+
+    private BenchmarkCorpus() {
+    }
+
+    public static String get(String name) {
+        switch (name) {
+            case NOTE:
+                return "{" + CONTEXT + ", " + note(1, null).substring(1);
+            case CREATE_NOTE:
+                return "{" + CONTEXT + ", " + create(1).substring(1);
+            case ORDERED_COLLECTION_PAGE:
+                return orderedCollectionPage(1000);
+            case QUESTION:
+                return question(100);
+            case IN_REPLY_TO_CHAIN:
+                return inReplyToChain(50);
+            default:
+                throw new IllegalArgumentException("Unknown payload " + name);
+        }
+    }
+
+    static String note(int id, String inReplyTo) {
+        return "{\"id\": \"https://mastodon.example/users/sally/statuses/" + id + "\", "
+                + "\"type\": \"Note\", "
+                + "\"summary\": null, "
+                + "\"inReplyTo\": " + (inReplyTo == null ? "null" : inReplyTo) + ", "
+                + "\"published\": \"2023-07-01T12:34:56Z\", "
+                + "\"url\": \"https://mastodon.example/@sally/" + id + "\", "
+                + "\"attributedTo\": \"https://mastodon.example/users/sally\", "
+                + "\"to\": [\"https://www.w3.org/ns/activitystreams#Public\"], "
+                + "\"cc\": [\"https://mastodon.example/users/sally/followers\", \"https://example.org/users/joe\"], "
+                + "\"sensitive\": false, "
+                + "\"conversation\": \"tag:mastodon.example,2023-07-01:objectId=" + id + ":objectType=Conversation\", "
+                + "\"content\": \"<p><span class=\\\"h-card\\\"><a href=\\\"https://example.org/@joe\\\" class=\\\"u-url mention\\\">@<span>joe</span></a></span> "
+                + "Status number " + id + " with a little bit of text to make it look realistic.</p>\", "
+                + "\"contentMap\": {\"en\": \"<p>Status number " + id + "</p>\"}, "
+                + "\"attachment\": [], "
+                + "\"tag\": [{\"type\": \"Mention\", \"href\": \"https://example.org/users/joe\", \"name\": \"@joe@example.org\"}], "
+                + "\"replies\": {\"id\": \"https://mastodon.example/users/sally/statuses/" + id + "/replies\", \"type\": \"Collection\", "
+                + "\"first\": {\"type\": \"CollectionPage\", \"next\": \"https://mastodon.example/users/sally/statuses/" + id
+                + "/replies?only_other_accounts=true&page=true\", \"partOf\": \"https://mastodon.example/users/sally/statuses/" + id
+                + "/replies\", \"items\": []}}}";
+    }
+
+    static String create(int id) {
+        return "{\"id\": \"https://mastodon.example/users/sally/statuses/" + id + "/activity\", "
+                + "\"type\": \"Create\", "
+                + "\"actor\": \"https://mastodon.example/users/sally\", "
+                + "\"published\": \"2023-07-01T12:34:56Z\", "
+                + "\"to\": [\"https://www.w3.org/ns/activitystreams#Public\"], "
+                + "\"cc\": [\"https://mastodon.example/users/sally/followers\"], "
+                + "\"object\": " + note(id, null) + "}";
+    }
+
+    static String orderedCollectionPage(int size) {
+        StringBuilder json = new StringBuilder("{" + CONTEXT + ", "
+                + "\"id\": \"https://mastodon.example/users/sally/outbox?page=true\", "
+                + "\"type\": \"OrderedCollectionPage\", "
+                + "\"next\": \"https://mastodon.example/users/sally/outbox?max_id=1&page=true\", "
+                + "\"prev\": \"https://mastodon.example/users/sally/outbox?min_id=" + size + "&page=true\", "
+                + "\"partOf\": \"https://mastodon.example/users/sally/outbox\", "
+                + "\"orderedItems\": [");
+        for (int i = 0; i < size; i++) {
+            json.append(i == 0 ? "" : ", ").append(create(size - i));
+        }
+        return json.append("]}").toString();
+    }
+
+    static String question(int options) {
+        StringBuilder json = new StringBuilder("{" + CONTEXT + ", "
+                + "\"id\": \"https://mastodon.example/users/sally/statuses/1\", "
+                + "\"type\": \"Question\", "
+                + "\"name\": \"What is the answer?\", "
+                + "\"endTime\": \"2023-07-02T12:34:56Z\", "
+                + "\"closed\": \"2023-07-02T12:34:56Z\", "
+                + "\"votersCount\": 1234, "
+                + "\"oneOf\": [");
+        for (int i = 0; i < options; i++) {
+            json.append(i == 0 ? "" : ", ")
+                    .append("{\"type\": \"Note\", \"name\": \"Option ").append(i)
+                    .append("\", \"replies\": {\"type\": \"Collection\", \"totalItems\": ").append(i * 7).append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    static String inReplyToChain(int depth) {
+        String json = null;
+        for (int i = 1; i <= depth; i++) {
+            json = note(i, json);
+        }
+        return "{" + CONTEXT + ", " + json.substring(1);
+    }
+}
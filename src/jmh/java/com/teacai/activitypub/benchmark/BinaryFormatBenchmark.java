@@ -0,0 +1,75 @@
+package com.teacai.activitypub.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.ActivityPubWriter;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stored activities re-read as JSON against Smile with shared string values, on the streaming engine.
+ * The encoded size of each payload is printed during setup, next to its JSON size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryFormatBenchmark {
+
+    @Param({"json", "smile"})
+    public String format;
+
+    @Param({BenchmarkCorpus.NOTE, BenchmarkCorpus.CREATE_NOTE, BenchmarkCorpus.ORDERED_COLLECTION_PAGE,
+            BenchmarkCorpus.QUESTION, BenchmarkCorpus.IN_REPLY_TO_CHAIN})
+    public String payload;
+
+    private ActivityPubParser parser;
+
+    private ActivityPubWriter writer;
+
+    private ActivityStreamsObject object;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper json = new ObjectMapper();
+        ObjectMapper objectMapper = "smile".equals(format)
+                ? new ObjectMapper(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build())
+                : json;
+        parser = new StreamingActivityPubParser(objectMapper);
+        writer = new ActivityPubWriter(objectMapper);
+        object = new StreamingActivityPubParser(json).parse(BenchmarkCorpus.get(payload));
+        bytes = writer.writeAsBytes(object);
+        System.out.printf("%n%s %s: %d bytes, JSON %d bytes%n", payload, format, bytes.length,
+                new ActivityPubWriter(json).writeAsBytes(object).length);
+    }
+
+    @Benchmark
+    public ActivityStreamsObject read() throws IOException {
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeAsBytes(object);
+    }
+}
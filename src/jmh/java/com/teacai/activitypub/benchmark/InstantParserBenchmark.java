@@ -0,0 +1,42 @@
+package com.teacai.activitypub.benchmark;
+
+import com.teacai.activitypub.util.InstantParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InstantParser} against {@link Instant#parse(CharSequence)} for the timestamp forms seen in
+ * practice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstantParserBenchmark {
+
+    @Param({"2023-06-01T12:00:00Z", "2023-06-01T12:00:00.123Z", "2023-06-01T12:00:00.123456Z"})
+    public String timestamp;
+
+    @Benchmark
+    public Instant jdk() {
+        return Instant.parse(timestamp);
+    }
+
+    @Benchmark
+    public Instant fastPath() {
+        return InstantParser.parse(timestamp);
+    }
+}
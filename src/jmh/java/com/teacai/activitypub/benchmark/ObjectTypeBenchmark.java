@@ -0,0 +1,60 @@
+package com.teacai.activitypub.benchmark;
+
+import com.teacai.activitypub.model.ObjectType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ObjectType#parse(String)} against the linear {@code values()} scan it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObjectTypeBenchmark {
+
+    @Param({"Note", "Create", "OrderedCollectionPage", "View", "http://www.types.example/ProductOffer"})
+    public String type;
+
+    private char[] buffer;
+
+    @Setup
+    public void setUp() {
+        buffer = type.toCharArray();
+    }
+
+    @Benchmark
+    public ObjectType linearScan() {
+        if (type != null && type.length() > 0) {
+            for (ObjectType objectType : ObjectType.values()) {
+                if (objectType.name().equalsIgnoreCase(type)) {
+                    return objectType;
+                }
+            }
+        }
+        return ObjectType.Custom;
+    }
+
+    @Benchmark
+    public ObjectType lookupString() {
+        return ObjectType.parse(type);
+    }
+
+    @Benchmark
+    public ObjectType lookupChars() {
+        return ObjectType.parse(buffer, 0, buffer.length);
+    }
+}
@@ -0,0 +1,79 @@
+package com.teacai.activitypub.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.LazyActivityPubParser;
+import com.teacai.activitypub.Projection;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput and latency per engine and payload. Run with {@code -prof gc} (the default of the
+ * {@code jmh} profile) to get the bytes allocated per message as {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"map", "streaming", "lazy"})
+    public String engine;
+
+    @Param({BenchmarkCorpus.NOTE, BenchmarkCorpus.CREATE_NOTE, BenchmarkCorpus.ORDERED_COLLECTION_PAGE,
+            BenchmarkCorpus.QUESTION, BenchmarkCorpus.IN_REPLY_TO_CHAIN})
+    public String payload;
+
+    private ActivityPubParser parser;
+
+    private String json;
+
+    private byte[] bytes;
+
+    private final Projection projection = Projection.of("id", "actor", "to", "cc", "object.content", "orderedItems.id");
+
+    @Setup
+    public void setUp() {
+        if ("map".equals(engine)) {
+            parser = new ActivityPubParser(new ObjectMapper());
+        } else if ("lazy".equals(engine)) {
+            parser = new LazyActivityPubParser(new ObjectMapper());
+        } else {
+            parser = new StreamingActivityPubParser(new ObjectMapper());
+        }
+        json = BenchmarkCorpus.get(payload);
+        bytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ActivityStreamsObject parseString() throws IOException {
+        return parser.parse(json);
+    }
+
+    @Benchmark
+    public ActivityStreamsObject parseBytes() throws IOException {
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public ActivityStreamsObject parseProjected() throws IOException {
+        return parser.parse(bytes, projection);
+    }
+}
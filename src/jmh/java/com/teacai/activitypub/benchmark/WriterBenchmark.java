@@ -0,0 +1,63 @@
+package com.teacai.activitypub.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.ActivityPubWriter;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization throughput per payload, into a fresh array and into a reused direct buffer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriterBenchmark {
+
+    @Param({BenchmarkCorpus.NOTE, BenchmarkCorpus.CREATE_NOTE, BenchmarkCorpus.ORDERED_COLLECTION_PAGE,
+            BenchmarkCorpus.QUESTION, BenchmarkCorpus.IN_REPLY_TO_CHAIN})
+    public String payload;
+
+    private ActivityPubWriter writer;
+
+    private ActivityStreamsObject object;
+
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        writer = new ActivityPubWriter(objectMapper);
+        object = new StreamingActivityPubParser(objectMapper).parse(BenchmarkCorpus.get(payload));
+        buffer = ByteBuffer.allocateDirect(writer.writeAsBytes(object).length);
+    }
+
+    @Benchmark
+    public byte[] writeAsBytes() throws IOException {
+        return writer.writeAsBytes(object);
+    }
+
+    @Benchmark
+    public ByteBuffer writeByteBuffer() throws IOException {
+        buffer.clear();
+        writer.write(object, buffer);
+        return buffer;
+    }
+}
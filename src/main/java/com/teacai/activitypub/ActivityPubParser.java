@@ -1,15 +1,21 @@
 package com.teacai.activitypub;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.teacai.activitypub.model.Activity;
 import com.teacai.activitypub.model.ActivityStreamsFields;
 import com.teacai.activitypub.model.ActivityStreamsObject;
 import com.teacai.activitypub.model.BaseCollection;
 import com.teacai.activitypub.model.BaseObject;
 import com.teacai.activitypub.model.CollectionPage;
+import com.teacai.activitypub.model.ImmutableLink;
 import com.teacai.activitypub.model.Link;
 import com.teacai.activitypub.model.ObjectType;
 import com.teacai.activitypub.model.OrderedCollection;
@@ -17,16 +23,28 @@ import com.teacai.activitypub.model.OrderedCollectionPage;
 import com.teacai.activitypub.model.Place;
 import com.teacai.activitypub.model.Question;
 import com.teacai.activitypub.model.Tombstone;
-
+import com.teacai.activitypub.util.InstantParser;
+import com.teacai.activitypub.util.ParseUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.teacai.activitypub.util.ParseUtils.doubleValue;
-import static com.teacai.activitypub.util.ParseUtils.instantValue;
 import static com.teacai.activitypub.util.ParseUtils.intValue;
 import static com.teacai.activitypub.util.ParseUtils.strValue;
 
@@ -34,16 +52,203 @@ public class ActivityPubParser {
 
     private final ObjectMapper objectMapper;
 
+    private final ParserLimits limits;
+
     public ActivityPubParser(ObjectMapper objectMapper) {
+        this(objectMapper, null);
+    }
+
+    /**
+     * @param limits bounds on the accepted payloads, or {@code null} to accept any payload
+     */
+    public ActivityPubParser(ObjectMapper objectMapper, ParserLimits limits) {
         this.objectMapper = objectMapper;
+        this.limits = limits;
+    }
+
+    protected ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public ParserLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Returns {@code parser} reading through the limits of this parser, if it has any. Each call to
+     * {@link #parse(JsonParser)} applies the limits to one payload.
+     */
+    protected JsonParser limit(JsonParser parser) {
+        return limits == null ? parser : LimitedJsonParser.wrap(parser, limits);
     }
 
     public ActivityStreamsObject parse(String json) throws JsonProcessingException {
+        if (limits != null) {
+            limits.checkBytes(json.length());
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return parse(parser);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw JsonMappingException.fromUnexpectedIOE(e);
+        }
+    }
+
+    /**
+     * Parses UTF-8 (or any encoding Jackson auto-detects) JSON without decoding it into a String first.
+     */
+    public ActivityStreamsObject parse(byte[] json) throws IOException {
+        return parse(json, 0, json.length);
+    }
+
+    public ActivityStreamsObject parse(byte[] json, int offset, int length) throws IOException {
+        if (limits != null) {
+            limits.checkBytes(length);
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(json, offset, length)) {
+            return parse(parser);
+        }
+    }
+
+    /**
+     * Parses the JSON read from {@code json}. The stream is closed once parsing completes.
+     */
+    public ActivityStreamsObject parse(InputStream json) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    /**
+     * Parses the remaining bytes of {@code json} without changing its position. Heap buffers are read
+     * in place, direct buffers are streamed without copying them to the heap first.
+     */
+    public ActivityStreamsObject parse(ByteBuffer json) throws IOException {
+        if (json.hasArray()) {
+            return parse(json.array(), json.arrayOffset() + json.position(), json.remaining());
+        }
+        return parse(new ByteBufferBackedInputStream(json.duplicate()));
+    }
+
+    /**
+     * Parses the readable bytes of {@code json}, advancing its read position. The buffer is not released.
+     */
+    public ActivityStreamsObject parse(DataBuffer json) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json.asInputStream())) {
+            return parse(parser);
+        }
+    }
+
+    /**
+     * Parses only the properties selected by {@code projection}, see {@link Projection}.
+     */
+    public ActivityStreamsObject parse(String json, Projection projection) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return parse(parser, projection);
+        }
+    }
+
+    public ActivityStreamsObject parse(byte[] json, Projection projection) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return parse(parser, projection);
+        }
+    }
+
+    /**
+     * Parses only the properties selected by {@code projection} from the next object of {@code parser},
+     * which must not be positioned on that object yet.
+     */
+    public ActivityStreamsObject parse(JsonParser parser, Projection projection) throws IOException {
+        return parse(new FilteringParserDelegate(limit(parser), projection, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true));
+    }
+
+    /**
+     * Parses leniently: numbers and timestamps that cannot be converted are left unset and list elements
+     * that cannot be parsed are dropped, each problem is recorded in {@code diagnostics}, which is reset
+     * first. Malformed JSON still fails.
+     */
+    public ActivityStreamsObject parse(String json, ParseDiagnostics diagnostics) throws JsonProcessingException {
+        ParseDiagnostics previous = diagnostics.begin();
+        try {
+            return parse(json);
+        } finally {
+            ParseDiagnostics.end(previous);
+        }
+    }
+
+    public ActivityStreamsObject parse(byte[] json, ParseDiagnostics diagnostics) throws IOException {
+        ParseDiagnostics previous = diagnostics.begin();
+        try {
+            return parse(json);
+        } finally {
+            ParseDiagnostics.end(previous);
+        }
+    }
+
+    public ActivityStreamsObject parse(JsonParser parser, ParseDiagnostics diagnostics) throws IOException {
+        ParseDiagnostics previous = diagnostics.begin();
+        try {
+            return parse(parser);
+        } finally {
+            ParseDiagnostics.end(previous);
+        }
+    }
+
+    /**
+     * Reports the objects, properties and links of {@code json} to {@code visitor} as they are read,
+     * without building the model. The limits of this parser apply.
+     */
+    public void visit(String json, ActivityStreamsVisitor visitor) throws IOException {
+        if (limits != null) {
+            limits.checkBytes(json.length());
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            visit(parser, visitor);
+        }
+    }
 
-        Map<String, Object> map = objectMapper.readValue(json,
+    public void visit(byte[] json, ActivityStreamsVisitor visitor) throws IOException {
+        if (limits != null) {
+            limits.checkBytes(json.length);
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            visit(parser, visitor);
+        }
+    }
+
+    public void visit(InputStream json, ActivityStreamsVisitor visitor) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            visit(parser, visitor);
+        }
+    }
+
+    /**
+     * Visits the object the parser is positioned on, or the next one if it has no current token.
+     */
+    public void visit(JsonParser parser, ActivityStreamsVisitor visitor) throws IOException {
+        new VisitingReader(visitor).visit(limit(parser));
+    }
+
+    /**
+     * Lazily parses newline delimited JSON, concatenated JSON objects or a JSON array of objects.
+     * Closing the returned stream closes {@code json}, I/O errors surface as {@link java.io.UncheckedIOException}.
+     */
+    public Stream<ActivityStreamsObject> parseAll(InputStream json) throws IOException {
+        ActivityStreamsIterator iterator = new ActivityStreamsIterator(this, objectMapper.getFactory().createParser(json));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Parses the object the parser is positioned on, or the next one if it has no current token.
+     */
+    public ActivityStreamsObject parse(JsonParser parser) throws IOException {
+        Map<String, Object> map = objectMapper.readValue(limit(parser),
                 new TypeReference<Map<String, Object>>() {
                 });
-        return createActivityStreamObject(map);
+        return map == null ? null : createActivityStreamObject(map);
     }
 
     protected static ActivityStreamsObject createActivityStreamObject(Object object) throws JsonParseException {
@@ -115,22 +320,36 @@ public class ActivityPubParser {
     }
 
     protected static List<ActivityStreamsObject> createActivityStreamList(Object object) throws JsonParseException {
+        return createActivityStreamList(object, null);
+    }
+
+    /**
+     * @param field name of the property the list was read from, for diagnostics
+     */
+    protected static List<ActivityStreamsObject> createActivityStreamList(Object object, String field) throws JsonParseException {
         if (object instanceof Map || object instanceof String) {
             return Collections.singletonList(createActivityStreamObject(object));
         } else if (object instanceof Collection) {
             List<ActivityStreamsObject> parsedItems = new ArrayList<>();
-            ((Collection<?>) object).forEach(item -> {
+            for (Object item : (Collection<?>) object) {
                 if (item instanceof String) {
                     parsedItems.add(createActivityStreamObject((String) item));
                 } else if (item instanceof Map) {
                     try {
                         parsedItems.add(createActivityStreamObject(item));
-                    } catch (JsonParseException e) {
-                        throw new RuntimeException(e);
+                    } catch (IllegalArgumentException | DateTimeException e) {
+                        if (!recordProblem(ParseError.INVALID_ITEM, field)) {
+                            throw e;
+                        }
                     }
+                } else {
+                    // numbers, nulls and nested arrays are not objects, leave them out
+                    recordProblem(ParseError.INVALID_ITEM, field);
                 }
-            });
+            }
             return parsedItems;
+        } else if (object != null) {
+            recordProblem(ParseError.INVALID_ITEM, field);
         }
         return Collections.emptyList();
     }
@@ -138,7 +357,7 @@ public class ActivityPubParser {
     private static ActivityStreamsObject createTombstone(Map<String, Object> map) throws JsonParseException {
         Tombstone object = new Tombstone();
         object.setFormerType(ObjectType.parse(strValue(map.get(ActivityStreamsFields.FORMER_TYPE))));
-        object.setDeleted(instantValue(map.get(ActivityStreamsFields.DELETED)));
+        object.setDeleted(instantField(map, ActivityStreamsFields.DELETED));
 
         return addBaseObjectFields(object, map);
     }
@@ -146,15 +365,23 @@ public class ActivityPubParser {
     private static ActivityStreamsObject createPlace(Map<String, Object> map) throws JsonParseException {
         Place object = new Place();
         object.setUnits(strValue(map.get(ActivityStreamsFields.UNITS)));
-        object.setAccuracy(doubleValue(map.get(ActivityStreamsFields.ACCURACY)));
-        object.setAltitude(doubleValue(map.get(ActivityStreamsFields.ALTITUDE)));
-        object.setLatitude(doubleValue(map.get(ActivityStreamsFields.LATITUDE)));
-        object.setLongitude(doubleValue(map.get(ActivityStreamsFields.LONGITUDE)));
-        object.setRadius(doubleValue(map.get(ActivityStreamsFields.RADIUS)));
+        object.setAccuracy(doubleField(map, ActivityStreamsFields.ACCURACY));
+        object.setAltitude(doubleField(map, ActivityStreamsFields.ALTITUDE));
+        object.setLatitude(doubleField(map, ActivityStreamsFields.LATITUDE));
+        object.setLongitude(doubleField(map, ActivityStreamsFields.LONGITUDE));
+        object.setRadius(doubleField(map, ActivityStreamsFields.RADIUS));
         return addBaseObjectFields(object, map);
     }
 
+    /**
+     * Creates the link for a bare URL reference; well-known URIs such as the public audience share
+     * one read-only instance.
+     */
     protected static ActivityStreamsObject createActivityStreamObject(String url) {
+        ImmutableLink wellKnown = ImmutableLink.forWellKnown(url);
+        if (wellKnown != null) {
+            return wellKnown;
+        }
         Link link = new Link();
         link.setAtContext(ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS);
         link.setHref(url);
@@ -168,8 +395,8 @@ public class ActivityPubParser {
         object.setHrefLang(strValue(map.get(ActivityStreamsFields.HREF_LANG)));
         object.setRel(strValue(map.get(ActivityStreamsFields.REL)));
         object.setPreview(strValue(map.get(ActivityStreamsFields.PREVIEW)));
-        object.setHeight(intValue(map.get(ActivityStreamsFields.HEIGHT)));
-        object.setWidth(intValue(map.get(ActivityStreamsFields.WIDTH)));
+        object.setHeight(intField(map, ActivityStreamsFields.HEIGHT));
+        object.setWidth(intField(map, ActivityStreamsFields.WIDTH));
         return addActivityStreamsFields(object, map);
     }
 
@@ -178,9 +405,9 @@ public class ActivityPubParser {
         Question object = new Question();
         addActivityFields(map, object);
 
-        object.setOneOf(createActivityStreamList(map.get(ActivityStreamsFields.ONE_OF)));
-        object.setAnyOf(createActivityStreamList(map.get(ActivityStreamsFields.ANY_OF)));
-        object.setClosed(instantValue(map.get(ActivityStreamsFields.CLOSED)));
+        object.setOneOf(createActivityStreamList(map.get(ActivityStreamsFields.ONE_OF), ActivityStreamsFields.ONE_OF));
+        object.setAnyOf(createActivityStreamList(map.get(ActivityStreamsFields.ANY_OF), ActivityStreamsFields.ANY_OF));
+        object.setClosed(instantField(map, ActivityStreamsFields.CLOSED));
 
         return addBaseObjectFields(object, map);
     }
@@ -195,8 +422,8 @@ public class ActivityPubParser {
 
     protected static void addActivityFields(Map<String, Object> map, Activity object) throws JsonParseException {
         object.setSummary(strValue(map.get(ActivityStreamsFields.SUMMARY)));
-        object.setObjects(createActivityStreamList(map.get(ActivityStreamsFields.OBJECT)));
-        object.setTargets(createActivityStreamList(map.get(ActivityStreamsFields.TARGET)));
+        object.setObjects(createActivityStreamList(map.get(ActivityStreamsFields.OBJECT), ActivityStreamsFields.OBJECT));
+        object.setTargets(createActivityStreamList(map.get(ActivityStreamsFields.TARGET), ActivityStreamsFields.TARGET));
         object.setResult(createActivityStreamObject(map.get(ActivityStreamsFields.RESULT)));
         object.setOrigin(createActivityStreamObject(map.get(ActivityStreamsFields.ORIGIN)));
         object.setInstrument(createActivityStreamObject(map.get(ActivityStreamsFields.INSTRUMENT)));
@@ -211,8 +438,8 @@ public class ActivityPubParser {
     private static ActivityStreamsObject createOrderedCollectionPage(Map<String, Object> map) throws JsonParseException {
         OrderedCollectionPage collection = addCollectionFields(new OrderedCollectionPage(), map);
         addPageFields(map, collection);
-        collection.setOrderedItems(createActivityStreamList(map.get(ActivityStreamsFields.ORDERED_ITEMS)));
-        collection.setStartIndex(intValue(map.get(ActivityStreamsFields.START_INDEX)));
+        collection.setOrderedItems(createActivityStreamList(map.get(ActivityStreamsFields.ORDERED_ITEMS), ActivityStreamsFields.ORDERED_ITEMS));
+        collection.setStartIndex(intField(map, ActivityStreamsFields.START_INDEX));
         return collection;
     }
 
@@ -220,7 +447,7 @@ public class ActivityPubParser {
         collection.setPartOf(strValue(map.get(ActivityStreamsFields.PART_OF)));
         collection.setNext(createActivityStreamObject(map.get(ActivityStreamsFields.NEXT)));
         collection.setPrev(createActivityStreamObject(map.get(ActivityStreamsFields.PREV)));
-        collection.setItems(createActivityStreamList(map.get(ActivityStreamsFields.ITEMS)));
+        collection.setItems(createActivityStreamList(map.get(ActivityStreamsFields.ITEMS), ActivityStreamsFields.ITEMS));
     }
 
     protected static BaseCollection createCollection(Map<String, Object> map) throws JsonParseException {
@@ -230,19 +457,19 @@ public class ActivityPubParser {
     protected static OrderedCollection createOrderedCollection(Map<String, Object> map) throws JsonParseException {
         OrderedCollection collection = addCollectionFields(new OrderedCollection(), map);
 
-        collection.setOrderedItems(createActivityStreamList(map.get(ActivityStreamsFields.ORDERED_ITEMS)));
+        collection.setOrderedItems(createActivityStreamList(map.get(ActivityStreamsFields.ORDERED_ITEMS), ActivityStreamsFields.ORDERED_ITEMS));
         return collection;
     }
 
     protected static <T extends BaseCollection> T addCollectionFields(
             T activityStreamCollection, Map<String, Object> map) throws JsonParseException {
 
-        activityStreamCollection.setTotalItems(intValue(map.get(ActivityStreamsFields.TOTAL_ITEMS)));
+        activityStreamCollection.setTotalItems(intField(map, ActivityStreamsFields.TOTAL_ITEMS));
         activityStreamCollection.setCurrent(strValue(map.get(ActivityStreamsFields.CURRENT)));
-        activityStreamCollection.setFirst(strValue(map.get(ActivityStreamsFields.FIRST)));
+        setFirst(activityStreamCollection, createActivityStreamObject(map.get(ActivityStreamsFields.FIRST)));
         activityStreamCollection.setLast(strValue(map.get(ActivityStreamsFields.LAST)));
 
-        activityStreamCollection.setItems(createActivityStreamList(map.get(ActivityStreamsFields.ITEMS)));
+        activityStreamCollection.setItems(createActivityStreamList(map.get(ActivityStreamsFields.ITEMS), ActivityStreamsFields.ITEMS));
 
         return addBaseObjectFields(activityStreamCollection, map);
     }
@@ -250,15 +477,73 @@ public class ActivityPubParser {
     protected static <T extends BaseObject> T addBaseObjectFields(T object, Map<String, Object> map) throws JsonParseException {
         object.setSummary(strValue(map.get(ActivityStreamsFields.SUMMARY)));
         object.setContext(createActivityStreamObject(map.get(ActivityStreamsFields.CONTEXT)));
-        object.setActors(createActivityStreamList(map.get(ActivityStreamsFields.ACTOR)));
-        object.setUrl(createActivityStreamList(map.get(ActivityStreamsFields.URL)));
+        object.setActors(createActivityStreamList(map.get(ActivityStreamsFields.ACTOR), ActivityStreamsFields.ACTOR));
+        object.setUrl(createActivityStreamList(map.get(ActivityStreamsFields.URL), ActivityStreamsFields.URL));
         object.setLocation(createActivityStreamObject(map.get(ActivityStreamsFields.LOCATION)));
         object.setContent(strValue(map.get(ActivityStreamsFields.CONTENT)));
+        object.setAttachmentList(createActivityStreamList(map.get(ActivityStreamsFields.ATTACHMENT), ActivityStreamsFields.ATTACHMENT));
+        object.setAttributedTo(createActivityStreamObject(map.get(ActivityStreamsFields.ATTRIBUTED_TO)));
+        object.setAudienceList(createActivityStreamList(map.get(ActivityStreamsFields.AUDIENCE), ActivityStreamsFields.AUDIENCE));
+        object.setEndTime(instantField(map, ActivityStreamsFields.END_TIME));
+        object.setGenerator(createActivityStreamObject(map.get(ActivityStreamsFields.GENERATOR)));
+        object.setIcon(createActivityStreamList(map.get(ActivityStreamsFields.ICON), ActivityStreamsFields.ICON));
+        object.setImage(createActivityStreamList(map.get(ActivityStreamsFields.IMAGE), ActivityStreamsFields.IMAGE));
+        object.setInReplyTo(createActivityStreamList(map.get(ActivityStreamsFields.IN_REPLY_TO), ActivityStreamsFields.IN_REPLY_TO));
+        object.setPreview(createActivityStreamObject(map.get(ActivityStreamsFields.PREVIEW)));
+        object.setPublished(instantField(map, ActivityStreamsFields.PUBLISHED));
+        object.setReplies(collectionValue(createActivityStreamObject(map.get(ActivityStreamsFields.REPLIES))));
+        object.setStartTime(instantField(map, ActivityStreamsFields.START_TIME));
+        object.setTagList(createActivityStreamList(map.get(ActivityStreamsFields.TAG), ActivityStreamsFields.TAG));
+        object.setUpdated(strValue(map.get(ActivityStreamsFields.UPDATED)));
+        object.setToList(createActivityStreamList(map.get(ActivityStreamsFields.TO), ActivityStreamsFields.TO));
+        object.setBtoList(createActivityStreamList(map.get(ActivityStreamsFields.BTO), ActivityStreamsFields.BTO));
+        object.setCcList(createActivityStreamList(map.get(ActivityStreamsFields.CC), ActivityStreamsFields.CC));
+        object.setBccList(createActivityStreamList(map.get(ActivityStreamsFields.BCC), ActivityStreamsFields.BCC));
+        object.setMediaType(strValue(map.get(ActivityStreamsFields.MEDIA_TYPE)));
+        object.setDuration(strValue(map.get(ActivityStreamsFields.DURATION)));
         return addActivityStreamsFields(object, map);
     }
 
+    /**
+     * Keeps the id of the first page, and the page itself when it is embedded.
+     */
+    protected static void setFirst(BaseCollection collection, ActivityStreamsObject first) {
+        if (first instanceof BaseCollection) {
+            collection.setFirstPage((BaseCollection) first);
+        }
+        collection.setFirst(first instanceof Link ? ((Link) first).getHref() : first == null ? null : first.getId());
+    }
+
+    /**
+     * {@code replies} is only kept when it is an embedded collection, a bare URL has no collection to hold it.
+     */
+    protected static BaseCollection collectionValue(ActivityStreamsObject object) {
+        return object instanceof BaseCollection ? (BaseCollection) object : null;
+    }
+
+    /**
+     * Collapses the default {@code @context} to the shared constant.
+     */
+    protected static String contextValue(String context) {
+        return ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS.equals(context) ? ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS : context;
+    }
+
+    /**
+     * An array or object {@code @context} is kept as its JSON text, see {@link ActivityStreamsObject#getAtContext()}.
+     */
+    protected static String contextValue(Object context) {
+        if (context instanceof Map || context instanceof Collection) {
+            try {
+                return ParseUtils.toJson(context);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return contextValue(strValue(context, ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS));
+    }
+
     protected static <T extends ActivityStreamsObject> T addActivityStreamsFields(T object, Map<String, Object> map) {
-        object.setAtContext(strValue(map.get(ActivityStreamsFields.AT_CONTEXT), ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS));
+        object.setAtContext(contextValue(map.get(ActivityStreamsFields.AT_CONTEXT)));
         object.setId(strValue(map.get(ActivityStreamsFields.ID)));
         object.setName(strValue(map.get(ActivityStreamsFields.NAME)));
         object.setType(ObjectType.parse(strValue(map.get(ActivityStreamsFields.TYPE))));
@@ -267,4 +552,78 @@ public class ActivityPubParser {
         }
         return object;
     }
+
+    protected static Integer intField(Map<String, Object> map, String field) {
+        Object value = map.get(field);
+        if (value == null || value instanceof Integer) {
+            return (Integer) value;
+        }
+        return toInteger(value.toString(), field);
+    }
+
+    protected static Double doubleField(Map<String, Object> map, String field) {
+        Object value = map.get(field);
+        if (value == null || value instanceof Double || value instanceof Integer || value instanceof Long) {
+            return doubleValue(value);
+        }
+        return toDouble(value.toString(), field);
+    }
+
+    protected static Instant instantField(Map<String, Object> map, String field) {
+        Object value = map.get(field);
+        return value == null ? null : toInstant(value.toString(), field);
+    }
+
+    /**
+     * Converts the text of a numeric property. Outside a lenient parse an invalid value fails with
+     * the {@link NumberFormatException} of {@link Integer#parseInt}.
+     */
+    protected static Integer toInteger(String text, String field) {
+        if (text == null) {
+            return null;
+        }
+        Integer value = ParseUtils.parseInteger(text);
+        if (value == null && !recordProblem(ParseError.INVALID_NUMBER, field)) {
+            return intValue(text);
+        }
+        return value;
+    }
+
+    protected static Double toDouble(String text, String field) {
+        if (text == null) {
+            return null;
+        }
+        Double value = ParseUtils.parseDouble(text);
+        if (value == null && !recordProblem(ParseError.INVALID_NUMBER, field)) {
+            return doubleValue(text);
+        }
+        return value;
+    }
+
+    /**
+     * Converts the text of a timestamp property. Outside a lenient parse an invalid value fails with
+     * a {@link java.time.format.DateTimeParseException}, like {@link #toInteger} does for numbers.
+     */
+    protected static Instant toInstant(CharSequence text, String field) {
+        Instant value = InstantParser.tryParse(text);
+        if (value == null && !recordProblem(ParseError.INVALID_TIMESTAMP, field)) {
+            return InstantParser.parse(text);
+        }
+        return value;
+    }
+
+    /**
+     * Records a problem when a lenient parse is running on this thread. Only called once a value has
+     * turned out to be invalid, so strict parses never look up the diagnostics.
+     *
+     * @return {@code false} if the parse is strict and the caller has to fail
+     */
+    protected static boolean recordProblem(ParseError error, String field) {
+        ParseDiagnostics diagnostics = ParseDiagnostics.current();
+        if (diagnostics == null) {
+            return false;
+        }
+        diagnostics.record(error, field);
+        return true;
+    }
 }
@@ -0,0 +1,412 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedOutputStream;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseCollection;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.CollectionPage;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.ObjectType;
+import com.teacai.activitypub.model.OrderedCollection;
+import com.teacai.activitypub.model.OrderedCollectionPage;
+import com.teacai.activitypub.model.Place;
+import com.teacai.activitypub.model.Question;
+import com.teacai.activitypub.model.Tombstone;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static com.teacai.activitypub.util.ParseUtils.isBareLink;
+import static com.teacai.activitypub.util.ParseUtils.isStructuredContext;
+import static com.teacai.activitypub.util.ParseUtils.writeJson;
+
+/**
+ * Writes model objects as ActivityStreams JSON, the counterpart of {@link ActivityPubParser}.
+ * <p>
+ * Properties are written in a fixed order with field names and type names pre-encoded. Output is
+ * compact: null properties and empty lists are omitted, single element lists are written as a single
+ * value, a {@link Link} that carries nothing but its {@code href} is written as a bare URL and nested
+ * objects only repeat {@code @context} when it differs from the default. Parsing the output and
+ * writing it again produces the same bytes.
+ * <p>
+ * The output format is the one of the {@link ObjectMapper}'s factory. With a
+ * {@code com.fasterxml.jackson.dataformat.smile.SmileFactory} the same model is written as binary
+ * Smile, which every parser reads back when it is given a mapper with the same factory; enable
+ * {@code SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES} so the URLs repeated across an activity
+ * are written once.
+ */
+public class ActivityPubWriter {
+
+    private static final SerializedString AT_CONTEXT = new SerializedString(ActivityStreamsFields.AT_CONTEXT);
+    private static final SerializedString ID = new SerializedString(ActivityStreamsFields.ID);
+    private static final SerializedString NAME = new SerializedString(ActivityStreamsFields.NAME);
+    private static final SerializedString TYPE = new SerializedString(ActivityStreamsFields.TYPE);
+
+    private static final SerializedString HREF = new SerializedString(ActivityStreamsFields.HREF);
+    private static final SerializedString HREF_LANG = new SerializedString(ActivityStreamsFields.HREF_LANG);
+    private static final SerializedString REL = new SerializedString(ActivityStreamsFields.REL);
+    private static final SerializedString HEIGHT = new SerializedString(ActivityStreamsFields.HEIGHT);
+    private static final SerializedString WIDTH = new SerializedString(ActivityStreamsFields.WIDTH);
+    private static final SerializedString PREVIEW = new SerializedString(ActivityStreamsFields.PREVIEW);
+
+    private static final SerializedString ACTOR = new SerializedString(ActivityStreamsFields.ACTOR);
+    private static final SerializedString INSTRUMENT = new SerializedString(ActivityStreamsFields.INSTRUMENT);
+    private static final SerializedString OBJECT = new SerializedString(ActivityStreamsFields.OBJECT);
+    private static final SerializedString ORIGIN = new SerializedString(ActivityStreamsFields.ORIGIN);
+    private static final SerializedString RESULT = new SerializedString(ActivityStreamsFields.RESULT);
+    private static final SerializedString SUMMARY = new SerializedString(ActivityStreamsFields.SUMMARY);
+    private static final SerializedString TARGET = new SerializedString(ActivityStreamsFields.TARGET);
+    private static final SerializedString CONTEXT = new SerializedString(ActivityStreamsFields.CONTEXT);
+    private static final SerializedString URL = new SerializedString(ActivityStreamsFields.URL);
+    private static final SerializedString LOCATION = new SerializedString(ActivityStreamsFields.LOCATION);
+    private static final SerializedString CONTENT = new SerializedString(ActivityStreamsFields.CONTENT);
+    private static final SerializedString ATTACHMENT = new SerializedString(ActivityStreamsFields.ATTACHMENT);
+    private static final SerializedString ATTRIBUTED_TO = new SerializedString(ActivityStreamsFields.ATTRIBUTED_TO);
+    private static final SerializedString AUDIENCE = new SerializedString(ActivityStreamsFields.AUDIENCE);
+    private static final SerializedString END_TIME = new SerializedString(ActivityStreamsFields.END_TIME);
+    private static final SerializedString GENERATOR = new SerializedString(ActivityStreamsFields.GENERATOR);
+    private static final SerializedString ICON = new SerializedString(ActivityStreamsFields.ICON);
+    private static final SerializedString IMAGE = new SerializedString(ActivityStreamsFields.IMAGE);
+    private static final SerializedString IN_REPLY_TO = new SerializedString(ActivityStreamsFields.IN_REPLY_TO);
+    private static final SerializedString PUBLISHED = new SerializedString(ActivityStreamsFields.PUBLISHED);
+    private static final SerializedString REPLIES = new SerializedString(ActivityStreamsFields.REPLIES);
+    private static final SerializedString START_TIME = new SerializedString(ActivityStreamsFields.START_TIME);
+    private static final SerializedString TAG = new SerializedString(ActivityStreamsFields.TAG);
+    private static final SerializedString UPDATED = new SerializedString(ActivityStreamsFields.UPDATED);
+    private static final SerializedString TO = new SerializedString(ActivityStreamsFields.TO);
+    private static final SerializedString BTO = new SerializedString(ActivityStreamsFields.BTO);
+    private static final SerializedString CC = new SerializedString(ActivityStreamsFields.CC);
+    private static final SerializedString BCC = new SerializedString(ActivityStreamsFields.BCC);
+    private static final SerializedString MEDIA_TYPE = new SerializedString(ActivityStreamsFields.MEDIA_TYPE);
+    private static final SerializedString DURATION = new SerializedString(ActivityStreamsFields.DURATION);
+
+    private static final SerializedString FORMER_TYPE = new SerializedString(ActivityStreamsFields.FORMER_TYPE);
+    private static final SerializedString DELETED = new SerializedString(ActivityStreamsFields.DELETED);
+
+    private static final SerializedString TOTAL_ITEMS = new SerializedString(ActivityStreamsFields.TOTAL_ITEMS);
+    private static final SerializedString CURRENT = new SerializedString(ActivityStreamsFields.CURRENT);
+    private static final SerializedString FIRST = new SerializedString(ActivityStreamsFields.FIRST);
+    private static final SerializedString LAST = new SerializedString(ActivityStreamsFields.LAST);
+    private static final SerializedString ITEMS = new SerializedString(ActivityStreamsFields.ITEMS);
+    private static final SerializedString ORDERED_ITEMS = new SerializedString(ActivityStreamsFields.ORDERED_ITEMS);
+    private static final SerializedString PART_OF = new SerializedString(ActivityStreamsFields.PART_OF);
+    private static final SerializedString PREV = new SerializedString(ActivityStreamsFields.PREV);
+    private static final SerializedString NEXT = new SerializedString(ActivityStreamsFields.NEXT);
+    private static final SerializedString START_INDEX = new SerializedString(ActivityStreamsFields.START_INDEX);
+
+    private static final SerializedString UNITS = new SerializedString(ActivityStreamsFields.UNITS);
+    private static final SerializedString ACCURACY = new SerializedString(ActivityStreamsFields.ACCURACY);
+    private static final SerializedString ALTITUDE = new SerializedString(ActivityStreamsFields.ALTITUDE);
+    private static final SerializedString LATITUDE = new SerializedString(ActivityStreamsFields.LATITUDE);
+    private static final SerializedString LONGITUDE = new SerializedString(ActivityStreamsFields.LONGITUDE);
+    private static final SerializedString RADIUS = new SerializedString(ActivityStreamsFields.RADIUS);
+
+    private static final SerializedString ONE_OF = new SerializedString(ActivityStreamsFields.ONE_OF);
+    private static final SerializedString ANY_OF = new SerializedString(ActivityStreamsFields.ANY_OF);
+    private static final SerializedString CLOSED = new SerializedString(ActivityStreamsFields.CLOSED);
+
+    private static final SerializedString CONTEXT_ACTIVITY_STREAMS = new SerializedString(ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS);
+
+    private static final SerializedString[] TYPE_NAMES = new SerializedString[ObjectType.values().length];
+
+    static {
+        for (ObjectType type : ObjectType.values()) {
+            TYPE_NAMES[type.ordinal()] = new SerializedString(type.name());
+        }
+    }
+
+    private final JsonFactory factory;
+
+    public ActivityPubWriter(ObjectMapper objectMapper) {
+        this.factory = objectMapper.getFactory();
+    }
+
+    public byte[] writeAsBytes(ActivityStreamsObject object) throws IOException {
+        try (ByteArrayBuilder bytes = new ByteArrayBuilder(factory._getBufferRecycler())) {
+            try (JsonGenerator generator = factory.createGenerator(bytes)) {
+                write(object, generator);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the writer produces a binary format
+     */
+    public String writeAsString(ActivityStreamsObject object) throws IOException {
+        if (factory.canHandleBinaryNatively()) {
+            throw new IllegalStateException(factory.getFormatName() + " output cannot be written as a String");
+        }
+        return new String(writeAsBytes(object), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes UTF-8 JSON, or the binary format of the factory, to {@code out}, which is flushed but left open.
+     */
+    public void write(ActivityStreamsObject object, OutputStream out) throws IOException {
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            write(object, generator);
+        }
+    }
+
+    /**
+     * Writes UTF-8 JSON into {@code target} starting at its position, which is advanced past the output.
+     *
+     * @throws java.nio.BufferOverflowException if the output does not fit in the remaining space
+     */
+    public void write(ActivityStreamsObject object, ByteBuffer target) throws IOException {
+        write(object, new ByteBufferBackedOutputStream(target));
+    }
+
+    /**
+     * Writes {@code object} as a top level document, always as a JSON object with its {@code @context}.
+     */
+    public void write(ActivityStreamsObject object, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(AT_CONTEXT);
+        if (object.getAtContext() == null || ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS.equals(object.getAtContext())) {
+            generator.writeString(CONTEXT_ACTIVITY_STREAMS);
+        } else {
+            writeContext(object.getAtContext(), generator);
+        }
+        writeFields(object, generator);
+        generator.writeEndObject();
+    }
+
+    protected void writeValue(ActivityStreamsObject object, JsonGenerator generator) throws IOException {
+        if (isBareLink(object)) {
+            generator.writeString(((Link) object).getHref());
+            return;
+        }
+        generator.writeStartObject();
+        if (object.getAtContext() != null && !ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS.equals(object.getAtContext())) {
+            generator.writeFieldName(AT_CONTEXT);
+            writeContext(object.getAtContext(), generator);
+        }
+        writeFields(object, generator);
+        generator.writeEndObject();
+    }
+
+    private static void writeContext(String context, JsonGenerator generator) throws IOException {
+        if (isStructuredContext(context)) {
+            writeJson(context, generator);
+        } else {
+            generator.writeString(context);
+        }
+    }
+
+    private void writeFields(ActivityStreamsObject object, JsonGenerator generator) throws IOException {
+        writeType(object, generator);
+        writeString(ID, object.getId(), generator);
+        writeString(NAME, object.getName(), generator);
+        if (object instanceof Link) {
+            writeLinkFields((Link) object, generator);
+        } else if (object instanceof BaseObject) {
+            writeBaseObjectFields((BaseObject) object, generator);
+        }
+    }
+
+    private void writeType(ActivityStreamsObject object, JsonGenerator generator) throws IOException {
+        ObjectType type = object.getType();
+        if (type == ObjectType.Custom) {
+            writeString(TYPE, object.getCustomType(), generator);
+        } else if (type != null) {
+            generator.writeFieldName(TYPE);
+            generator.writeString(TYPE_NAMES[type.ordinal()]);
+        }
+    }
+
+    private void writeLinkFields(Link object, JsonGenerator generator) throws IOException {
+        writeString(HREF, object.getHref(), generator);
+        writeString(HREF_LANG, object.getHrefLang(), generator);
+        writeString(REL, object.getRel(), generator);
+        if (object.hasHeight()) {
+            writeInt(HEIGHT, object.getHeightAsInt(), generator);
+        }
+        if (object.hasWidth()) {
+            writeInt(WIDTH, object.getWidthAsInt(), generator);
+        }
+        writeString(PREVIEW, object.getPreview(), generator);
+    }
+
+    private void writeBaseObjectFields(BaseObject object, JsonGenerator generator) throws IOException {
+        writeString(SUMMARY, object.getSummary(), generator);
+        writeString(CONTENT, object.getContent(), generator);
+        writeString(MEDIA_TYPE, object.getMediaType(), generator);
+        writeString(DURATION, object.getDuration(), generator);
+        writeList(ACTOR, object.getActors(), generator);
+        if (object instanceof Activity) {
+            writeActivityFields((Activity) object, generator);
+        }
+        writeObject(ATTRIBUTED_TO, object.getAttributedTo(), generator);
+        writeList(AUDIENCE, object.getAudienceList(), generator);
+        writeList(TO, object.getToList(), generator);
+        writeList(BTO, object.getBtoList(), generator);
+        writeList(CC, object.getCcList(), generator);
+        writeList(BCC, object.getBccList(), generator);
+        writeInstant(PUBLISHED, object.getPublished(), generator);
+        writeString(UPDATED, object.getUpdated(), generator);
+        writeInstant(START_TIME, object.getStartTime(), generator);
+        writeInstant(END_TIME, object.getEndTime(), generator);
+        writeList(IN_REPLY_TO, object.getInReplyTo(), generator);
+        writeObject(CONTEXT, object.getContext(), generator);
+        writeObject(LOCATION, object.getLocation(), generator);
+        writeList(ATTACHMENT, object.getAttachmentList(), generator);
+        writeList(TAG, object.getTagList(), generator);
+        writeObject(GENERATOR, object.getGenerator(), generator);
+        writeList(ICON, object.getIcon(), generator);
+        writeList(IMAGE, object.getImage(), generator);
+        writeObject(PREVIEW, object.getPreview(), generator);
+        writeList(URL, object.getUrl(), generator);
+        writeObject(REPLIES, object.getReplies(), generator);
+
+        if (object instanceof Place) {
+            writePlaceFields((Place) object, generator);
+        } else if (object instanceof Tombstone) {
+            writeTombstoneFields((Tombstone) object, generator);
+        } else if (object instanceof BaseCollection) {
+            writeCollectionFields((BaseCollection) object, generator);
+        }
+    }
+
+    private void writeActivityFields(Activity object, JsonGenerator generator) throws IOException {
+        writeList(OBJECT, object.getObjects(), generator);
+        writeList(TARGET, object.getTargets(), generator);
+        writeObject(RESULT, object.getResult(), generator);
+        writeObject(ORIGIN, object.getOrigin(), generator);
+        writeObject(INSTRUMENT, object.getInstrument(), generator);
+        if (object instanceof Question) {
+            Question question = (Question) object;
+            writeList(ONE_OF, question.getOneOf(), generator);
+            writeList(ANY_OF, question.getAnyOf(), generator);
+            writeInstant(CLOSED, question.getClosed(), generator);
+        }
+    }
+
+    private void writePlaceFields(Place object, JsonGenerator generator) throws IOException {
+        if (object.hasAccuracy()) {
+            writeDouble(ACCURACY, object.getAccuracyAsDouble(), generator);
+        }
+        if (object.hasAltitude()) {
+            writeDouble(ALTITUDE, object.getAltitudeAsDouble(), generator);
+        }
+        if (object.hasLatitude()) {
+            writeDouble(LATITUDE, object.getLatitudeAsDouble(), generator);
+        }
+        if (object.hasLongitude()) {
+            writeDouble(LONGITUDE, object.getLongitudeAsDouble(), generator);
+        }
+        if (object.hasRadius()) {
+            writeDouble(RADIUS, object.getRadiusAsDouble(), generator);
+        }
+        writeString(UNITS, object.getUnits(), generator);
+    }
+
+    private void writeTombstoneFields(Tombstone object, JsonGenerator generator) throws IOException {
+        if (object.getFormerType() != null && object.getFormerType() != ObjectType.Custom) {
+            generator.writeFieldName(FORMER_TYPE);
+            generator.writeString(TYPE_NAMES[object.getFormerType().ordinal()]);
+        }
+        writeInstant(DELETED, object.getDeleted(), generator);
+    }
+
+    private void writeCollectionFields(BaseCollection object, JsonGenerator generator) throws IOException {
+        if (object.hasTotalItems()) {
+            writeInt(TOTAL_ITEMS, object.getTotalItemsAsInt(), generator);
+        }
+        writeString(CURRENT, object.getCurrent(), generator);
+        if (object.getFirstPage() != null) {
+            writeObject(FIRST, object.getFirstPage(), generator);
+        } else {
+            writeString(FIRST, object.getFirst(), generator);
+        }
+        writeString(LAST, object.getLast(), generator);
+        if (object instanceof CollectionPage) {
+            CollectionPage page = (CollectionPage) object;
+            writeString(PART_OF, page.getPartOf(), generator);
+            writeObject(PREV, page.getPrev(), generator);
+            writeObject(NEXT, page.getNext(), generator);
+        }
+        if (object instanceof OrderedCollectionPage && ((OrderedCollectionPage) object).hasStartIndex()) {
+            writeInt(START_INDEX, ((OrderedCollectionPage) object).getStartIndexAsInt(), generator);
+        }
+        writeList(ITEMS, object.getItems(), generator);
+        if (object instanceof OrderedCollection) {
+            writeList(ORDERED_ITEMS, ((OrderedCollection) object).getOrderedItems(), generator);
+        } else if (object instanceof OrderedCollectionPage) {
+            writeList(ORDERED_ITEMS, ((OrderedCollectionPage) object).getOrderedItems(), generator);
+        }
+    }
+
+    private void writeObject(SerializedString name, ActivityStreamsObject value, JsonGenerator generator) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            writeValue(value, generator);
+        }
+    }
+
+    private void writeList(SerializedString name, List<ActivityStreamsObject> values, JsonGenerator generator) throws IOException {
+        if (values == null) {
+            return;
+        }
+        ActivityStreamsObject single = null;
+        int count = 0;
+        for (ActivityStreamsObject value : values) {
+            if (value != null) {
+                single = value;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        generator.writeFieldName(name);
+        if (count == 1) {
+            writeValue(single, generator);
+            return;
+        }
+        generator.writeStartArray();
+        for (ActivityStreamsObject value : values) {
+            if (value != null) {
+                writeValue(value, generator);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeString(SerializedString name, String value, JsonGenerator generator) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        }
+    }
+
+    private static void writeInt(SerializedString name, int value, JsonGenerator generator) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeNumber(value);
+    }
+
+    private static void writeDouble(SerializedString name, double value, JsonGenerator generator) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeNumber(value);
+    }
+
+    private static void writeInstant(SerializedString name, Instant value, JsonGenerator generator) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeString(value.toString());
+        }
+    }
+}
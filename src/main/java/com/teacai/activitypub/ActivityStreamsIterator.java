@@ -0,0 +1,76 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily parses a sequence of ActivityStreams objects: newline delimited or concatenated JSON, or
+ * the elements of top level JSON arrays. {@code null} records are skipped.
+ */
+class ActivityStreamsIterator implements Iterator<ActivityStreamsObject>, Closeable {
+
+    private final ActivityPubParser activityPubParser;
+
+    private final JsonParser parser;
+
+    private boolean inArray;
+
+    private ActivityStreamsObject next;
+
+    ActivityStreamsIterator(ActivityPubParser activityPubParser, JsonParser parser) {
+        this.activityPubParser = activityPubParser;
+        this.parser = parser;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (next == null && advance() != null) {
+                next = activityPubParser.parse(parser);
+            }
+            return next != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ActivityStreamsObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ActivityStreamsObject object = next;
+        next = null;
+        return object;
+    }
+
+    private JsonToken advance() throws IOException {
+        JsonToken token = parser.nextToken();
+        while (true) {
+            if (token == JsonToken.START_ARRAY && !inArray) {
+                inArray = true;
+            } else if (token == JsonToken.END_ARRAY && inArray) {
+                inArray = false;
+            } else {
+                return token;
+            }
+            token = parser.nextToken();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
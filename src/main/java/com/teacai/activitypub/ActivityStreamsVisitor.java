@@ -0,0 +1,45 @@
+package com.teacai.activitypub;
+
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ObjectType;
+
+/**
+ * Callbacks for {@link ActivityPubParser#visit(String, ActivityStreamsVisitor)}, which reports the
+ * objects, properties and links of a document as they are read instead of building the model.
+ * <p>
+ * Property names are the interned names of the payload, so they can be compared with the
+ * {@link ActivityStreamsFields} constants. Values are handed out as a {@link CharSequence} that is
+ * reused for every event and only valid during the callback; call {@code toString()} to keep one.
+ * Elements of an array are reported one by one under the name of the array's property, {@code null}
+ * values are not reported.
+ */
+public interface ActivityStreamsVisitor {
+
+    /**
+     * An object starts. Its properties follow, up to the matching {@link #onObjectEnd}.
+     *
+     * @param type  the type of the object, {@link ObjectType#Custom} for types outside the vocabulary,
+     *              whose name is then reported as the {@code type} property
+     * @param field the property holding the object, {@code null} for the top level object
+     */
+    default void onObjectStart(ObjectType type, String field) {
+    }
+
+    /**
+     * A scalar property of the current object, numbers and booleans as their JSON text.
+     */
+    default void onField(String name, CharSequence value) {
+    }
+
+    /**
+     * A reference to another object: a URL given as the value of a property such as {@code actor},
+     * {@code tag} or {@code inReplyTo}, or the {@code href} of a {@code Link} or {@code Mention}.
+     *
+     * @param field the property holding the URL or the link
+     */
+    default void onLink(String field, CharSequence href) {
+    }
+
+    default void onObjectEnd(ObjectType type, String field) {
+    }
+}
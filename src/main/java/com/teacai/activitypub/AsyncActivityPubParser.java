@@ -0,0 +1,174 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Incremental parser for bodies that arrive in chunks, built on Jackson's non-blocking parser.
+ * <p>
+ * Each chunk is tokenized as soon as it is fed; the tokens of the record being received are kept in
+ * a {@link TokenBuffer} and handed to the wrapped {@link ActivityPubParser} once the record is
+ * complete. No thread blocks waiting for input and the raw body is never accumulated. The
+ * {@link ParserLimits} of the wrapped parser are enforced on each record while it is being fed, so an
+ * oversized record fails as soon as it crosses a limit rather than once it is complete. Like
+ * {@link ActivityPubParser#parseAll(java.io.InputStream)} it accepts a single object, newline delimited
+ * or concatenated objects and the elements of top level arrays.
+ * <p>
+ * Instances hold the state of one body and are not thread-safe.
+ */
+public class AsyncActivityPubParser implements Closeable {
+
+    private final ActivityPubParser activityPubParser;
+
+    private final JsonParser parser;
+
+    private TokenBuffer tokens;
+
+    /**
+     * Reads the current record through the limits of {@link #activityPubParser}, {@code null} between
+     * records or without limits.
+     */
+    private JsonParser limited;
+
+    private int depth;
+
+    private boolean inArray;
+
+    private long bufferedBytes;
+
+    public AsyncActivityPubParser(ActivityPubParser activityPubParser) throws IOException {
+        this(activityPubParser, false);
+    }
+
+    /**
+     * @param byteBufferInput {@code true} to create a parser fed through {@link #feed(ByteBuffer)},
+     *                        {@code false} for one fed through {@link #feed(byte[], int, int)}
+     */
+    public AsyncActivityPubParser(ActivityPubParser activityPubParser, boolean byteBufferInput) throws IOException {
+        this.activityPubParser = activityPubParser;
+        this.parser = byteBufferInput
+                ? activityPubParser.getObjectMapper().getFactory().createNonBlockingByteBufferParser()
+                : activityPubParser.getObjectMapper().getFactory().createNonBlockingByteArrayParser();
+    }
+
+    /**
+     * Feeds the next chunk of the body. The array is only read during this call.
+     *
+     * @return the objects completed by this chunk, usually none or one
+     */
+    public List<ActivityStreamsObject> feed(byte[] data, int offset, int length) throws IOException {
+        ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(data, offset, offset + length);
+        bufferedBytes += length;
+        return drain();
+    }
+
+    public List<ActivityStreamsObject> feed(byte[] data) throws IOException {
+        return feed(data, 0, data.length);
+    }
+
+    /**
+     * Feeds the remaining bytes of {@code data}, which may be a direct buffer. The buffer is only read
+     * during this call and its position is left unchanged.
+     *
+     * @return the objects completed by this chunk, usually none or one
+     */
+    public List<ActivityStreamsObject> feed(ByteBuffer data) throws IOException {
+        ((ByteBufferFeeder) parser.getNonBlockingInputFeeder()).feedInput(data);
+        bufferedBytes += data.remaining();
+        return drain();
+    }
+
+    /**
+     * Signals the end of the body.
+     *
+     * @return any object completed by the end of input
+     * @throws JsonParseException if the body ends inside a record
+     */
+    public List<ActivityStreamsObject> endOfInput() throws IOException {
+        parser.getNonBlockingInputFeeder().endOfInput();
+        return drain();
+    }
+
+    /**
+     * Number of bytes fed since the last completed record, the amount of input the current record is
+     * holding on to.
+     */
+    public long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    private List<ActivityStreamsObject> drain() throws IOException {
+        List<ActivityStreamsObject> completed = Collections.emptyList();
+        JsonToken token;
+        while ((token = nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (depth == 0 && token == JsonToken.START_ARRAY && !inArray) {
+                inArray = true;
+                continue;
+            }
+            if (depth == 0 && token == JsonToken.END_ARRAY && inArray) {
+                inArray = false;
+                continue;
+            }
+            if (tokens == null) {
+                tokens = new TokenBuffer(parser);
+                if (activityPubParser.getLimits() != null && token.isStructStart()) {
+                    limited = new LimitedJsonParser(parser, activityPubParser.getLimits());
+                }
+            }
+            tokens.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+            if (depth == 0) {
+                ActivityStreamsObject object = complete();
+                if (object != null) {
+                    if (completed.isEmpty()) {
+                        completed = new ArrayList<>(1);
+                    }
+                    completed.add(object);
+                }
+            }
+        }
+        if (token == null && (depth > 0 || inArray)) {
+            throw new JsonParseException(parser, "Unexpected end of input inside a record");
+        }
+        if (limited != null) {
+            // a long string yields no token until it ends, so check the bytes held by the record too
+            activityPubParser.getLimits().checkBytes(bufferedBytes);
+        }
+        return completed;
+    }
+
+    private JsonToken nextToken() throws IOException {
+        return limited != null ? limited.nextToken() : parser.nextToken();
+    }
+
+    private ActivityStreamsObject complete() throws IOException {
+        TokenBuffer record = tokens;
+        tokens = null;
+        limited = null;
+        bufferedBytes = 0;
+        try (JsonParser recordParser = record.asParser(activityPubParser.getObjectMapper())) {
+            return activityPubParser.parse(recordParser);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
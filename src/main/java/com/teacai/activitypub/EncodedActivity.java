@@ -0,0 +1,112 @@
+package com.teacai.activitypub;
+
+import com.teacai.activitypub.model.Activity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * An {@link Activity} together with its serialized form, for delivering the same activity to many
+ * inboxes.
+ * <p>
+ * The UTF-8 bytes and the {@code Digest} header value are computed on first use, once, and then shared
+ * by all threads; {@link #asByteBuffer()} hands out read-only views instead of copies. The activity
+ * must not be modified after it has been wrapped.
+ */
+public final class EncodedActivity {
+
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final Activity activity;
+
+    private final ActivityPubWriter writer;
+
+    private volatile Encoded encoded;
+
+    public EncodedActivity(Activity activity, ActivityPubWriter writer) {
+        if (activity == null || writer == null) {
+            throw new IllegalArgumentException("activity and writer are required");
+        }
+        this.activity = activity;
+        this.writer = writer;
+    }
+
+    public Activity getActivity() {
+        return activity;
+    }
+
+    /**
+     * Read-only view of the serialized activity, positioned at zero. Each call returns an independent
+     * view over the same bytes.
+     *
+     * @throws UncheckedIOException if the activity cannot be serialized
+     */
+    public ByteBuffer asByteBuffer() {
+        return encoded().bytes.asReadOnlyBuffer();
+    }
+
+    public int getLength() {
+        return encoded().bytes.capacity();
+    }
+
+    /**
+     * Writes the serialized activity to {@code out}, which is left open.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        ByteBuffer bytes = encoded().bytes;
+        out.write(bytes.array(), bytes.arrayOffset(), bytes.capacity());
+    }
+
+    /**
+     * Value of the HTTP {@code Digest} header for the serialized activity, for example
+     * {@code SHA-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE=}.
+     */
+    public String getDigest() {
+        return encoded().digest;
+    }
+
+    private Encoded encoded() {
+        Encoded result = encoded;
+        if (result == null) {
+            synchronized (this) {
+                result = encoded;
+                if (result == null) {
+                    result = encode();
+                    encoded = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Encoded encode() {
+        byte[] bytes;
+        try {
+            bytes = writer.writeAsBytes(activity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Encoded(ByteBuffer.wrap(bytes), DIGEST_ALGORITHM + "=" + Base64.getEncoder().encodeToString(hash));
+    }
+
+    private static final class Encoded {
+        final ByteBuffer bytes;
+        final String digest;
+
+        Encoded(ByteBuffer bytes, String digest) {
+            this.bytes = bytes;
+            this.digest = digest;
+        }
+    }
+}
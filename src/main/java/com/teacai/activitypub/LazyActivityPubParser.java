@@ -0,0 +1,127 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseCollection;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.Deferred;
+import com.teacai.activitypub.model.OrderedCollection;
+import com.teacai.activitypub.model.OrderedCollectionPage;
+import com.teacai.activitypub.util.LinkCache;
+import com.teacai.activitypub.util.StringCanonicalizer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streaming parser that defers the nested {@code object}, {@code target}, {@code items},
+ * {@code orderedItems} and {@code context} values until their getters are first called.
+ * <p>
+ * The tokens of a deferred value are kept in a {@link TokenBuffer}, so the payload is still fully
+ * read and checked for syntax errors up front, but no model objects, links or timestamps are built
+ * for values that are never looked at. Deferred values are parsed at most once and can be read from
+ * any thread.
+ */
+public class LazyActivityPubParser extends StreamingActivityPubParser {
+
+    public LazyActivityPubParser(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    public LazyActivityPubParser(ObjectMapper objectMapper, StringCanonicalizer canonicalizer) {
+        super(objectMapper, canonicalizer);
+    }
+
+    public LazyActivityPubParser(ObjectMapper objectMapper, StringCanonicalizer canonicalizer, LinkCache linkCache) {
+        super(objectMapper, canonicalizer, linkCache);
+    }
+
+    /**
+     * @param limits bounds on the accepted payloads, checked when the payload is read; deferred values
+     *               are within them by the time they are parsed
+     */
+    public LazyActivityPubParser(ObjectMapper objectMapper, StringCanonicalizer canonicalizer, LinkCache linkCache,
+                                 ParserLimits limits) {
+        super(objectMapper, canonicalizer, linkCache, limits);
+    }
+
+    @Override
+    protected boolean readField(JsonParser parser, String field, ActivityStreamsObject object) throws IOException {
+        if (ParseDiagnostics.current() != null) {
+            // a deferred value would be parsed after the diagnostics are gone
+            return super.readField(parser, field, object);
+        }
+        switch (field) {
+            case ActivityStreamsFields.OBJECT:
+                if (object instanceof Activity) {
+                    ((Activity) object).deferObjects(deferList(parser));
+                    return true;
+                }
+                break;
+            case ActivityStreamsFields.TARGET:
+                if (object instanceof Activity) {
+                    ((Activity) object).deferTargets(deferList(parser));
+                    return true;
+                }
+                break;
+            case ActivityStreamsFields.ITEMS:
+                if (object instanceof BaseCollection) {
+                    ((BaseCollection) object).deferItems(deferList(parser));
+                    return true;
+                }
+                break;
+            case ActivityStreamsFields.ORDERED_ITEMS:
+                if (object instanceof OrderedCollection) {
+                    ((OrderedCollection) object).deferOrderedItems(deferList(parser));
+                    return true;
+                } else if (object instanceof OrderedCollectionPage) {
+                    ((OrderedCollectionPage) object).deferOrderedItems(deferList(parser));
+                    return true;
+                }
+                break;
+            case ActivityStreamsFields.CONTEXT:
+                if (object instanceof BaseObject) {
+                    ((BaseObject) object).deferContext(deferObjectValue(parser));
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+        return super.readField(parser, field, object);
+    }
+
+    private Deferred<List<ActivityStreamsObject>> deferList(JsonParser parser) throws IOException {
+        TokenBuffer tokens = capture(parser);
+        return new Deferred<>(() -> {
+            try (JsonParser replay = replay(tokens)) {
+                return readList(replay);
+            }
+        });
+    }
+
+    private Deferred<ActivityStreamsObject> deferObjectValue(JsonParser parser) throws IOException {
+        TokenBuffer tokens = capture(parser);
+        return new Deferred<>(() -> {
+            try (JsonParser replay = replay(tokens)) {
+                return readObjectValue(replay);
+            }
+        });
+    }
+
+    private static TokenBuffer capture(JsonParser parser) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(parser);
+        tokens.copyCurrentStructure(parser);
+        return tokens;
+    }
+
+    private JsonParser replay(TokenBuffer tokens) throws IOException {
+        JsonParser replay = tokens.asParser(getObjectMapper());
+        replay.nextToken();
+        return replay;
+    }
+}
@@ -0,0 +1,151 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+import java.io.IOException;
+
+/**
+ * Enforces {@link ParserLimits} on the tokens of one payload as they are read. Depth and array sizes
+ * come from Jackson's parsing context, so only the object and token counts are kept here.
+ */
+final class LimitedJsonParser extends JsonParserDelegate {
+
+    private final ParserLimits limits;
+
+    private final int baseDepth;
+
+    private final long baseOffset;
+
+    private int objects;
+
+    private int tokens;
+
+    LimitedJsonParser(JsonParser parser, ParserLimits limits) {
+        super(parser);
+        this.limits = limits;
+        JsonToken token = parser.currentToken();
+        int depth = parser.getParsingContext().getNestingDepth();
+        if (token != null && token.isStructStart()) {
+            depth--;
+        }
+        this.baseDepth = depth;
+        this.baseOffset = offset(parser.currentLocation());
+        if (token == JsonToken.START_OBJECT) {
+            objects = 1;
+        }
+    }
+
+    /**
+     * Wraps {@code parser} unless it already reads through a {@code LimitedJsonParser}.
+     */
+    static JsonParser wrap(JsonParser parser, ParserLimits limits) {
+        for (JsonParser p = parser; p instanceof JsonParserDelegate; p = ((JsonParserDelegate) p).delegate()) {
+            if (p instanceof LimitedJsonParser) {
+                return parser;
+            }
+        }
+        return new LimitedJsonParser(parser, limits);
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        JsonToken token = delegate.nextToken();
+        if (token == null || token == JsonToken.NOT_AVAILABLE) {
+            return token;
+        }
+        if ((++tokens & (ParserLimits.BYTES_CHECK_INTERVAL - 1)) == 0) {
+            long bytes = offset(delegate.currentLocation()) - baseOffset;
+            if (bytes > limits.getMaxBytes()) {
+                throw limits.exceeded(ParserLimits.Limit.BYTES, bytes, delegate.currentLocation());
+            }
+        }
+        switch (token) {
+            case START_OBJECT:
+                if (++objects > limits.getMaxObjects()) {
+                    throw limits.exceeded(ParserLimits.Limit.OBJECTS, objects, delegate.currentLocation());
+                }
+                checkStart();
+                break;
+            case START_ARRAY:
+                checkStart();
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                break;
+            case FIELD_NAME:
+                checkLength();
+                break;
+            case VALUE_STRING:
+                checkLength();
+                checkItems(delegate.getParsingContext());
+                break;
+            default:
+                checkItems(delegate.getParsingContext());
+        }
+        return token;
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+        JsonToken token = nextToken();
+        return token == JsonToken.FIELD_NAME ? nextToken() : token;
+    }
+
+    /**
+     * Skips through {@link #nextToken()} so skipped values count against the limits too.
+     */
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        JsonToken token = currentToken();
+        if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+            return this;
+        }
+        int open = 1;
+        while (open > 0) {
+            token = nextToken();
+            if (token == null) {
+                return this;
+            }
+            if (token.isStructStart()) {
+                open++;
+            } else if (token.isStructEnd()) {
+                open--;
+            }
+        }
+        return this;
+    }
+
+    private void checkStart() throws IOException {
+        JsonStreamContext context = delegate.getParsingContext();
+        int depth = context.getNestingDepth() - baseDepth;
+        if (depth > limits.getMaxDepth()) {
+            throw limits.exceeded(ParserLimits.Limit.DEPTH, depth, delegate.currentLocation());
+        }
+        checkItems(context.getParent());
+    }
+
+    /**
+     * @param container the context the value that was just read belongs to
+     */
+    private void checkItems(JsonStreamContext container) throws IOException {
+        if (container != null && container.inArray() && container.getNestingDepth() > baseDepth
+                && container.getCurrentIndex() >= limits.getMaxItems()) {
+            throw limits.exceeded(ParserLimits.Limit.ITEMS, container.getCurrentIndex() + 1L, delegate.currentLocation());
+        }
+    }
+
+    private void checkLength() throws IOException {
+        if (limits.hasStringLengthLimit() && delegate.getTextLength() > limits.getMaxStringLength()) {
+            throw limits.exceeded(ParserLimits.Limit.STRING_LENGTH, delegate.getTextLength(), delegate.currentLocation());
+        }
+    }
+
+    private static long offset(JsonLocation location) {
+        long bytes = location.getByteOffset();
+        return bytes == -1 ? location.getCharOffset() : bytes;
+    }
+}
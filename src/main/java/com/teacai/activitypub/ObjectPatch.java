@@ -0,0 +1,328 @@
+package com.teacai.activitypub;
+
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseCollection;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.CollectionPage;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.ObjectType;
+import com.teacai.activitypub.model.OrderedCollection;
+import com.teacai.activitypub.model.OrderedCollectionPage;
+import com.teacai.activitypub.model.Place;
+import com.teacai.activitypub.model.Question;
+import com.teacai.activitypub.model.Tombstone;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A new version of an object with the properties of an {@code Update} applied to it.
+ * <p>
+ * By default the updated object replaces the cached one, as ActivityPub specifies for server to server
+ * updates: every property the update sets replaces the one of the cached object and properties it
+ * leaves out are cleared. {@link Mode#MERGE} instead keeps the properties the update leaves out, for
+ * partial updates. The cached object is not modified: the new version is a {@link
+ * ActivityStreamsObject#copy() copy} that shares all unchanged properties with it, and where a changed
+ * list still holds equivalent objects at the same positions, those are shared too. A frozen object
+ * yields a frozen new version. Equivalence of embedded objects is structural, so an update that
+ * resends an object unchanged does not report it.
+ */
+public final class ObjectPatch {
+
+    /**
+     * How properties missing from an update are treated.
+     */
+    public enum Mode {
+
+        /**
+         * Missing properties are cleared.
+         */
+        REPLACE,
+
+        /**
+         * Missing properties keep their value, so no property can be removed.
+         */
+        MERGE
+    }
+
+    private static final class Property {
+        final String name;
+        final Class<?> owner;
+        final Function<ActivityStreamsObject, Object> getter;
+        final BiConsumer<ActivityStreamsObject, Object> setter;
+
+        Property(String name, Class<?> owner, Function<ActivityStreamsObject, Object> getter,
+                 BiConsumer<ActivityStreamsObject, Object> setter) {
+            this.name = name;
+            this.owner = owner;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    private static final List<Property> PROPERTIES = new ArrayList<>();
+
+    static {
+        add(ActivityStreamsFields.NAME, ActivityStreamsObject.class, ActivityStreamsObject::getName, ActivityStreamsObject::setName);
+
+        add(ActivityStreamsFields.HREF, Link.class, Link::getHref, Link::setHref);
+        add(ActivityStreamsFields.HREF_LANG, Link.class, Link::getHrefLang, Link::setHrefLang);
+        add(ActivityStreamsFields.REL, Link.class, Link::getRel, Link::setRel);
+        add(ActivityStreamsFields.HEIGHT, Link.class, Link::getHeight, Link::setHeight);
+        add(ActivityStreamsFields.WIDTH, Link.class, Link::getWidth, Link::setWidth);
+        add(ActivityStreamsFields.PREVIEW, Link.class, Link::getPreview, Link::setPreview);
+
+        add(ActivityStreamsFields.SUMMARY, BaseObject.class, BaseObject::getSummary, BaseObject::setSummary);
+        add(ActivityStreamsFields.CONTENT, BaseObject.class, BaseObject::getContent, BaseObject::setContent);
+        add(ActivityStreamsFields.MEDIA_TYPE, BaseObject.class, BaseObject::getMediaType, BaseObject::setMediaType);
+        add(ActivityStreamsFields.DURATION, BaseObject.class, BaseObject::getDuration, BaseObject::setDuration);
+        add(ActivityStreamsFields.ACTOR, BaseObject.class, BaseObject::getActors, BaseObject::setActors);
+        add(ActivityStreamsFields.ATTRIBUTED_TO, BaseObject.class, BaseObject::getAttributedTo, BaseObject::setAttributedTo);
+        add(ActivityStreamsFields.AUDIENCE, BaseObject.class, BaseObject::getAudienceList, BaseObject::setAudienceList);
+        add(ActivityStreamsFields.TO, BaseObject.class, BaseObject::getToList, BaseObject::setToList);
+        add(ActivityStreamsFields.BTO, BaseObject.class, BaseObject::getBtoList, BaseObject::setBtoList);
+        add(ActivityStreamsFields.CC, BaseObject.class, BaseObject::getCcList, BaseObject::setCcList);
+        add(ActivityStreamsFields.BCC, BaseObject.class, BaseObject::getBccList, BaseObject::setBccList);
+        add(ActivityStreamsFields.PUBLISHED, BaseObject.class, BaseObject::getPublished, BaseObject::setPublished);
+        add(ActivityStreamsFields.UPDATED, BaseObject.class, BaseObject::getUpdated, BaseObject::setUpdated);
+        add(ActivityStreamsFields.START_TIME, BaseObject.class, BaseObject::getStartTime, BaseObject::setStartTime);
+        add(ActivityStreamsFields.END_TIME, BaseObject.class, BaseObject::getEndTime, BaseObject::setEndTime);
+        add(ActivityStreamsFields.IN_REPLY_TO, BaseObject.class, BaseObject::getInReplyTo, BaseObject::setInReplyTo);
+        add(ActivityStreamsFields.CONTEXT, BaseObject.class, BaseObject::getContext, BaseObject::setContext);
+        add(ActivityStreamsFields.LOCATION, BaseObject.class, BaseObject::getLocation, BaseObject::setLocation);
+        add(ActivityStreamsFields.ATTACHMENT, BaseObject.class, BaseObject::getAttachmentList, BaseObject::setAttachmentList);
+        add(ActivityStreamsFields.TAG, BaseObject.class, BaseObject::getTagList, BaseObject::setTagList);
+        add(ActivityStreamsFields.GENERATOR, BaseObject.class, BaseObject::getGenerator, BaseObject::setGenerator);
+        add(ActivityStreamsFields.ICON, BaseObject.class, BaseObject::getIcon, BaseObject::setIcon);
+        add(ActivityStreamsFields.IMAGE, BaseObject.class, BaseObject::getImage, BaseObject::setImage);
+        add(ActivityStreamsFields.PREVIEW, BaseObject.class, BaseObject::getPreview, BaseObject::setPreview);
+        add(ActivityStreamsFields.URL, BaseObject.class, BaseObject::getUrl, BaseObject::setUrl);
+        add(ActivityStreamsFields.REPLIES, BaseObject.class, BaseObject::getReplies, BaseObject::setReplies);
+
+        add(ActivityStreamsFields.OBJECT, Activity.class, Activity::getObjects, Activity::setObjects);
+        add(ActivityStreamsFields.TARGET, Activity.class, Activity::getTargets, Activity::setTargets);
+        add(ActivityStreamsFields.RESULT, Activity.class, Activity::getResult, Activity::setResult);
+        add(ActivityStreamsFields.ORIGIN, Activity.class, Activity::getOrigin, Activity::setOrigin);
+        add(ActivityStreamsFields.INSTRUMENT, Activity.class, Activity::getInstrument, Activity::setInstrument);
+        add(ActivityStreamsFields.ONE_OF, Question.class, Question::getOneOf, Question::setOneOf);
+        add(ActivityStreamsFields.ANY_OF, Question.class, Question::getAnyOf, Question::setAnyOf);
+        add(ActivityStreamsFields.CLOSED, Question.class, Question::getClosed, Question::setClosed);
+
+        add(ActivityStreamsFields.ACCURACY, Place.class, Place::getAccuracy, Place::setAccuracy);
+        add(ActivityStreamsFields.ALTITUDE, Place.class, Place::getAltitude, Place::setAltitude);
+        add(ActivityStreamsFields.LATITUDE, Place.class, Place::getLatitude, Place::setLatitude);
+        add(ActivityStreamsFields.LONGITUDE, Place.class, Place::getLongitude, Place::setLongitude);
+        add(ActivityStreamsFields.RADIUS, Place.class, Place::getRadius, Place::setRadius);
+        add(ActivityStreamsFields.UNITS, Place.class, Place::getUnits, Place::setUnits);
+
+        add(ActivityStreamsFields.FORMER_TYPE, Tombstone.class, Tombstone::getFormerType, Tombstone::setFormerType);
+        add(ActivityStreamsFields.DELETED, Tombstone.class, Tombstone::getDeleted, Tombstone::setDeleted);
+
+        add(ActivityStreamsFields.TOTAL_ITEMS, BaseCollection.class, BaseCollection::getTotalItems, BaseCollection::setTotalItems);
+        add(ActivityStreamsFields.CURRENT, BaseCollection.class, BaseCollection::getCurrent, BaseCollection::setCurrent);
+        add(ActivityStreamsFields.FIRST, BaseCollection.class, BaseCollection::getFirst, BaseCollection::setFirst);
+        add(ActivityStreamsFields.FIRST, BaseCollection.class, BaseCollection::getFirstPage, BaseCollection::setFirstPage);
+        add(ActivityStreamsFields.LAST, BaseCollection.class, BaseCollection::getLast, BaseCollection::setLast);
+        add(ActivityStreamsFields.ITEMS, BaseCollection.class, BaseCollection::getItems, BaseCollection::setItems);
+        add(ActivityStreamsFields.ORDERED_ITEMS, OrderedCollection.class, OrderedCollection::getOrderedItems, OrderedCollection::setOrderedItems);
+        add(ActivityStreamsFields.PART_OF, CollectionPage.class, CollectionPage::getPartOf, CollectionPage::setPartOf);
+        add(ActivityStreamsFields.PREV, CollectionPage.class, CollectionPage::getPrev, CollectionPage::setPrev);
+        add(ActivityStreamsFields.NEXT, CollectionPage.class, CollectionPage::getNext, CollectionPage::setNext);
+        add(ActivityStreamsFields.START_INDEX, OrderedCollectionPage.class, OrderedCollectionPage::getStartIndex, OrderedCollectionPage::setStartIndex);
+        add(ActivityStreamsFields.ORDERED_ITEMS, OrderedCollectionPage.class, OrderedCollectionPage::getOrderedItems, OrderedCollectionPage::setOrderedItems);
+    }
+
+    private final BaseObject previous;
+
+    private final BaseObject object;
+
+    private final Set<String> changedFields;
+
+    private ObjectPatch(BaseObject previous, BaseObject object, Set<String> changedFields) {
+        this.previous = previous;
+        this.object = object;
+        this.changedFields = changedFields;
+    }
+
+    /**
+     * Replaces {@code cached} with the object of {@code update}, an {@code Update} activity.
+     *
+     * @throws IllegalArgumentException if {@code update} is not an {@code Update} of an object with the
+     *                                  id and type of {@code cached}
+     */
+    public static ObjectPatch apply(BaseObject cached, Activity update) {
+        return apply(cached, update, Mode.REPLACE);
+    }
+
+    /**
+     * Applies the object of {@code update}, an {@code Update} activity, to {@code cached}.
+     *
+     * @throws IllegalArgumentException if {@code update} is not an {@code Update} of an object with the
+     *                                  id and type of {@code cached}
+     */
+    public static ObjectPatch apply(BaseObject cached, Activity update, Mode mode) {
+        if (update.getType() != ObjectType.Update) {
+            throw new IllegalArgumentException("Expected an Update activity, got " + update.getType());
+        }
+        List<ActivityStreamsObject> objects = update.getObjects();
+        if (objects == null || objects.size() != 1 || !(objects.get(0) instanceof BaseObject)) {
+            throw new IllegalArgumentException("Update must embed exactly one object");
+        }
+        return patch(cached, (BaseObject) objects.get(0), mode);
+    }
+
+    /**
+     * Replaces {@code cached} with {@code replacement}, clearing the properties it does not set.
+     *
+     * @throws IllegalArgumentException if {@code replacement} does not have the id and type of {@code cached}
+     */
+    public static ObjectPatch replace(BaseObject cached, BaseObject replacement) {
+        return patch(cached, replacement, Mode.REPLACE);
+    }
+
+    /**
+     * Applies the properties set on {@code changes} to {@code cached}, keeping the ones it does not set.
+     *
+     * @throws IllegalArgumentException if {@code changes} does not have the id and type of {@code cached}
+     */
+    public static ObjectPatch merge(BaseObject cached, BaseObject changes) {
+        return patch(cached, changes, Mode.MERGE);
+    }
+
+    private static ObjectPatch patch(BaseObject cached, BaseObject changes, Mode mode) {
+        if (!Objects.equals(cached.getId(), changes.getId())) {
+            throw new IllegalArgumentException("Update of " + changes.getId() + " does not apply to " + cached.getId());
+        }
+        if (cached.getClass() != changes.getClass() || cached.getType() != changes.getType()
+                || !Objects.equals(cached.getCustomType(), changes.getCustomType())) {
+            throw new IllegalArgumentException("Update of " + cached.getId() + " changes its type");
+        }
+        Set<String> changed = new LinkedHashSet<>();
+        BaseObject patched = null;
+        for (Property property : PROPERTIES) {
+            if (!property.owner.isInstance(cached)) {
+                continue;
+            }
+            Object value = property.getter.apply(changes);
+            Object current = property.getter.apply(cached);
+            if (isAbsent(value) ? mode == Mode.MERGE || isAbsent(current) : equivalent(current, value)) {
+                continue;
+            }
+            if (patched == null) {
+                patched = cached.copy();
+            }
+            property.setter.accept(patched, share(current, value));
+            changed.add(property.name);
+        }
+        if (patched == null) {
+            return new ObjectPatch(cached, cached, Collections.emptySet());
+        }
+        if (cached.isFrozen()) {
+            patched.freeze();
+        }
+        return new ObjectPatch(cached, patched, Collections.unmodifiableSet(changed));
+    }
+
+    /**
+     * Whether {@code a} and {@code b} are equal values, or objects of the same class with equivalent
+     * properties.
+     */
+    public static boolean equivalent(Object a, Object b) {
+        if (a == b) {
+            return true;
+        } else if (a == null || b == null) {
+            return false;
+        } else if (a instanceof ActivityStreamsObject && b instanceof ActivityStreamsObject) {
+            return equivalentObjects((ActivityStreamsObject) a, (ActivityStreamsObject) b);
+        } else if (a instanceof List && b instanceof List) {
+            List<?> first = (List<?>) a;
+            List<?> second = (List<?>) b;
+            if (first.size() != second.size()) {
+                return false;
+            }
+            for (int i = 0; i < first.size(); i++) {
+                if (!equivalent(first.get(i), second.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a.equals(b);
+    }
+
+    private static boolean equivalentObjects(ActivityStreamsObject a, ActivityStreamsObject b) {
+        if (a.getClass() != b.getClass() || a.getType() != b.getType()
+                || !Objects.equals(a.getId(), b.getId())
+                || !Objects.equals(a.getCustomType(), b.getCustomType())
+                || !Objects.equals(a.getAtContext(), b.getAtContext())) {
+            return false;
+        }
+        for (Property property : PROPERTIES) {
+            if (property.owner.isInstance(a) && !equivalent(property.getter.apply(a), property.getter.apply(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAbsent(Object value) {
+        return value == null || (value instanceof List && ((List<?>) value).isEmpty());
+    }
+
+    /**
+     * The new value of a changed property, keeping the elements of a list that did not change.
+     */
+    private static Object share(Object current, Object value) {
+        if (!(current instanceof List) || !(value instanceof List)) {
+            return value;
+        }
+        List<?> before = (List<?>) current;
+        List<?> after = (List<?>) value;
+        List<Object> shared = new ArrayList<>(after.size());
+        for (int i = 0; i < after.size(); i++) {
+            Object element = after.get(i);
+            shared.add(i < before.size() && equivalent(before.get(i), element) ? before.get(i) : element);
+        }
+        return shared;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends ActivityStreamsObject, V> void add(String name, Class<T> owner, Function<T, V> getter,
+                                                                 BiConsumer<T, V> setter) {
+        PROPERTIES.add(new Property(name, owner, object -> getter.apply(owner.cast(object)),
+                (object, value) -> setter.accept(owner.cast(object), (V) value)));
+    }
+
+    /**
+     * The object before the update.
+     */
+    public BaseObject getPrevious() {
+        return previous;
+    }
+
+    /**
+     * The object after the update, the previous object itself if nothing changed.
+     */
+    public BaseObject getObject() {
+        return object;
+    }
+
+    /**
+     * Names of the properties the update changed, in a fixed order.
+     */
+    public Set<String> getChangedFields() {
+        return changedFields;
+    }
+
+    public boolean hasChanges() {
+        return !changedFields.isEmpty();
+    }
+}
@@ -0,0 +1,169 @@
+package com.teacai.activitypub;
+
+import com.teacai.activitypub.model.ActivityStreamsObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parses large NDJSON / JSON array inputs on a {@link ForkJoinPool}.
+ * <p>
+ * The input is split on record boundaries into chunks of roughly {@code chunkSize} bytes, each chunk
+ * is parsed as one task. At most {@code maxChunksInFlight} chunks are read ahead of the consumer, which
+ * bounds memory to about {@code chunkSize * (maxChunksInFlight + 1)} bytes plus the parsed objects.
+ */
+public class ParallelActivityPubParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final ActivityPubParser parser;
+
+    private final ForkJoinPool pool;
+
+    private final int chunkSize;
+
+    private final int maxChunksInFlight;
+
+    public ParallelActivityPubParser(ActivityPubParser parser) {
+        this(parser, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, 2 * ForkJoinPool.commonPool().getParallelism());
+    }
+
+    public ParallelActivityPubParser(ActivityPubParser parser, ForkJoinPool pool, int chunkSize, int maxChunksInFlight) {
+        if (chunkSize <= 0 || maxChunksInFlight <= 0) {
+            throw new IllegalArgumentException("chunkSize and maxChunksInFlight must be positive");
+        }
+        this.parser = parser;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Parses all records of {@code json}. Closing the returned stream closes {@code json} and cancels
+     * outstanding chunks; parse errors are rethrown from the stream, I/O errors as {@link UncheckedIOException}.
+     *
+     * @param ordered {@code false} to receive chunks in completion order rather than input order
+     */
+    public Stream<ActivityStreamsObject> parseAll(InputStream json, boolean ordered) {
+        ChunkIterator iterator = new ChunkIterator(new RecordSplitter(json, chunkSize), json, ordered);
+        int characteristics = ordered ? Spliterator.ORDERED | Spliterator.NONNULL : Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false)
+                .onClose(iterator::close);
+    }
+
+    private List<ActivityStreamsObject> parseChunk(RecordSplitter.Chunk chunk) {
+        List<ActivityStreamsObject> objects = new ArrayList<>(chunk.count);
+        try {
+            for (int i = 0; i < chunk.count; i++) {
+                ActivityStreamsObject object = parser.parse(chunk.data, chunk.offsets[i], chunk.lengths[i]);
+                if (object != null) {
+                    objects.add(object);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return objects;
+    }
+
+    private class ChunkIterator implements Iterator<ActivityStreamsObject>, Closeable {
+
+        private final RecordSplitter splitter;
+
+        private final InputStream in;
+
+        private final Queue<Future<List<ActivityStreamsObject>>> pending = new ArrayDeque<>();
+
+        private final CompletionService<List<ActivityStreamsObject>> completionService;
+
+        private Iterator<ActivityStreamsObject> current = Collections.emptyIterator();
+
+        private boolean exhausted;
+
+        ChunkIterator(RecordSplitter splitter, InputStream in, boolean ordered) {
+            this.splitter = splitter;
+            this.in = in;
+            this.completionService = ordered ? null : new ExecutorCompletionService<>(pool);
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!current.hasNext()) {
+                    submitChunks();
+                    if (pending.isEmpty()) {
+                        return false;
+                    }
+                    Future<List<ActivityStreamsObject>> next = completionService == null ? pending.poll() : completionService.take();
+                    pending.remove(next);
+                    current = next.get().iterator();
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a parsed chunk", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        @Override
+        public ActivityStreamsObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private void submitChunks() throws IOException {
+            while (!exhausted && pending.size() < maxChunksInFlight) {
+                RecordSplitter.Chunk chunk = splitter.next();
+                if (chunk == null) {
+                    exhausted = true;
+                } else if (completionService == null) {
+                    pending.add(pool.submit(() -> parseChunk(chunk)));
+                } else {
+                    pending.add(completionService.submit(() -> parseChunk(chunk)));
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            exhausted = true;
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.teacai.activitypub;
+
+/**
+ * Problems found by a lenient parse, see {@link ActivityPubParser#parse(String, ParseDiagnostics)}.
+ * <p>
+ * A lenient parse leaves a property it cannot convert unset and drops a list element it cannot parse,
+ * recording an error code and the property name here instead of throwing. Nothing is allocated per
+ * problem: the first {@code capacity} problems are kept, the rest are only counted. An instance is
+ * meant to be reused for many parses, but only by one thread at a time. A lenient parse of the
+ * {@link LazyActivityPubParser} reads every value up front, so that all problems are recorded.
+ */
+public final class ParseDiagnostics {
+
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private static final ThreadLocal<ParseDiagnostics> CURRENT = new ThreadLocal<>();
+
+    private final ParseError[] errors;
+
+    private final String[] fields;
+
+    private int recorded;
+
+    private int count;
+
+    public ParseDiagnostics() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ParseDiagnostics(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        this.errors = new ParseError[capacity];
+        this.fields = new String[capacity];
+    }
+
+    /**
+     * Number of problems found, including those beyond the capacity.
+     */
+    public int getProblemCount() {
+        return count;
+    }
+
+    public boolean hasProblems() {
+        return count > 0;
+    }
+
+    /**
+     * Number of problems whose details are kept, at most the capacity.
+     */
+    public int getRecordedCount() {
+        return recorded;
+    }
+
+    public ParseError getError(int index) {
+        checkIndex(index);
+        return errors[index];
+    }
+
+    /**
+     * Name of the property the problem was found in.
+     */
+    public String getField(int index) {
+        checkIndex(index);
+        return fields[index];
+    }
+
+    public void reset() {
+        for (int i = 0; i < recorded; i++) {
+            errors[i] = null;
+            fields[i] = null;
+        }
+        recorded = 0;
+        count = 0;
+    }
+
+    void record(ParseError error, String field) {
+        if (recorded < errors.length) {
+            errors[recorded] = error;
+            fields[recorded] = field;
+            recorded++;
+        }
+        count++;
+    }
+
+    /**
+     * Makes this the diagnostics of the lenient parse running on the current thread.
+     *
+     * @return the diagnostics of an enclosing lenient parse, to be passed to {@link #end}
+     */
+    ParseDiagnostics begin() {
+        ParseDiagnostics previous = CURRENT.get();
+        CURRENT.set(this);
+        reset();
+        return previous;
+    }
+
+    static void end(ParseDiagnostics previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * @return the diagnostics of the lenient parse running on the current thread, or {@code null}
+     */
+    static ParseDiagnostics current() {
+        return CURRENT.get();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= recorded) {
+            throw new IndexOutOfBoundsException("Index " + index + ", recorded problems " + recorded);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ParseDiagnostics[");
+        for (int i = 0; i < recorded; i++) {
+            builder.append(i == 0 ? "" : ", ").append(errors[i]).append(' ').append(fields[i]);
+        }
+        if (count > recorded) {
+            builder.append(recorded == 0 ? "" : ", ").append(count - recorded).append(" more");
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.teacai.activitypub;
+
+/**
+ * Problems a lenient parse records in {@link ParseDiagnostics} instead of failing.
+ */
+public enum ParseError {
+
+    /**
+     * A numeric property that is not a number, or out of range.
+     */
+    INVALID_NUMBER,
+
+    /**
+     * A timestamp property that is not an ISO-8601 date-time.
+     */
+    INVALID_TIMESTAMP,
+
+    /**
+     * An element of a list property that is not an object or a link, or could not be parsed; it was left
+     * out of the list.
+     */
+    INVALID_ITEM
+}
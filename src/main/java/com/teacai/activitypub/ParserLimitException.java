@@ -0,0 +1,24 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+
+/**
+ * Thrown when a payload exceeds one of the {@link ParserLimits} of the parser. Extends Jackson's own
+ * exception for its stream constraints, so both can be handled together.
+ */
+public class ParserLimitException extends StreamConstraintsException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ParserLimits.Limit limit;
+
+    public ParserLimitException(ParserLimits.Limit limit, long value, JsonLocation location) {
+        super("Payload exceeds the " + limit + " limit: " + value, location);
+        this.limit = limit;
+    }
+
+    public ParserLimits.Limit getLimit() {
+        return limit;
+    }
+}
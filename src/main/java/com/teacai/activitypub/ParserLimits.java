@@ -0,0 +1,137 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonLocation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds on the payloads a parser accepts, for input from untrusted peers.
+ * <p>
+ * The limits are checked on the token stream while it is read, so a payload crossing one fails with a
+ * {@link ParserLimitException} before the rest of it is read or any model object is built for it.
+ * Each limit counts how often it was exceeded. An instance can be shared by any number of parsers and
+ * threads.
+ */
+public final class ParserLimits {
+
+    /**
+     * The bounded properties of a payload.
+     */
+    public enum Limit {
+
+        /**
+         * Nesting of objects and arrays, a top level object has depth 1.
+         */
+        DEPTH,
+
+        /**
+         * Elements of a single array.
+         */
+        ITEMS,
+
+        /**
+         * Objects in the whole payload, including links and other nested objects.
+         */
+        OBJECTS,
+
+        /**
+         * Characters of a single string value or property name.
+         */
+        STRING_LENGTH,
+
+        /**
+         * Size of the payload, in bytes, or in characters for text input. Streamed input is checked
+         * every 64 tokens.
+         */
+        BYTES
+    }
+
+    static final int BYTES_CHECK_INTERVAL = 64;
+
+    private final int maxDepth;
+
+    private final int maxItems;
+
+    private final int maxObjects;
+
+    private final int maxStringLength;
+
+    private final long maxBytes;
+
+    private final LongAdder[] exceeded = new LongAdder[Limit.values().length];
+
+    /**
+     * Each limit is inclusive, -1 means no limit.
+     */
+    public ParserLimits(int maxDepth, int maxItems, int maxObjects, int maxStringLength, long maxBytes) {
+        this.maxDepth = bound(maxDepth, "maxDepth");
+        this.maxItems = bound(maxItems, "maxItems");
+        this.maxObjects = bound(maxObjects, "maxObjects");
+        this.maxStringLength = bound(maxStringLength, "maxStringLength");
+        if (maxBytes < -1) {
+            throw new IllegalArgumentException("maxBytes must be -1 or positive");
+        }
+        this.maxBytes = maxBytes == -1 ? Long.MAX_VALUE : maxBytes;
+        for (int i = 0; i < exceeded.length; i++) {
+            exceeded[i] = new LongAdder();
+        }
+    }
+
+    private static int bound(int limit, String name) {
+        if (limit < -1) {
+            throw new IllegalArgumentException(name + " must be -1 or positive");
+        }
+        return limit == -1 ? Integer.MAX_VALUE : limit;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public int getMaxObjects() {
+        return maxObjects;
+    }
+
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Number of payloads rejected for exceeding {@code limit}.
+     */
+    public long getExceededCount(Limit limit) {
+        return exceeded[limit.ordinal()].sum();
+    }
+
+    boolean hasStringLengthLimit() {
+        return maxStringLength != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Rejects input whose size is known before it is read.
+     */
+    void checkBytes(long length) throws ParserLimitException {
+        if (length > maxBytes) {
+            throw exceeded(Limit.BYTES, length, null);
+        }
+    }
+
+    ParserLimitException exceeded(Limit limit, long value, JsonLocation location) {
+        exceeded[limit.ordinal()].increment();
+        return new ParserLimitException(limit, value, location);
+    }
+
+    @Override
+    public String toString() {
+        return "ParserLimits[depth=" + maxDepth + ", items=" + maxItems + ", objects=" + maxObjects
+                + ", stringLength=" + maxStringLength + ", bytes=" + maxBytes + "]";
+    }
+}
@@ -0,0 +1,64 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Set of properties to keep when parsing, for callers that only look at a few of them.
+ * <p>
+ * Each path is a property name, optionally followed by nested property names separated by dots:
+ * {@code actor} keeps the whole actor while {@code object.content} keeps only the content of the
+ * object. Paths apply to every element of arrays, and {@code type} is always kept so objects are
+ * created with the right class. Everything else is skipped by the tokenizer before any Map or model
+ * object is built for it.
+ */
+public final class Projection extends TokenFilter {
+
+    private final Map<String, Projection> children = new HashMap<>();
+
+    private boolean includeAll;
+
+    private Projection() {
+    }
+
+    public static Projection of(String... paths) {
+        return of(Arrays.asList(paths));
+    }
+
+    public static Projection of(Collection<String> paths) {
+        Projection root = new Projection();
+        for (String path : paths) {
+            Projection node = root;
+            for (String name : path.split("\\.")) {
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid projection path: " + path);
+                }
+                node = node.children.computeIfAbsent(name, key -> new Projection());
+            }
+            node.includeAll = true;
+        }
+        return root;
+    }
+
+    @Override
+    public TokenFilter includeProperty(String name) {
+        if (ActivityStreamsFields.TYPE.equals(name)) {
+            return TokenFilter.INCLUDE_ALL;
+        }
+        Projection child = children.get(name);
+        if (child == null) {
+            return null;
+        }
+        return child.includeAll ? TokenFilter.INCLUDE_ALL : child;
+    }
+
+    @Override
+    public String toString() {
+        return "Projection" + children.keySet();
+    }
+}
@@ -0,0 +1,180 @@
+package com.teacai.activitypub;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a byte stream of newline delimited JSON, concatenated JSON or JSON arrays into chunks of
+ * complete top level records without parsing them. Only brackets, braces, quotes and escapes are
+ * tracked, which is enough to find record boundaries.
+ */
+class RecordSplitter {
+
+    /**
+     * Complete records backed by a buffer that is not touched by the splitter any more.
+     */
+    static final class Chunk {
+        final byte[] data;
+        final int[] offsets;
+        final int[] lengths;
+        final int count;
+
+        Chunk(byte[] data, int[] offsets, int[] lengths, int count) {
+            this.data = data;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.count = count;
+        }
+    }
+
+    private static final int UNKNOWN = -1;
+
+    private final InputStream in;
+
+    private byte[] buffer;
+    private int limit;
+    private int position;
+    private boolean eof;
+
+    private int depth;
+    private int recordDepth = UNKNOWN;
+    private boolean inString;
+    private boolean escaped;
+    private int recordStart = -1;
+
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64];
+    private int count;
+
+    RecordSplitter(InputStream in, int chunkSize) {
+        this.in = in;
+        this.buffer = new byte[chunkSize];
+    }
+
+    /**
+     * @return the next chunk of records, or {@code null} once the input is exhausted
+     */
+    Chunk next() throws IOException {
+        while (true) {
+            while (position < limit) {
+                scan(buffer[position]);
+                position++;
+            }
+            if (eof) {
+                if (recordStart >= 0) {
+                    // a bare scalar or a truncated record, hand it over so parsing reports it
+                    endRecord(limit);
+                }
+                return count == 0 ? null : cut();
+            }
+            if (limit == buffer.length) {
+                if (count > 0) {
+                    return cut();
+                }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    private void scan(byte b) {
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (b == '\\') {
+                escaped = true;
+            } else if (b == '"') {
+                inString = false;
+                if (depth == recordDepth && recordStart >= 0) {
+                    endRecord(position + 1);
+                }
+            }
+            return;
+        }
+        switch (b) {
+            case ' ':
+            case '\t':
+            case '\r':
+            case '\n':
+            case ',':
+                if (depth == recordDepth && recordStart >= 0) {
+                    endRecord(position);
+                }
+                return;
+            case '[':
+            case '{':
+                if (depth == 0 && recordDepth != 1 && b == '[') {
+                    recordDepth = 1;
+                    depth = 1;
+                    return;
+                }
+                startRecord();
+                depth++;
+                return;
+            case ']':
+            case '}':
+                if (depth == recordDepth && recordStart >= 0) {
+                    endRecord(position);
+                }
+                depth--;
+                if (depth == recordDepth && recordStart >= 0) {
+                    endRecord(position + 1);
+                } else if (depth == 0 && recordDepth == 1) {
+                    recordDepth = UNKNOWN;
+                }
+                return;
+            case '"':
+                startRecord();
+                inString = true;
+                return;
+            default:
+                startRecord();
+        }
+    }
+
+    private void startRecord() {
+        if (recordDepth == UNKNOWN) {
+            recordDepth = 0;
+        }
+        if (depth == recordDepth && recordStart < 0) {
+            recordStart = position;
+        }
+    }
+
+    private void endRecord(int end) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+        offsets[count] = recordStart;
+        lengths[count] = end - recordStart;
+        count++;
+        recordStart = -1;
+    }
+
+    /**
+     * Hands the current buffer over to a chunk and moves any partial record into a fresh buffer.
+     */
+    private Chunk cut() {
+        Chunk chunk = new Chunk(buffer, offsets, lengths, count);
+        int tail = recordStart >= 0 ? recordStart : position;
+        byte[] next = new byte[Math.max(buffer.length, (limit - tail) * 2)];
+        System.arraycopy(buffer, tail, next, 0, limit - tail);
+        buffer = next;
+        limit -= tail;
+        position -= tail;
+        if (recordStart >= 0) {
+            recordStart -= tail;
+        }
+        offsets = new int[offsets.length];
+        lengths = new int[lengths.length];
+        count = 0;
+        return chunk;
+    }
+}
@@ -0,0 +1,708 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseCollection;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.CollectionPage;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.ObjectType;
+import com.teacai.activitypub.model.OrderedCollection;
+import com.teacai.activitypub.model.OrderedCollectionPage;
+import com.teacai.activitypub.model.Place;
+import com.teacai.activitypub.model.Question;
+import com.teacai.activitypub.model.Tombstone;
+import com.teacai.activitypub.util.LinkCache;
+import com.teacai.activitypub.util.ParseUtils;
+import com.teacai.activitypub.util.StringCanonicalizer;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parser that fills the model directly from the {@link JsonParser} token stream instead of
+ * deserializing the payload into a {@code Map} first.
+ * <p>
+ * Produces the same results as {@link ActivityPubParser}. Fields that appear before {@code type}
+ * are buffered until the type is known, fields that do not apply to the resolved type are skipped
+ * without being materialized.
+ */
+public class StreamingActivityPubParser extends ActivityPubParser {
+
+    private final StringCanonicalizer canonicalizer;
+
+    private final LinkCache linkCache;
+
+    public StreamingActivityPubParser(ObjectMapper objectMapper) {
+        this(objectMapper, null, null);
+    }
+
+    public StreamingActivityPubParser(ObjectMapper objectMapper, StringCanonicalizer canonicalizer) {
+        this(objectMapper, canonicalizer, null);
+    }
+
+    /**
+     * @param canonicalizer table shared by all parses for the ids, hrefs and bare URLs of the parsed
+     *                      objects, or {@code null} to create a new String for each of them
+     * @param linkCache     table of read-only links shared for bare URL references, or {@code null}
+     *                      to create a new {@link Link} for each of them
+     */
+    public StreamingActivityPubParser(ObjectMapper objectMapper, StringCanonicalizer canonicalizer, LinkCache linkCache) {
+        this(objectMapper, canonicalizer, linkCache, null);
+    }
+
+    /**
+     * @param limits bounds on the accepted payloads, or {@code null} to accept any payload
+     */
+    public StreamingActivityPubParser(ObjectMapper objectMapper, StringCanonicalizer canonicalizer, LinkCache linkCache,
+                                      ParserLimits limits) {
+        super(objectMapper, limits);
+        this.canonicalizer = canonicalizer;
+        this.linkCache = linkCache;
+    }
+
+    @Override
+    public ActivityStreamsObject parse(JsonParser parser) throws IOException {
+        parser = limit(parser);
+        JsonToken token = parser.hasCurrentToken() ? parser.currentToken() : parser.nextToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an ActivityStreams object but found " + token);
+        }
+        return readObject(parser);
+    }
+
+    /**
+     * Reads the object the parser is positioned on, leaving the parser on its {@code END_OBJECT}.
+     */
+    protected ActivityStreamsObject readObject(JsonParser parser) throws IOException {
+        TokenBuffer buffered = null;
+        ObjectType type = ObjectType.Custom;
+        String typeName = null;
+        boolean typeFound = false;
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String field = parser.currentName();
+            token = parser.nextToken();
+            if (ActivityStreamsFields.TYPE.equals(field)) {
+                if (token == JsonToken.VALUE_STRING) {
+                    type = ObjectType.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    typeName = type == ObjectType.Custom ? parser.getText() : null;
+                } else {
+                    typeName = readString(parser);
+                    type = ObjectType.parse(typeName);
+                }
+                typeFound = true;
+                break;
+            }
+            if (buffered == null) {
+                buffered = new TokenBuffer(parser);
+            }
+            buffered.writeFieldName(field);
+            buffered.copyCurrentStructure(parser);
+        }
+
+        ActivityStreamsObject object = createObject(type);
+        object.setType(type);
+        if (type == ObjectType.Custom) {
+            object.setCustomType(typeName);
+        }
+
+        if (buffered != null) {
+            try (JsonParser replay = buffered.asParser(parser)) {
+                readFields(replay, object);
+            }
+        }
+        if (typeFound) {
+            readFields(parser, object);
+        }
+        return object;
+    }
+
+    protected void readFields(JsonParser parser, ActivityStreamsObject object) throws IOException {
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (!readField(parser, field, object)) {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    protected static ActivityStreamsObject createObject(ObjectType type) {
+        ActivityStreamsObject object;
+        switch (type) {
+            case Place:
+                object = new Place();
+                break;
+            case Tombstone:
+                object = new Tombstone();
+                break;
+            case Link:
+            case Mention:
+                object = new Link();
+                break;
+            case Accept:
+            case Activity:
+            case Add:
+            case Announce:
+            case Arrive:
+            case Block:
+            case Create:
+            case Delete:
+            case Dislike:
+            case Flag:
+            case Follow:
+            case Ignore:
+            case Invite:
+            case Join:
+            case Leave:
+            case Like:
+            case Listen:
+            case Move:
+            case Offer:
+            case Reject:
+            case Read:
+            case Remove:
+            case TentativeAccept:
+            case TentativeReject:
+            case Travel:
+            case Undo:
+            case Update:
+            case View:
+                object = new Activity();
+                break;
+            case Question:
+                object = new Question();
+                break;
+            case Collection:
+                object = new BaseCollection();
+                break;
+            case OrderedCollection:
+                object = new OrderedCollection();
+                break;
+            case CollectionPage:
+                object = new CollectionPage();
+                break;
+            case OrderedCollectionPage:
+                object = new OrderedCollectionPage();
+                break;
+            default:
+                object = new BaseObject();
+        }
+        setDefaults(object);
+        return object;
+    }
+
+    /**
+     * Mirrors the values {@link ActivityPubParser} assigns to properties missing from the payload.
+     */
+    private static void setDefaults(ActivityStreamsObject object) {
+        object.setAtContext(ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS);
+        if (object instanceof BaseObject) {
+            BaseObject baseObject = (BaseObject) object;
+            baseObject.setActors(Collections.emptyList());
+            baseObject.setUrl(Collections.emptyList());
+            baseObject.setIcon(Collections.emptyList());
+            baseObject.setImage(Collections.emptyList());
+            baseObject.setInReplyTo(Collections.emptyList());
+            baseObject.setAttachmentList(Collections.emptyList());
+            baseObject.setAudienceList(Collections.emptyList());
+            baseObject.setTagList(Collections.emptyList());
+            baseObject.setToList(Collections.emptyList());
+            baseObject.setCcList(Collections.emptyList());
+        }
+        if (object instanceof Activity) {
+            ((Activity) object).setObjects(Collections.emptyList());
+            ((Activity) object).setTargets(Collections.emptyList());
+        }
+        if (object instanceof Question) {
+            ((Question) object).setOneOf(Collections.emptyList());
+            ((Question) object).setAnyOf(Collections.emptyList());
+        }
+        if (object instanceof BaseCollection) {
+            ((BaseCollection) object).setItems(Collections.emptyList());
+        }
+        if (object instanceof OrderedCollection) {
+            ((OrderedCollection) object).setOrderedItems(Collections.emptyList());
+        }
+        if (object instanceof OrderedCollectionPage) {
+            ((OrderedCollectionPage) object).setOrderedItems(Collections.emptyList());
+        }
+    }
+
+    /**
+     * Reads the value of {@code field} into {@code object}.
+     *
+     * @return {@code false} when the field does not apply to the object, the value is left unread
+     */
+    protected boolean readField(JsonParser parser, String field, ActivityStreamsObject object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.AT_CONTEXT:
+                object.setAtContext(readContext(parser));
+                return true;
+            case ActivityStreamsFields.ID:
+                object.setId(readUrl(parser));
+                return true;
+            case ActivityStreamsFields.NAME:
+                object.setName(readString(parser));
+                return true;
+            default:
+                if (object instanceof Link) {
+                    return readLinkField(parser, field, (Link) object);
+                } else if (object instanceof BaseObject) {
+                    return readBaseObjectField(parser, field, (BaseObject) object);
+                }
+                return false;
+        }
+    }
+
+    private boolean readLinkField(JsonParser parser, String field, Link object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.HREF:
+                object.setHref(readUrl(parser));
+                return true;
+            case ActivityStreamsFields.HREF_LANG:
+                object.setHrefLang(readString(parser));
+                return true;
+            case ActivityStreamsFields.REL:
+                object.setRel(readString(parser));
+                return true;
+            case ActivityStreamsFields.PREVIEW:
+                object.setPreview(readString(parser));
+                return true;
+            case ActivityStreamsFields.HEIGHT:
+                if (isInt(parser)) {
+                    object.setHeightAsInt(parser.getIntValue());
+                } else {
+                    object.setHeight(readInteger(parser, field));
+                }
+                return true;
+            case ActivityStreamsFields.WIDTH:
+                if (isInt(parser)) {
+                    object.setWidthAsInt(parser.getIntValue());
+                } else {
+                    object.setWidth(readInteger(parser, field));
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean readBaseObjectField(JsonParser parser, String field, BaseObject object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.SUMMARY:
+                object.setSummary(readString(parser));
+                return true;
+            case ActivityStreamsFields.CONTEXT:
+                object.setContext(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.ACTOR:
+                object.setActors(readList(parser));
+                return true;
+            case ActivityStreamsFields.URL:
+                object.setUrl(readList(parser));
+                return true;
+            case ActivityStreamsFields.LOCATION:
+                object.setLocation(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.CONTENT:
+                object.setContent(readString(parser));
+                return true;
+            case ActivityStreamsFields.ATTACHMENT:
+                object.setAttachmentList(readList(parser));
+                return true;
+            case ActivityStreamsFields.ATTRIBUTED_TO:
+                object.setAttributedTo(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.AUDIENCE:
+                object.setAudienceList(readList(parser));
+                return true;
+            case ActivityStreamsFields.END_TIME:
+                object.setEndTime(readInstant(parser, field));
+                return true;
+            case ActivityStreamsFields.GENERATOR:
+                object.setGenerator(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.ICON:
+                object.setIcon(readList(parser));
+                return true;
+            case ActivityStreamsFields.IMAGE:
+                object.setImage(readList(parser));
+                return true;
+            case ActivityStreamsFields.IN_REPLY_TO:
+                object.setInReplyTo(readList(parser));
+                return true;
+            case ActivityStreamsFields.PREVIEW:
+                object.setPreview(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.PUBLISHED:
+                object.setPublished(readInstant(parser, field));
+                return true;
+            case ActivityStreamsFields.REPLIES:
+                object.setReplies(collectionValue(readObjectValue(parser)));
+                return true;
+            case ActivityStreamsFields.START_TIME:
+                object.setStartTime(readInstant(parser, field));
+                return true;
+            case ActivityStreamsFields.TAG:
+                object.setTagList(readList(parser));
+                return true;
+            case ActivityStreamsFields.UPDATED:
+                object.setUpdated(readString(parser));
+                return true;
+            case ActivityStreamsFields.TO:
+                object.setToList(readList(parser));
+                return true;
+            case ActivityStreamsFields.BTO:
+                object.setBtoList(readList(parser));
+                return true;
+            case ActivityStreamsFields.CC:
+                object.setCcList(readList(parser));
+                return true;
+            case ActivityStreamsFields.BCC:
+                object.setBccList(readList(parser));
+                return true;
+            case ActivityStreamsFields.MEDIA_TYPE:
+                object.setMediaType(readString(parser));
+                return true;
+            case ActivityStreamsFields.DURATION:
+                object.setDuration(readString(parser));
+                return true;
+            default:
+                if (object instanceof Activity) {
+                    return readActivityField(parser, field, (Activity) object);
+                } else if (object instanceof BaseCollection) {
+                    return readCollectionField(parser, field, (BaseCollection) object);
+                } else if (object instanceof Place) {
+                    return readPlaceField(parser, field, (Place) object);
+                } else if (object instanceof Tombstone) {
+                    return readTombstoneField(parser, field, (Tombstone) object);
+                }
+                return false;
+        }
+    }
+
+    private boolean readActivityField(JsonParser parser, String field, Activity object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.OBJECT:
+                object.setObjects(readList(parser));
+                return true;
+            case ActivityStreamsFields.TARGET:
+                object.setTargets(readList(parser));
+                return true;
+            case ActivityStreamsFields.RESULT:
+                object.setResult(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.ORIGIN:
+                object.setOrigin(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.INSTRUMENT:
+                object.setInstrument(readObjectValue(parser));
+                return true;
+            default:
+                if (object instanceof Question) {
+                    return readQuestionField(parser, field, (Question) object);
+                }
+                return false;
+        }
+    }
+
+    private boolean readQuestionField(JsonParser parser, String field, Question object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.ONE_OF:
+                object.setOneOf(readList(parser));
+                return true;
+            case ActivityStreamsFields.ANY_OF:
+                object.setAnyOf(readList(parser));
+                return true;
+            case ActivityStreamsFields.CLOSED:
+                object.setClosed(readInstant(parser, field));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean readCollectionField(JsonParser parser, String field, BaseCollection object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.TOTAL_ITEMS:
+                if (isInt(parser)) {
+                    object.setTotalItemsAsInt(parser.getIntValue());
+                } else {
+                    object.setTotalItems(readInteger(parser, field));
+                }
+                return true;
+            case ActivityStreamsFields.CURRENT:
+                object.setCurrent(readString(parser));
+                return true;
+            case ActivityStreamsFields.FIRST:
+                setFirst(object, readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.LAST:
+                object.setLast(readString(parser));
+                return true;
+            case ActivityStreamsFields.ITEMS:
+                object.setItems(readList(parser));
+                return true;
+            case ActivityStreamsFields.ORDERED_ITEMS:
+                if (object instanceof OrderedCollection) {
+                    ((OrderedCollection) object).setOrderedItems(readList(parser));
+                    return true;
+                } else if (object instanceof OrderedCollectionPage) {
+                    ((OrderedCollectionPage) object).setOrderedItems(readList(parser));
+                    return true;
+                }
+                return false;
+            default:
+                if (object instanceof CollectionPage) {
+                    return readPageField(parser, field, (CollectionPage) object);
+                }
+                return false;
+        }
+    }
+
+    private boolean readPageField(JsonParser parser, String field, CollectionPage object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.PART_OF:
+                object.setPartOf(readString(parser));
+                return true;
+            case ActivityStreamsFields.NEXT:
+                object.setNext(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.PREV:
+                object.setPrev(readObjectValue(parser));
+                return true;
+            case ActivityStreamsFields.START_INDEX:
+                if (object instanceof OrderedCollectionPage) {
+                    OrderedCollectionPage page = (OrderedCollectionPage) object;
+                    if (isInt(parser)) {
+                        page.setStartIndexAsInt(parser.getIntValue());
+                    } else {
+                        page.setStartIndex(readInteger(parser, field));
+                    }
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private boolean readPlaceField(JsonParser parser, String field, Place object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.UNITS:
+                object.setUnits(readString(parser));
+                return true;
+            case ActivityStreamsFields.ACCURACY:
+                if (parser.currentToken().isNumeric()) {
+                    object.setAccuracyAsDouble(parser.getDoubleValue());
+                } else {
+                    object.setAccuracy(readDouble(parser, field));
+                }
+                return true;
+            case ActivityStreamsFields.ALTITUDE:
+                if (parser.currentToken().isNumeric()) {
+                    object.setAltitudeAsDouble(parser.getDoubleValue());
+                } else {
+                    object.setAltitude(readDouble(parser, field));
+                }
+                return true;
+            case ActivityStreamsFields.LATITUDE:
+                if (parser.currentToken().isNumeric()) {
+                    object.setLatitudeAsDouble(parser.getDoubleValue());
+                } else {
+                    object.setLatitude(readDouble(parser, field));
+                }
+                return true;
+            case ActivityStreamsFields.LONGITUDE:
+                if (parser.currentToken().isNumeric()) {
+                    object.setLongitudeAsDouble(parser.getDoubleValue());
+                } else {
+                    object.setLongitude(readDouble(parser, field));
+                }
+                return true;
+            case ActivityStreamsFields.RADIUS:
+                if (parser.currentToken().isNumeric()) {
+                    object.setRadiusAsDouble(parser.getDoubleValue());
+                } else {
+                    object.setRadius(readDouble(parser, field));
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean readTombstoneField(JsonParser parser, String field, Tombstone object) throws IOException {
+        switch (field) {
+            case ActivityStreamsFields.FORMER_TYPE:
+                object.setFormerType(ObjectType.parse(readString(parser)));
+                return true;
+            case ActivityStreamsFields.DELETED:
+                object.setDeleted(readInstant(parser, field));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reads a single nested object: a JSON object, or a bare URL which becomes a {@link Link}.
+     */
+    protected ActivityStreamsObject readObjectValue(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                return readObject(parser);
+            case VALUE_STRING:
+                if (linkCache != null) {
+                    return linkCache.get(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                }
+                return createActivityStreamObject(readUrl(parser));
+            default:
+                parser.skipChildren();
+                return null;
+        }
+    }
+
+    protected List<ActivityStreamsObject> readList(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+            case VALUE_STRING:
+                return Collections.singletonList(readObjectValue(parser));
+            case START_ARRAY:
+                List<ActivityStreamsObject> items = new ArrayList<>();
+                JsonStreamContext list = parser.getParsingContext();
+                String field = list.getParent() == null ? null : list.getParent().getCurrentName();
+                for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY && token != null; token = parser.nextToken()) {
+                    if (token == JsonToken.START_OBJECT || token == JsonToken.VALUE_STRING) {
+                        try {
+                            items.add(readObjectValue(parser));
+                        } catch (IllegalArgumentException | DateTimeException e) {
+                            if (!recordProblem(ParseError.INVALID_ITEM, field)) {
+                                throw e;
+                            }
+                            while (parser.getParsingContext() != list) {
+                                if (parser.nextToken() == null) {
+                                    return items;
+                                }
+                            }
+                        }
+                    } else {
+                        // numbers, nulls and nested arrays are not objects, leave them out
+                        recordProblem(ParseError.INVALID_ITEM, field);
+                        parser.skipChildren();
+                    }
+                }
+                return items;
+            case VALUE_NULL:
+                return Collections.emptyList();
+            default:
+                recordProblem(ParseError.INVALID_ITEM, parser.getCurrentName());
+                parser.skipChildren();
+                return Collections.emptyList();
+        }
+    }
+
+    protected static String readString(JsonParser parser) throws IOException {
+        return readString(parser, null);
+    }
+
+    /**
+     * Reads a value that is typically a URL repeated across many objects, through the canonicalizer
+     * when one is configured.
+     */
+    protected String readUrl(JsonParser parser) throws IOException {
+        if (canonicalizer != null && parser.currentToken() == JsonToken.VALUE_STRING) {
+            return canonicalizer.canonicalize(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        return readString(parser);
+    }
+
+    /**
+     * Reads {@code @context}, returning the shared constant for the default context without creating
+     * a String for it.
+     */
+    protected String readContext(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING && StringCanonicalizer.matches(ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())) {
+            return ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS;
+        }
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return readUrl(parser);
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY && parser.currentToken() != JsonToken.START_OBJECT) {
+            return readString(parser, ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS);
+        }
+        String context = ParseUtils.toJson(parser);
+        // extended contexts are rendered from a structure, keep one copy of each rendering
+        return canonicalizer == null ? context : canonicalizer.canonicalize(context);
+    }
+
+    /**
+     * Reads the current value as text the same way {@code ParseUtils.strValue} renders values of the
+     * untyped {@code Map}: scalars as their Java value, structures through their {@code toString()}.
+     */
+    protected static String readString(JsonParser parser, String defaultValue) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return String.valueOf(parser.getNumberValue());
+            case START_OBJECT:
+            case START_ARRAY:
+                if (parser.getCodec() != null) {
+                    return String.valueOf(parser.readValueAs(Object.class));
+                }
+                parser.skipChildren();
+                return defaultValue;
+            default:
+                return defaultValue;
+        }
+    }
+
+    protected static Instant readInstant(JsonParser parser, String field) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return toInstant(CharBuffer.wrap(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()), field);
+        }
+        String value = readString(parser);
+        return value == null ? null : toInstant(value, field);
+    }
+
+    protected static Integer readInteger(JsonParser parser, String field) throws IOException {
+        if (isInt(parser)) {
+            return parser.getIntValue();
+        }
+        return toInteger(readString(parser), field);
+    }
+
+    protected static Double readDouble(JsonParser parser, String field) throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        return toDouble(readString(parser), field);
+    }
+
+    /**
+     * Whether the current token is an integer that fits in an {@code int}.
+     */
+    protected static boolean isInt(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT;
+    }
+}
@@ -0,0 +1,223 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ObjectType;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Drives an {@link ActivityStreamsVisitor} from the token stream of one document.
+ * <p>
+ * Scalar properties that appear before {@code type} are copied into arrays reused for the whole
+ * document until the type is known; only an object or array value before {@code type} is buffered
+ * in a {@link TokenBuffer}, like {@link StreamingActivityPubParser} does.
+ */
+final class VisitingReader {
+
+    /**
+     * Properties whose string values are references to other objects.
+     */
+    private static final Set<String> LINK_FIELDS = new HashSet<>(Arrays.asList(
+            ActivityStreamsFields.ACTOR, ActivityStreamsFields.ANY_OF, ActivityStreamsFields.ATTACHMENT,
+            ActivityStreamsFields.ATTRIBUTED_TO, ActivityStreamsFields.AUDIENCE, ActivityStreamsFields.BCC,
+            ActivityStreamsFields.BTO, ActivityStreamsFields.CC, ActivityStreamsFields.CONTEXT,
+            ActivityStreamsFields.CURRENT, ActivityStreamsFields.FIRST, ActivityStreamsFields.GENERATOR,
+            ActivityStreamsFields.ICON, ActivityStreamsFields.IMAGE, ActivityStreamsFields.IN_REPLY_TO,
+            ActivityStreamsFields.INSTRUMENT, ActivityStreamsFields.ITEMS, ActivityStreamsFields.LAST,
+            ActivityStreamsFields.LOCATION, ActivityStreamsFields.NEXT, ActivityStreamsFields.OBJECT,
+            ActivityStreamsFields.ONE_OF, ActivityStreamsFields.ORDERED_ITEMS, ActivityStreamsFields.ORIGIN,
+            ActivityStreamsFields.PART_OF, ActivityStreamsFields.PREV, ActivityStreamsFields.PREVIEW,
+            ActivityStreamsFields.REPLIES, ActivityStreamsFields.RESULT, ActivityStreamsFields.TAG,
+            ActivityStreamsFields.TARGET, ActivityStreamsFields.TO, ActivityStreamsFields.URL));
+
+    private final ActivityStreamsVisitor visitor;
+
+    private final Text text = new Text();
+
+    private String[] pendingNames = new String[8];
+
+    private boolean[] pendingStrings = new boolean[8];
+
+    private int[] pendingEnds = new int[8];
+
+    private char[] pendingChars = new char[256];
+
+    private int pendingCount;
+
+    VisitingReader(ActivityStreamsVisitor visitor) {
+        this.visitor = visitor;
+    }
+
+    /**
+     * Visits the object the parser is positioned on, or the next one if it has no current token.
+     */
+    void visit(JsonParser parser) throws IOException {
+        JsonToken token = parser.hasCurrentToken() ? parser.currentToken() : parser.nextToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an ActivityStreams object but found " + token);
+        }
+        readObject(parser, null);
+    }
+
+    private void readObject(JsonParser parser, String field) throws IOException {
+        TokenBuffer buffered = null;
+        ObjectType type = ObjectType.Custom;
+        String customType = null;
+        boolean typeFound = false;
+        pendingCount = 0;
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.currentName();
+            token = parser.nextToken();
+            if (ActivityStreamsFields.TYPE.equals(name)) {
+                if (token == JsonToken.VALUE_STRING) {
+                    type = ObjectType.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    customType = type == ObjectType.Custom ? parser.getText() : null;
+                } else {
+                    parser.skipChildren();
+                }
+                typeFound = true;
+                break;
+            }
+            if (buffered == null && token.isScalarValue()) {
+                if (token != JsonToken.VALUE_NULL) {
+                    addPending(name, parser);
+                }
+                continue;
+            }
+            if (buffered == null) {
+                buffered = new TokenBuffer(parser);
+            }
+            buffered.writeFieldName(name);
+            buffered.copyCurrentStructure(parser);
+        }
+
+        visitor.onObjectStart(type, field);
+        if (customType != null) {
+            visitor.onField(ActivityStreamsFields.TYPE, customType);
+        }
+        int start = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            text.set(pendingChars, start, pendingEnds[i] - start);
+            report(pendingNames[i], pendingStrings[i], type, field);
+            start = pendingEnds[i];
+        }
+        pendingCount = 0;
+        if (buffered != null) {
+            try (JsonParser replay = buffered.asParser(parser)) {
+                readFields(replay, type, field);
+            }
+        }
+        if (typeFound) {
+            readFields(parser, type, field);
+        }
+        visitor.onObjectEnd(type, field);
+    }
+
+    private void readFields(JsonParser parser, ObjectType type, String field) throws IOException {
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.currentName();
+            parser.nextToken();
+            readValue(parser, name, type, field);
+        }
+    }
+
+    private void readValue(JsonParser parser, String name, ObjectType type, String field) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                readObject(parser, name);
+                break;
+            case START_ARRAY:
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    readValue(parser, name, type, field);
+                }
+                break;
+            case VALUE_NULL:
+                break;
+            default:
+                text.set(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                report(name, parser.currentToken() == JsonToken.VALUE_STRING, type, field);
+        }
+    }
+
+    /**
+     * Reports the scalar in {@link #text} as a property of an object of {@code type} held by {@code field}.
+     */
+    private void report(String name, boolean string, ObjectType type, String field) {
+        if (string && ActivityStreamsFields.HREF.equals(name) && (type == ObjectType.Link || type == ObjectType.Mention)) {
+            visitor.onLink(field, text);
+        } else if (string && LINK_FIELDS.contains(name)) {
+            visitor.onLink(name, text);
+        } else {
+            visitor.onField(name, text);
+        }
+    }
+
+    private void addPending(String name, JsonParser parser) throws IOException {
+        if (pendingCount == pendingNames.length) {
+            pendingNames = Arrays.copyOf(pendingNames, pendingCount * 2);
+            pendingStrings = Arrays.copyOf(pendingStrings, pendingCount * 2);
+            pendingEnds = Arrays.copyOf(pendingEnds, pendingCount * 2);
+        }
+        int start = pendingCount == 0 ? 0 : pendingEnds[pendingCount - 1];
+        int length = parser.getTextLength();
+        if (start + length > pendingChars.length) {
+            pendingChars = Arrays.copyOf(pendingChars, Math.max(pendingChars.length * 2, start + length));
+        }
+        System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), pendingChars, start, length);
+        pendingNames[pendingCount] = name;
+        pendingStrings[pendingCount] = parser.currentToken() == JsonToken.VALUE_STRING;
+        pendingEnds[pendingCount] = start + length;
+        pendingCount++;
+    }
+
+    /**
+     * View of a value in a character buffer, reused for every event.
+     */
+    private static final class Text implements CharSequence {
+
+        private char[] chars;
+
+        private int offset;
+
+        private int length;
+
+        void set(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index + ", length " + length);
+            }
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.teacai.activitypub.codec;
+
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.AsyncActivityPubParser;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spring {@link Decoder} that parses request bodies chunk by chunk with an {@link AsyncActivityPubParser},
+ * so a slow peer costs neither a blocked thread nor a fully buffered body.
+ * <p>
+ * {@link #decode(Publisher, ResolvableType, MimeType, Map)} emits every object of newline delimited or
+ * array bodies as soon as it is complete, {@link #decodeToMono} expects exactly one object. Each buffer
+ * is released once it has been fed, or when it is discarded unread because decoding was cancelled or
+ * failed.
+ */
+public class ActivityStreamsDecoder implements Decoder<ActivityStreamsObject> {
+
+    public static final MimeType APPLICATION_ACTIVITY_JSON = new MimeType("application", "activity+json");
+
+    public static final MimeType APPLICATION_LD_JSON = new MimeType("application", "ld+json");
+
+    public static final MimeType APPLICATION_NDJSON = new MimeType("application", "x-ndjson");
+
+    private static final List<MimeType> MIME_TYPES = Collections.unmodifiableList(Arrays.asList(
+            APPLICATION_ACTIVITY_JSON, APPLICATION_LD_JSON, MimeTypeUtils.APPLICATION_JSON, APPLICATION_NDJSON));
+
+    private final ActivityPubParser parser;
+
+    private int maxInMemorySize = 256 * 1024;
+
+    public ActivityStreamsDecoder(ActivityPubParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Limit on the bytes a single object may span, -1 for no limit. Exceeding it fails decoding with a
+     * {@link DataBufferLimitException}. Defaults to 256K like Spring's Jackson codecs.
+     */
+    public void setMaxInMemorySize(int maxInMemorySize) {
+        this.maxInMemorySize = maxInMemorySize;
+    }
+
+    public int getMaxInMemorySize() {
+        return maxInMemorySize;
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        if (!ActivityStreamsObject.class.isAssignableFrom(elementType.toClass())) {
+            return false;
+        }
+        if (mimeType == null) {
+            return true;
+        }
+        for (MimeType supported : MIME_TYPES) {
+            if (supported.isCompatibleWith(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Flux<ActivityStreamsObject> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                              MimeType mimeType, Map<String, Object> hints) {
+        return Flux.using(
+                () -> new AsyncActivityPubParser(parser, true),
+                asyncParser -> Flux.from(inputStream)
+                        .concatMapIterable(buffer -> feed(asyncParser, buffer))
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                        .concatWith(Flux.defer(() -> Flux.fromIterable(endOfInput(asyncParser)))),
+                this::close);
+    }
+
+    @Override
+    public Mono<ActivityStreamsObject> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                                    MimeType mimeType, Map<String, Object> hints) {
+        return decode(inputStream, elementType, mimeType, hints).singleOrEmpty();
+    }
+
+    @Override
+    public ActivityStreamsObject decode(DataBuffer buffer, ResolvableType targetType,
+                                        MimeType mimeType, Map<String, Object> hints) throws DecodingException {
+        try {
+            checkLimit(buffer.readableByteCount());
+            return parser.parse(buffer);
+        } catch (IOException e) {
+            throw new DecodingException("ActivityStreams decoding error: " + e.getMessage(), e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    private List<ActivityStreamsObject> feed(AsyncActivityPubParser asyncParser, DataBuffer buffer) {
+        try (DataBuffer.ByteBufferIterator byteBuffers = buffer.readableByteBuffers()) {
+            List<ActivityStreamsObject> completed = Collections.emptyList();
+            while (byteBuffers.hasNext()) {
+                List<ActivityStreamsObject> objects = asyncParser.feed(byteBuffers.next());
+                if (completed.isEmpty()) {
+                    completed = objects;
+                } else if (!objects.isEmpty()) {
+                    completed = new ArrayList<>(completed);
+                    completed.addAll(objects);
+                }
+            }
+            checkLimit(asyncParser.getBufferedBytes());
+            return completed;
+        } catch (IOException e) {
+            throw new DecodingException("ActivityStreams decoding error: " + e.getMessage(), e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private List<ActivityStreamsObject> endOfInput(AsyncActivityPubParser asyncParser) {
+        try {
+            return asyncParser.endOfInput();
+        } catch (IOException e) {
+            throw new DecodingException("ActivityStreams decoding error: " + e.getMessage(), e);
+        }
+    }
+
+    private void checkLimit(long bytes) {
+        if (maxInMemorySize >= 0 && bytes > maxInMemorySize) {
+            throw new DataBufferLimitException("Exceeded limit on max bytes per ActivityStreams object: " + maxInMemorySize);
+        }
+    }
+
+    private void close(AsyncActivityPubParser asyncParser) {
+        try {
+            asyncParser.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+}
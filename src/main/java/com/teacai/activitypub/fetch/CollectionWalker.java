@@ -0,0 +1,227 @@
+package com.teacai.activitypub.fetch;
+
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseCollection;
+import com.teacai.activitypub.model.CollectionPage;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.OrderedCollection;
+import com.teacai.activitypub.model.OrderedCollectionPage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the items of a collection across its {@code first} / {@code next} page chain.
+ * <p>
+ * Items embedded in the collection itself come first, followed by the items of each page. Pages are
+ * fetched on {@code executor} ahead of the consumer: while one page is being consumed up to
+ * {@code maxPagesInMemory - 1} following pages are fetched, so at most {@code maxPagesInMemory}
+ * pages are held at a time. A page that was already visited ends the walk.
+ */
+public class CollectionWalker {
+
+    private final ObjectFetcher fetcher;
+
+    private final Executor executor;
+
+    private final int maxPagesInMemory;
+
+    public CollectionWalker(ObjectFetcher fetcher, Executor executor, int maxPagesInMemory) {
+        if (maxPagesInMemory <= 0) {
+            throw new IllegalArgumentException("maxPagesInMemory must be positive");
+        }
+        this.fetcher = fetcher;
+        this.executor = executor;
+        this.maxPagesInMemory = maxPagesInMemory;
+    }
+
+    /**
+     * Fetch errors are thrown from {@code hasNext()}, I/O errors as {@link UncheckedIOException}.
+     * Closing the iterator cancels pages that are still being fetched.
+     */
+    public PageIterator iterator(BaseCollection collection) {
+        return new PageIterator(collection);
+    }
+
+    /**
+     * Closing the returned stream cancels pages that are still being fetched.
+     */
+    public Stream<ActivityStreamsObject> stream(BaseCollection collection) {
+        PageIterator iterator = iterator(collection);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    protected static List<ActivityStreamsObject> itemsOf(BaseCollection collection) {
+        List<ActivityStreamsObject> items = null;
+        if (collection instanceof OrderedCollection) {
+            items = ((OrderedCollection) collection).getOrderedItems();
+        } else if (collection instanceof OrderedCollectionPage) {
+            items = ((OrderedCollectionPage) collection).getOrderedItems();
+        }
+        if (items == null || items.isEmpty()) {
+            items = collection.getItems();
+        }
+        return items == null ? Collections.emptyList() : items;
+    }
+
+    /**
+     * @return the page embedded as {@code next} or {@code first}, or {@code null} if there is none or
+     * it has to be fetched
+     */
+    private static BaseCollection embeddedNext(BaseCollection page) {
+        if (!(page instanceof CollectionPage)) {
+            return page.getFirstPage();
+        }
+        ActivityStreamsObject next = ((CollectionPage) page).getNext();
+        return next instanceof BaseCollection ? (BaseCollection) next : null;
+    }
+
+    /**
+     * @return the URL of the following page, or {@code null} if there is none or it is not an http(s) URL
+     */
+    private static String nextId(BaseCollection page) {
+        String id;
+        if (!(page instanceof CollectionPage)) {
+            // the collection itself, which only links to its first page
+            id = page.getFirst();
+        } else {
+            ActivityStreamsObject next = ((CollectionPage) page).getNext();
+            id = next instanceof Link ? ((Link) next).getHref() : next == null ? null : next.getId();
+        }
+        return id != null && (id.startsWith("https://") || id.startsWith("http://")) ? id : null;
+    }
+
+    public class PageIterator implements Iterator<ActivityStreamsObject>, Closeable {
+
+        private final Set<String> visited = ConcurrentHashMap.newKeySet();
+
+        private final Deque<CompletableFuture<BaseCollection>> pages = new ArrayDeque<>();
+
+        private CompletableFuture<BaseCollection> last;
+
+        private Iterator<ActivityStreamsObject> current;
+
+        private int pagesRead;
+
+        PageIterator(BaseCollection collection) {
+            if (collection.getId() != null) {
+                visited.add(collection.getId());
+            }
+            this.current = itemsOf(collection).iterator();
+            this.last = CompletableFuture.completedFuture(collection);
+            fillAhead(maxPagesInMemory - 1);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                fillAhead(1);
+                CompletableFuture<BaseCollection> next = pages.poll();
+                if (next == null) {
+                    return false;
+                }
+                BaseCollection page;
+                try {
+                    page = next.join();
+                } catch (CompletionException e) {
+                    close();
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw e;
+                }
+                if (page == null) {
+                    close();
+                    return false;
+                }
+                pagesRead++;
+                current = itemsOf(page).iterator();
+                fillAhead(maxPagesInMemory - 1);
+            }
+            return true;
+        }
+
+        @Override
+        public ActivityStreamsObject next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        /**
+         * Number of pages consumed so far, not counting the collection itself.
+         */
+        public int getPagesRead() {
+            return pagesRead;
+        }
+
+        /**
+         * Queues up to {@code count} pages behind the one being consumed, each fetched once its
+         * predecessor has arrived.
+         */
+        private void fillAhead(int count) {
+            while (last != null && pages.size() < count) {
+                last = last.thenApplyAsync(this::following, executor);
+                pages.add(last);
+            }
+        }
+
+        private BaseCollection following(BaseCollection page) {
+            if (page == null) {
+                return null;
+            }
+            BaseCollection embedded = embeddedNext(page);
+            if (embedded != null) {
+                return embedded.getId() == null || visited.add(embedded.getId()) ? embedded : null;
+            }
+            String id = nextId(page);
+            if (id == null || !visited.add(id)) {
+                return null;
+            }
+            ActivityStreamsObject fetched;
+            try {
+                fetched = fetcher.fetch(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (fetched == null) {
+                return null;
+            }
+            if (!(fetched instanceof BaseCollection)) {
+                throw new UncheckedIOException(new IOException("Expected a collection page at " + id
+                        + " but found " + fetched.getType()));
+            }
+            return (BaseCollection) fetched;
+        }
+
+        @Override
+        public void close() {
+            last = null;
+            pages.forEach(page -> page.cancel(true));
+            pages.clear();
+            current = Collections.emptyIterator();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.teacai.activitypub.fetch;
+
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.Link;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.teacai.activitypub.util.ParseUtils.isBareLink;
+
+/**
+ * Replaces the links the parsers create for properties given as a bare URL with the objects they
+ * point to.
+ * <p>
+ * Placeholders are resolved level by level: all placeholders reachable from the root are fetched
+ * concurrently on {@code executor}, then those of the fetched objects, up to {@code maxDepth} levels
+ * and {@code maxFetches} fetches per call. Concurrent requests for the same id, also from other calls,
+ * share one fetch. An object is never replaced into a position where it would create a cycle, so
+ * links back to the root or to an earlier level stay links. Instances are thread-safe.
+ * <p>
+ * The tree of {@code root} is changed in place, but fetched objects are not: each call inserts its
+ * own {@link ActivityStreamsObject#copy() copies} of them, and of the objects embedded in those, so
+ * the instances a fetcher returns may be shared, cached or frozen.
+ */
+public class Dereferencer {
+
+    public static final Set<String> DEFAULT_PROPERTIES = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            ActivityStreamsFields.ACTOR, ActivityStreamsFields.OBJECT, ActivityStreamsFields.TARGET,
+            ActivityStreamsFields.IN_REPLY_TO, ActivityStreamsFields.ATTRIBUTED_TO)));
+
+    /**
+     * Outcome of one {@link #dereference(ActivityStreamsObject)} call.
+     */
+    public static final class Result {
+        private final int resolved;
+        private final int skipped;
+        private final Map<String, Throwable> failures;
+
+        Result(int resolved, int skipped, Map<String, Throwable> failures) {
+            this.resolved = resolved;
+            this.skipped = skipped;
+            this.failures = failures;
+        }
+
+        /**
+         * Number of placeholders replaced.
+         */
+        public int getResolved() {
+            return resolved;
+        }
+
+        /**
+         * Number of distinct ids left unresolved because the fetch limit was reached.
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Ids whose fetch failed, their placeholders are left in place.
+         */
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * Placeholders found in one property of one object.
+     */
+    private static final class Slot {
+        final ActivityStreamsObject owner;
+        final String property;
+        final List<ActivityStreamsObject> values;
+
+        Slot(ActivityStreamsObject owner, String property, List<ActivityStreamsObject> values) {
+            this.owner = owner;
+            this.property = property;
+            this.values = values;
+        }
+    }
+
+    private final ObjectFetcher fetcher;
+
+    private final Executor executor;
+
+    private final Set<String> properties;
+
+    private final int maxDepth;
+
+    private final int maxFetches;
+
+    private final Map<String, CompletableFuture<ActivityStreamsObject>> inFlight = new ConcurrentHashMap<>();
+
+    public Dereferencer(ObjectFetcher fetcher, Executor executor, int maxDepth, int maxFetches) {
+        this(fetcher, executor, DEFAULT_PROPERTIES, maxDepth, maxFetches);
+    }
+
+    /**
+     * @param properties names of the properties whose placeholders are resolved, out of
+     *                   {@code actor}, {@code attributedTo}, {@code inReplyTo}, {@code object},
+     *                   {@code target}, {@code result}, {@code origin}, {@code instrument},
+     *                   {@code context}, {@code attachment}, {@code tag}, {@code generator} and
+     *                   {@code location}
+     */
+    public Dereferencer(ObjectFetcher fetcher, Executor executor, Set<String> properties, int maxDepth, int maxFetches) {
+        if (maxDepth < 0 || maxFetches < 0) {
+            throw new IllegalArgumentException("maxDepth and maxFetches must not be negative");
+        }
+        this.fetcher = fetcher;
+        this.executor = executor;
+        this.properties = properties;
+        this.maxDepth = maxDepth;
+        this.maxFetches = maxFetches;
+    }
+
+    /**
+     * Resolves the placeholders of {@code root} and of the objects embedded in it, in place.
+     */
+    public Result dereference(ActivityStreamsObject root) throws InterruptedException {
+        Set<String> known = new HashSet<>();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        int resolved = 0;
+        int skipped = 0;
+        int fetches = 0;
+        List<ActivityStreamsObject> level = Collections.singletonList(root);
+        for (int depth = 1; depth <= maxDepth && !level.isEmpty(); depth++) {
+            List<Slot> slots = new ArrayList<>();
+            collect(level, depth > 1, known, slots);
+
+            Map<String, CompletableFuture<ActivityStreamsObject>> pending = new LinkedHashMap<>();
+            for (Slot slot : slots) {
+                for (ActivityStreamsObject value : slot.values) {
+                    String id = isBareLink(value) ? ((Link) value).getHref() : null;
+                    if (id == null || known.contains(id) || pending.containsKey(id)) {
+                        continue;
+                    }
+                    if (fetches < maxFetches) {
+                        pending.put(id, fetch(id));
+                        fetches++;
+                    } else {
+                        pending.put(id, null);
+                        skipped++;
+                    }
+                }
+            }
+
+            Map<String, ActivityStreamsObject> fetched = new LinkedHashMap<>();
+            for (Map.Entry<String, CompletableFuture<ActivityStreamsObject>> entry : pending.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                try {
+                    ActivityStreamsObject object = entry.getValue().get();
+                    if (object != null) {
+                        fetched.put(entry.getKey(), object.copy());
+                    }
+                } catch (ExecutionException e) {
+                    failures.put(entry.getKey(), e.getCause());
+                }
+            }
+            known.addAll(pending.keySet());
+
+            for (Slot slot : slots) {
+                resolved += replace(slot, fetched);
+            }
+            level = new ArrayList<>(fetched.values());
+        }
+        return new Result(resolved, skipped, failures);
+    }
+
+    /**
+     * Starts a fetch of {@code id}, or joins the one already running.
+     */
+    private CompletableFuture<ActivityStreamsObject> fetch(String id) {
+        CompletableFuture<ActivityStreamsObject> running = inFlight.get(id);
+        if (running != null) {
+            return running;
+        }
+        CompletableFuture<ActivityStreamsObject> future = new CompletableFuture<>();
+        running = inFlight.putIfAbsent(id, future);
+        if (running != null) {
+            return running;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(fetcher.fetch(id));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(id, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(id, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Finds the properties holding placeholders in {@code objects} and in the objects embedded in them,
+     * registering the ids of all objects found as known. Embedded objects that may be shared, those of
+     * fetched objects and frozen ones, are replaced by copies first.
+     */
+    private void collect(List<ActivityStreamsObject> objects, boolean fetched, Set<String> known, List<Slot> slots) {
+        Set<ActivityStreamsObject> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<ActivityStreamsObject> queue = new ArrayList<>(objects);
+        for (int i = 0; i < queue.size(); i++) {
+            ActivityStreamsObject object = queue.get(i);
+            if (!visited.add(object)) {
+                continue;
+            }
+            if (object.getId() != null) {
+                known.add(object.getId());
+            }
+            for (String property : properties) {
+                List<ActivityStreamsObject> values = get(object, property);
+                boolean placeholders = false;
+                boolean copied = false;
+                for (int j = 0; j < values.size(); j++) {
+                    ActivityStreamsObject value = values.get(j);
+                    if (isBareLink(value)) {
+                        placeholders = true;
+                    } else if (value instanceof BaseObject) {
+                        if (fetched || value.isFrozen()) {
+                            if (!copied) {
+                                values = new ArrayList<>(values);
+                                copied = true;
+                            }
+                            value = value.copy();
+                            values.set(j, value);
+                        }
+                        queue.add(value);
+                    }
+                }
+                if (copied) {
+                    set(object, property, values);
+                }
+                if (placeholders) {
+                    slots.add(new Slot(object, property, values));
+                }
+            }
+        }
+    }
+
+    private static int replace(Slot slot, Map<String, ActivityStreamsObject> fetched) {
+        List<ActivityStreamsObject> values = new ArrayList<>(slot.values);
+        int replaced = 0;
+        for (int i = 0; i < values.size(); i++) {
+            ActivityStreamsObject value = values.get(i);
+            ActivityStreamsObject object = isBareLink(value) ? fetched.get(((Link) value).getHref()) : null;
+            if (object != null) {
+                values.set(i, object);
+                replaced++;
+            }
+        }
+        if (replaced > 0) {
+            set(slot.owner, slot.property, values);
+        }
+        return replaced;
+    }
+
+    private static List<ActivityStreamsObject> get(ActivityStreamsObject object, String property) {
+        if (!(object instanceof BaseObject)) {
+            return Collections.emptyList();
+        }
+        BaseObject baseObject = (BaseObject) object;
+        switch (property) {
+            case ActivityStreamsFields.ACTOR:
+                return nonNull(baseObject.getActors());
+            case ActivityStreamsFields.IN_REPLY_TO:
+                return nonNull(baseObject.getInReplyTo());
+            case ActivityStreamsFields.ATTACHMENT:
+                return nonNull(baseObject.getAttachmentList());
+            case ActivityStreamsFields.TAG:
+                return nonNull(baseObject.getTagList());
+            case ActivityStreamsFields.ATTRIBUTED_TO:
+                return single(baseObject.getAttributedTo());
+            case ActivityStreamsFields.CONTEXT:
+                return single(baseObject.getContext());
+            case ActivityStreamsFields.GENERATOR:
+                return single(baseObject.getGenerator());
+            case ActivityStreamsFields.LOCATION:
+                return single(baseObject.getLocation());
+            default:
+                break;
+        }
+        if (object instanceof Activity) {
+            Activity activity = (Activity) object;
+            switch (property) {
+                case ActivityStreamsFields.OBJECT:
+                    return nonNull(activity.getObjects());
+                case ActivityStreamsFields.TARGET:
+                    return nonNull(activity.getTargets());
+                case ActivityStreamsFields.RESULT:
+                    return single(activity.getResult());
+                case ActivityStreamsFields.ORIGIN:
+                    return single(activity.getOrigin());
+                case ActivityStreamsFields.INSTRUMENT:
+                    return single(activity.getInstrument());
+                default:
+                    break;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static void set(ActivityStreamsObject object, String property, List<ActivityStreamsObject> values) {
+        BaseObject baseObject = (BaseObject) object;
+        switch (property) {
+            case ActivityStreamsFields.ACTOR:
+                baseObject.setActors(values);
+                return;
+            case ActivityStreamsFields.IN_REPLY_TO:
+                baseObject.setInReplyTo(values);
+                return;
+            case ActivityStreamsFields.ATTACHMENT:
+                baseObject.setAttachmentList(values);
+                return;
+            case ActivityStreamsFields.TAG:
+                baseObject.setTagList(values);
+                return;
+            case ActivityStreamsFields.ATTRIBUTED_TO:
+                baseObject.setAttributedTo(values.get(0));
+                return;
+            case ActivityStreamsFields.CONTEXT:
+                baseObject.setContext(values.get(0));
+                return;
+            case ActivityStreamsFields.GENERATOR:
+                baseObject.setGenerator(values.get(0));
+                return;
+            case ActivityStreamsFields.LOCATION:
+                baseObject.setLocation(values.get(0));
+                return;
+            default:
+                break;
+        }
+        Activity activity = (Activity) object;
+        switch (property) {
+            case ActivityStreamsFields.OBJECT:
+                activity.setObjects(values);
+                return;
+            case ActivityStreamsFields.TARGET:
+                activity.setTargets(values);
+                return;
+            case ActivityStreamsFields.RESULT:
+                activity.setResult(values.get(0));
+                return;
+            case ActivityStreamsFields.ORIGIN:
+                activity.setOrigin(values.get(0));
+                return;
+            case ActivityStreamsFields.INSTRUMENT:
+                activity.setInstrument(values.get(0));
+                return;
+            default:
+                throw new IllegalArgumentException("Unsupported property " + property);
+        }
+    }
+
+    private static List<ActivityStreamsObject> nonNull(List<ActivityStreamsObject> values) {
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    private static List<ActivityStreamsObject> single(ActivityStreamsObject value) {
+        return value == null ? Collections.emptyList() : Collections.singletonList(value);
+    }
+}
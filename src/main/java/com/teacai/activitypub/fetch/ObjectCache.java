@@ -0,0 +1,408 @@
+package com.teacai.activitypub.fetch;
+
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.Tombstone;
+import com.teacai.activitypub.util.InstantParser;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of fetched objects keyed by their id.
+ * <p>
+ * Eviction is segmented LRU: new entries enter a probation segment and move to a protected segment,
+ * holding up to 80% of the weight, when they are read again, so a burst of one-off objects cannot
+ * flush the ones that are read repeatedly. The cache is bounded both by number of entries and by
+ * total weight.
+ * <p>
+ * Entries expire with the heuristic HTTP caches use for responses with a {@code Last-Modified} date:
+ * an object is considered fresh for 10% of the time since it was last {@code updated} (or
+ * {@code published}), clamped to {@code [minTtl, maxTtl]}. Objects without either date get
+ * {@code minTtl}, tombstones {@code maxTtl}.
+ * <p>
+ * Reads never take a lock, they are recorded in a lossy buffer that is applied to the LRU order in
+ * batches. Concurrent loads of the same missing id share a single call to the loader.
+ * <p>
+ * Cached objects are {@link ActivityStreamsObject#freeze() frozen} when they are stored, since every
+ * reader gets the same instance; take a {@link ActivityStreamsObject#copy() copy} to change one.
+ */
+public class ObjectCache {
+
+    /**
+     * Relative cost of keeping an object in the cache, such as its serialized size.
+     */
+    @FunctionalInterface
+    public interface Weigher {
+        int weigh(ActivityStreamsObject object);
+    }
+
+    private static final int READ_BUFFER_SIZE = 128;
+
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private static final int PROBATION = 0;
+
+    private static final int PROTECTED = 1;
+
+    private static final class Node {
+        final String key;
+        final ActivityStreamsObject value;
+        final int weight;
+        final long expiresAt;
+        int segment = PROBATION;
+        boolean unlinked;
+        Node prev;
+        Node next;
+
+        Node(String key, ActivityStreamsObject value, int weight, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Access ordered list, least recently used first.
+     */
+    private static final class Segment {
+        Node head;
+        Node tail;
+        long weight;
+
+        void add(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+    }
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    private final Weigher weigher;
+
+    private final Duration minTtl;
+
+    private final Duration maxTtl;
+
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Node> data = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, CompletableFuture<ActivityStreamsObject>> loading = new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final Segment probation = new Segment();
+
+    private final Segment protectedSegment = new Segment();
+
+    private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+    private final AtomicLong readCount = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<Node> removals = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    public ObjectCache(int maxEntries, Duration minTtl, Duration maxTtl) {
+        this(maxEntries, maxEntries, object -> 1, minTtl, maxTtl);
+    }
+
+    public ObjectCache(int maxEntries, long maxWeight, Weigher weigher, Duration minTtl, Duration maxTtl) {
+        this(maxEntries, maxWeight, weigher, minTtl, maxTtl, Clock.systemUTC());
+    }
+
+    ObjectCache(int maxEntries, long maxWeight, Weigher weigher, Duration minTtl, Duration maxTtl, Clock clock) {
+        if (maxEntries <= 0 || maxWeight <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxWeight must be positive");
+        }
+        if (minTtl.compareTo(maxTtl) > 0) {
+            throw new IllegalArgumentException("minTtl must not exceed maxTtl");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.minTtl = minTtl;
+        this.maxTtl = maxTtl;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the cached object, or {@code null} if it is missing or expired
+     */
+    public ActivityStreamsObject getIfPresent(String id) {
+        Node node = data.get(id);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        if (node.expiresAt <= clock.millis()) {
+            if (data.remove(id, node)) {
+                expirations.increment();
+                removals.add(node);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        recordRead(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the cached object or loads it. Concurrent callers missing the same id wait for a single
+     * load; a loader failure is rethrown to all of them and nothing is cached.
+     */
+    public ActivityStreamsObject get(String id, ObjectFetcher loader) throws IOException {
+        ActivityStreamsObject cached = getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<ActivityStreamsObject> future = new CompletableFuture<>();
+        CompletableFuture<ActivityStreamsObject> running = loading.putIfAbsent(id, future);
+        if (running == null) {
+            try {
+                ActivityStreamsObject loaded = loader.fetch(id);
+                if (loaded != null) {
+                    put(id, loaded);
+                }
+                future.complete(loaded);
+                return loaded;
+            } catch (IOException | RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(id, future);
+            }
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + id);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UncheckedIOException(new IOException(cause));
+        }
+    }
+
+    /**
+     * Freezes {@code object} and caches it under its id. Objects without an id are ignored.
+     */
+    public void put(ActivityStreamsObject object) {
+        if (object.getId() != null) {
+            put(object.getId(), object);
+        }
+    }
+
+    private void put(String id, ActivityStreamsObject object) {
+        int weight = weigher.weigh(object);
+        if (weight > maxWeight) {
+            return;
+        }
+        Node node = new Node(id, object.freeze(), weight, expiresAt(object));
+        evictionLock.lock();
+        try {
+            drainBuffers();
+            Node previous = data.put(id, node);
+            if (previous != null) {
+                unlink(previous);
+            }
+            probation.add(node);
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidate(String id) {
+        Node node = data.remove(id);
+        if (node != null) {
+            removals.add(node);
+            tryDrain();
+        }
+    }
+
+    /**
+     * Fetcher that serves objects from this cache and loads misses through {@code delegate}, for use
+     * with {@link Dereferencer} and {@link CollectionWalker}.
+     */
+    public ObjectFetcher asFetcher(ObjectFetcher delegate) {
+        return id -> get(id, delegate);
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of entries removed to stay within the size and weight bounds.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    long expiresAt(ActivityStreamsObject object) {
+        long now = clock.millis();
+        Duration ttl;
+        if (object instanceof Tombstone) {
+            ttl = maxTtl;
+        } else {
+            Instant lastModified = lastModified(object);
+            if (lastModified == null) {
+                ttl = minTtl;
+            } else {
+                Duration age = Duration.ofMillis(Math.max(0, now - lastModified.toEpochMilli()));
+                ttl = age.dividedBy(10);
+                ttl = ttl.compareTo(minTtl) < 0 ? minTtl : ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+            }
+        }
+        return now + ttl.toMillis();
+    }
+
+    private static Instant lastModified(ActivityStreamsObject object) {
+        if (!(object instanceof BaseObject)) {
+            return null;
+        }
+        BaseObject baseObject = (BaseObject) object;
+        Instant updated = baseObject.getUpdated() == null ? null : InstantParser.tryParse(baseObject.getUpdated());
+        return updated != null ? updated : baseObject.getPublished();
+    }
+
+    private void recordRead(Node node) {
+        long index = readCount.getAndIncrement();
+        readBuffer.lazySet((int) (index & (READ_BUFFER_SIZE - 1)), node);
+        if ((index & (READ_BUFFER_SIZE - 1)) == READ_BUFFER_SIZE - 1) {
+            tryDrain();
+        }
+    }
+
+    private void tryDrain() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies recorded reads and removals to the segments, with the eviction lock held.
+     */
+    private void drainBuffers() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Node node = readBuffer.getAndSet(i, null);
+            if (node != null) {
+                onAccess(node);
+            }
+        }
+        for (Node node = removals.poll(); node != null; node = removals.poll()) {
+            unlink(node);
+        }
+    }
+
+    private void onAccess(Node node) {
+        if (node.unlinked || data.get(node.key) != node) {
+            return;
+        }
+        if (node.segment == PROBATION) {
+            probation.remove(node);
+            node.segment = PROTECTED;
+            protectedSegment.add(node);
+            long protectedMax = (long) (maxWeight * PROTECTED_RATIO);
+            while (protectedSegment.weight > protectedMax && protectedSegment.head != node) {
+                Node demoted = protectedSegment.head;
+                protectedSegment.remove(demoted);
+                demoted.segment = PROBATION;
+                probation.add(demoted);
+            }
+        } else {
+            protectedSegment.remove(node);
+            protectedSegment.add(node);
+        }
+    }
+
+    private void unlink(Node node) {
+        if (!node.unlinked) {
+            node.unlinked = true;
+            (node.segment == PROBATION ? probation : protectedSegment).remove(node);
+        }
+    }
+
+    private void evict() {
+        while (probation.weight + protectedSegment.weight > maxWeight || data.size() > maxEntries) {
+            Node victim = probation.head != null ? probation.head : protectedSegment.head;
+            if (victim == null) {
+                return;
+            }
+            unlink(victim);
+            if (data.remove(victim.key, victim)) {
+                evictions.increment();
+            }
+        }
+    }
+}
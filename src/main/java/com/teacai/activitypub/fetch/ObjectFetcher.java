@@ -0,0 +1,20 @@
+package com.teacai.activitypub.fetch;
+
+import com.teacai.activitypub.model.ActivityStreamsObject;
+
+import java.io.IOException;
+
+/**
+ * Retrieves ActivityStreams objects by id, typically with a signed HTTP GET followed by
+ * {@link com.teacai.activitypub.ActivityPubParser#parse(java.io.InputStream)}.
+ * <p>
+ * Implementations are called from background threads and must be thread-safe.
+ */
+@FunctionalInterface
+public interface ObjectFetcher {
+
+    /**
+     * @return the object, or {@code null} if it does not exist
+     */
+    ActivityStreamsObject fetch(String id) throws IOException;
+}
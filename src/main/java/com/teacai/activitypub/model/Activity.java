@@ -8,9 +8,11 @@ public class Activity extends BaseObject {
 
     @JsonProperty(ActivityStreamsFields.OBJECT)
     private List<ActivityStreamsObject> objects;
+    private Deferred<List<ActivityStreamsObject>> deferredObjects;
 
     @JsonProperty(ActivityStreamsFields.TARGET)
     private List<ActivityStreamsObject> targets;
+    private Deferred<List<ActivityStreamsObject>> deferredTargets;
 
     private ActivityStreamsObject result;
 
@@ -19,19 +21,41 @@ public class Activity extends BaseObject {
     private ActivityStreamsObject instrument;
 
     public List<ActivityStreamsObject> getObjects() {
-        return objects;
+        Deferred<List<ActivityStreamsObject>> deferred = this.deferredObjects;
+        return deferred != null ? deferred.get() : objects;
     }
 
     public void setObjects(List<ActivityStreamsObject> objects) {
+        checkMutable();
         this.objects = objects;
+        this.deferredObjects = null;
+    }
+
+    /**
+     * Replaces the value with one that is loaded on the first call to {@link #getObjects()}.
+     */
+    public void deferObjects(Deferred<List<ActivityStreamsObject>> objects) {
+        checkMutable();
+        this.deferredObjects = objects;
     }
 
     public List<ActivityStreamsObject> getTargets() {
-        return targets;
+        Deferred<List<ActivityStreamsObject>> deferred = this.deferredTargets;
+        return deferred != null ? deferred.get() : targets;
     }
 
     public void setTargets(List<ActivityStreamsObject> targets) {
+        checkMutable();
         this.targets = targets;
+        this.deferredTargets = null;
+    }
+
+    /**
+     * Replaces the value with one that is loaded on the first call to {@link #getTargets()}.
+     */
+    public void deferTargets(Deferred<List<ActivityStreamsObject>> targets) {
+        checkMutable();
+        this.deferredTargets = targets;
     }
 
     public ActivityStreamsObject getResult() {
@@ -39,6 +63,7 @@ public class Activity extends BaseObject {
     }
 
     public void setResult(ActivityStreamsObject result) {
+        checkMutable();
         this.result = result;
     }
 
@@ -47,6 +72,7 @@ public class Activity extends BaseObject {
     }
 
     public void setOrigin(ActivityStreamsObject origin) {
+        checkMutable();
         this.origin = origin;
     }
 
@@ -55,6 +81,23 @@ public class Activity extends BaseObject {
     }
 
     public void setInstrument(ActivityStreamsObject instrument) {
+        checkMutable();
         this.instrument = instrument;
     }
+
+    @Override
+    protected void freezeFields() {
+        super.freezeFields();
+        objects = freezeList(objects);
+        if (deferredObjects != null) {
+            deferredObjects = deferredObjects.map(ActivityStreamsObject::freezeList);
+        }
+        targets = freezeList(targets);
+        if (deferredTargets != null) {
+            deferredTargets = deferredTargets.map(ActivityStreamsObject::freezeList);
+        }
+        result = freezeObject(result);
+        origin = freezeObject(origin);
+        instrument = freezeObject(instrument);
+    }
 }
@@ -2,6 +2,8 @@ package com.teacai.activitypub.model;
 
 public class ActivityStreamsFields {
     public static final String CONTEXT_ACTIVITY_STREAMS = "https://www.w3.org/ns/activitystreams";
+    public static final String PUBLIC = "https://www.w3.org/ns/activitystreams#Public";
+    public static final String PUBLIC_COMPACT = "as:Public";
     public static final String AT_CONTEXT = "@context";
     public static final String ID = "id";
     public static final String NAME = "name";
@@ -25,6 +27,25 @@ public class ActivityStreamsFields {
     public static final String URL = "url";
     public static final String LOCATION = "location";
     public static final String CONTENT = "content";
+    public static final String ATTACHMENT = "attachment";
+    public static final String ATTRIBUTED_TO = "attributedTo";
+    public static final String AUDIENCE = "audience";
+    public static final String END_TIME = "endTime";
+    public static final String GENERATOR = "generator";
+    public static final String ICON = "icon";
+    public static final String IMAGE = "image";
+    public static final String IN_REPLY_TO = "inReplyTo";
+    public static final String PUBLISHED = "published";
+    public static final String REPLIES = "replies";
+    public static final String START_TIME = "startTime";
+    public static final String TAG = "tag";
+    public static final String UPDATED = "updated";
+    public static final String TO = "to";
+    public static final String BTO = "bto";
+    public static final String CC = "cc";
+    public static final String BCC = "bcc";
+    public static final String MEDIA_TYPE = "mediaType";
+    public static final String DURATION = "duration";
 
     public static final String FORMER_TYPE = "formerType";
     public static final String DELETED = "deleted";
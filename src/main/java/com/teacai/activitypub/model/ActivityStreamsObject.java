@@ -1,13 +1,25 @@
 package com.teacai.activitypub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
 /**
  * Contains all the common fields for all object types.
+ * <p>
+ * Objects are mutable until {@link #freeze()} is called, after which every setter throws
+ * {@link UnsupportedOperationException} and the lists they return are unmodifiable. A frozen object
+ * can be read by any number of threads once it has been published safely, for example through a
+ * concurrent collection or an executor. To change one, take a {@link #copy()}, set the new values
+ * and freeze the copy.
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class ActivityStreamsObject {
+public class ActivityStreamsObject implements Cloneable {
 
     @JsonProperty(ActivityStreamsFields.AT_CONTEXT)
     private String atContext;
@@ -20,11 +32,18 @@ public class ActivityStreamsObject {
 
     private String customType;
 
+    private boolean frozen;
+
+    /**
+     * The IRI of the JSON-LD context, or the compact JSON text of an array or object context, which
+     * starts with {@code [} or <code>{</code>.
+     */
     public String getAtContext() {
         return atContext;
     }
 
     public void setAtContext(String atContext) {
+        checkMutable();
         this.atContext = atContext;
     }
 
@@ -33,6 +52,7 @@ public class ActivityStreamsObject {
     }
 
     public void setId(String id) {
+        checkMutable();
         this.id = id;
     }
 
@@ -41,6 +61,7 @@ public class ActivityStreamsObject {
     }
 
     public void setName(String name) {
+        checkMutable();
         this.name = name;
     }
 
@@ -49,6 +70,7 @@ public class ActivityStreamsObject {
     }
 
     public void setType(ObjectType objectType) {
+        checkMutable();
         this.type = objectType;
     }
 
@@ -57,6 +79,91 @@ public class ActivityStreamsObject {
     }
 
     public void setCustomType(String customType) {
+        checkMutable();
         this.customType = customType;
     }
+
+    /**
+     * Makes this object and all the objects reachable from it read-only. Deferred values are frozen
+     * when they are loaded. Not safe to call concurrently with other calls on the same objects.
+     *
+     * @return this object
+     */
+    public ActivityStreamsObject freeze() {
+        if (!frozen) {
+            frozen = true;
+            freezeFields();
+        }
+        return this;
+    }
+
+    @JsonIgnore
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Shallow, mutable copy of this object. Embedded objects and lists are shared with this object,
+     * so the ones of a frozen object stay frozen; replace them through the setters.
+     */
+    public ActivityStreamsObject copy() {
+        try {
+            ActivityStreamsObject copy = (ActivityStreamsObject) clone();
+            copy.frozen = false;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Freezes the objects held by the fields this class declares and replaces its lists with
+     * unmodifiable ones. Subclasses call {@code super.freezeFields()} first.
+     */
+    protected void freezeFields() {
+    }
+
+    protected final void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Frozen objects are read-only");
+        }
+    }
+
+    protected static ActivityStreamsObject freezeObject(ActivityStreamsObject object) {
+        return object == null ? null : object.freeze();
+    }
+
+    protected static List<ActivityStreamsObject> freezeList(List<ActivityStreamsObject> objects) {
+        if (objects == null || objects instanceof FrozenList) {
+            return objects;
+        } else if (objects.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ActivityStreamsObject[] frozen = objects.toArray(new ActivityStreamsObject[0]);
+        for (ActivityStreamsObject object : frozen) {
+            freezeObject(object);
+        }
+        return new FrozenList(frozen);
+    }
+
+    /**
+     * Unmodifiable list of frozen objects, recognized so that freezing a copy keeps the lists it shares.
+     */
+    private static final class FrozenList extends AbstractList<ActivityStreamsObject> implements RandomAccess {
+        private final ActivityStreamsObject[] elements;
+
+        FrozenList(ActivityStreamsObject[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public ActivityStreamsObject get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+    }
 }
@@ -1,21 +1,50 @@
 package com.teacai.activitypub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class BaseCollection extends BaseObject {
 
-    private Integer totalItems;
+    private boolean totalItemsSet;
+    private int totalItems;
     private String current;
     private String first;
+    private BaseCollection firstPage;
     private String last;
     private List<ActivityStreamsObject> items;
+    private Deferred<List<ActivityStreamsObject>> deferredItems;
 
     public Integer getTotalItems() {
-        return totalItems;
+        return totalItemsSet ? totalItems : null;
     }
 
     public void setTotalItems(Integer totalItems) {
+        checkMutable();
+        if (totalItems == null) {
+            this.totalItems = 0;
+            this.totalItemsSet = false;
+        } else {
+            setTotalItemsAsInt(totalItems);
+        }
+    }
+
+    public boolean hasTotalItems() {
+        return totalItemsSet;
+    }
+
+    /**
+     * @return the number of items, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public int getTotalItemsAsInt() {
+        return totalItems;
+    }
+
+    public void setTotalItemsAsInt(int totalItems) {
+        checkMutable();
         this.totalItems = totalItems;
+        this.totalItemsSet = true;
     }
 
     public String getCurrent() {
@@ -23,6 +52,7 @@ public class BaseCollection extends BaseObject {
     }
 
     public void setCurrent(String current) {
+        checkMutable();
         this.current = current;
     }
 
@@ -31,22 +61,58 @@ public class BaseCollection extends BaseObject {
     }
 
     public void setFirst(String first) {
+        checkMutable();
         this.first = first;
     }
 
+    /**
+     * The first page when it is embedded in the collection, {@link #getFirst()} then holds its id.
+     */
+    @JsonIgnore
+    public BaseCollection getFirstPage() {
+        return firstPage;
+    }
+
+    public void setFirstPage(BaseCollection firstPage) {
+        checkMutable();
+        this.firstPage = firstPage;
+    }
+
     public String getLast() {
         return last;
     }
 
     public void setLast(String last) {
+        checkMutable();
         this.last = last;
     }
 
     public List<ActivityStreamsObject> getItems() {
-        return items;
+        Deferred<List<ActivityStreamsObject>> deferred = this.deferredItems;
+        return deferred != null ? deferred.get() : items;
     }
 
     public void setItems(List<ActivityStreamsObject> items) {
+        checkMutable();
         this.items = items;
+        this.deferredItems = null;
+    }
+
+    /**
+     * Replaces the value with one that is loaded on the first call to {@link #getItems()}.
+     */
+    public void deferItems(Deferred<List<ActivityStreamsObject>> items) {
+        checkMutable();
+        this.deferredItems = items;
+    }
+
+    @Override
+    protected void freezeFields() {
+        super.freezeFields();
+        freezeObject(firstPage);
+        items = freezeList(items);
+        if (deferredItems != null) {
+            deferredItems = deferredItems.map(ActivityStreamsObject::freezeList);
+        }
     }
 }
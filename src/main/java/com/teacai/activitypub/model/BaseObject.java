@@ -1,56 +1,86 @@
 package com.teacai.activitypub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * ActivityPub <b>Object</b> object.
+ * <p>
+ * The rarely used properties {@code bto}, {@code bcc}, {@code generator}, {@code preview},
+ * {@code duration} and {@code endTime} do not have fields of their own: the ones that are set are kept
+ * in a slot array ordered by property, with a bitmask recording which are present, so an object that
+ * sets none of them pays for one reference and a byte instead of six references. An empty {@code bto} or
+ * {@code bcc} takes no slot and reads back as {@code null}, like an unset one.
  */
 public class BaseObject extends ActivityStreamsObject {
+
+    private static final int BTO = 1;
+    private static final int BCC = 1 << 1;
+    private static final int GENERATOR = 1 << 2;
+    private static final int PREVIEW = 1 << 3;
+    private static final int DURATION = 1 << 4;
+    private static final int END_TIME = 1 << 5;
+
     @JsonProperty(ActivityStreamsFields.ACTOR)
     private List<ActivityStreamsObject> actors;
-    private ActivityStreamsObject attachment;
+    private List<ActivityStreamsObject> attachment;
     private ActivityStreamsObject attributedTo;
-    private ActivityStreamsObject audience;
+    private List<ActivityStreamsObject> audience;
 
     private String content;
     private ActivityStreamsObject context;
-    private Instant endTime;
-    private ActivityStreamsObject generator;
+    private Deferred<ActivityStreamsObject> deferredContext;
     private List<ActivityStreamsObject> icon;
     private List<ActivityStreamsObject> image;
     private List<ActivityStreamsObject> inReplyTo;
     private ActivityStreamsObject location;
-    private ActivityStreamsObject preview;
     private Instant published;
     private BaseCollection replies;
     private Instant startTime;
     private String summary;
-    private ActivityStreamsObject tag;
+    private List<ActivityStreamsObject> tag;
     private String updated;
     private List<ActivityStreamsObject> url;
-    private ActivityStreamsObject to;
-    private ActivityStreamsObject bto;
-    private ActivityStreamsObject cc;
-    private ActivityStreamsObject bcc;
+    private List<ActivityStreamsObject> to;
+    private List<ActivityStreamsObject> cc;
     private String mediaType;
-    private String duration;
+    private byte sparseMask;
+    private Object[] sparse;
 
     public List<ActivityStreamsObject> getActors() {
         return actors;
     }
 
     public void setActors(List<ActivityStreamsObject> actors) {
+        checkMutable();
         this.actors = actors;
     }
 
+    /**
+     * The first value of {@link #getAttachmentList()}.
+     */
     public ActivityStreamsObject getAttachment() {
-        return attachment;
+        return first(attachment);
     }
 
+    /**
+     * Replaces the values of {@link #getAttachmentList()} with {@code attachment} alone.
+     */
     public void setAttachment(ActivityStreamsObject attachment) {
+        setAttachmentList(single(attachment));
+    }
+
+    @JsonIgnore
+    public List<ActivityStreamsObject> getAttachmentList() {
+        return attachment;
+    }
+
+    public void setAttachmentList(List<ActivityStreamsObject> attachment) {
+        checkMutable();
         this.attachment = attachment;
     }
 
@@ -59,14 +89,31 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setAttributedTo(ActivityStreamsObject attributedTo) {
+        checkMutable();
         this.attributedTo = attributedTo;
     }
 
+    /**
+     * The first value of {@link #getAudienceList()}.
+     */
     public ActivityStreamsObject getAudience() {
-        return audience;
+        return first(audience);
     }
 
+    /**
+     * Replaces the values of {@link #getAudienceList()} with {@code audience} alone.
+     */
     public void setAudience(ActivityStreamsObject audience) {
+        setAudienceList(single(audience));
+    }
+
+    @JsonIgnore
+    public List<ActivityStreamsObject> getAudienceList() {
+        return audience;
+    }
+
+    public void setAudienceList(List<ActivityStreamsObject> audience) {
+        checkMutable();
         this.audience = audience;
     }
 
@@ -75,31 +122,45 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setContent(String content) {
+        checkMutable();
         this.content = content;
     }
 
     public ActivityStreamsObject getContext() {
-        return context;
+        Deferred<ActivityStreamsObject> deferred = this.deferredContext;
+        return deferred != null ? deferred.get() : context;
     }
 
     public void setContext(ActivityStreamsObject context) {
+        checkMutable();
         this.context = context;
+        this.deferredContext = null;
+    }
+
+    /**
+     * Replaces the value with one that is loaded on the first call to {@link #getContext()}.
+     */
+    public void deferContext(Deferred<ActivityStreamsObject> context) {
+        checkMutable();
+        this.deferredContext = context;
     }
 
     public Instant getEndTime() {
-        return endTime;
+        return (Instant) getSparse(END_TIME);
     }
 
     public void setEndTime(Instant endTime) {
-        this.endTime = endTime;
+        checkMutable();
+        setSparse(END_TIME, endTime);
     }
 
     public ActivityStreamsObject getGenerator() {
-        return generator;
+        return (ActivityStreamsObject) getSparse(GENERATOR);
     }
 
     public void setGenerator(ActivityStreamsObject generator) {
-        this.generator = generator;
+        checkMutable();
+        setSparse(GENERATOR, generator);
     }
 
     public List<ActivityStreamsObject> getIcon() {
@@ -107,6 +168,7 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setIcon(List<ActivityStreamsObject> icon) {
+        checkMutable();
         this.icon = icon;
     }
 
@@ -115,6 +177,7 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setImage(List<ActivityStreamsObject> image) {
+        checkMutable();
         this.image = image;
     }
 
@@ -123,6 +186,7 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setInReplyTo(List<ActivityStreamsObject> inReplyTo) {
+        checkMutable();
         this.inReplyTo = inReplyTo;
     }
 
@@ -131,15 +195,17 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setLocation(ActivityStreamsObject location) {
+        checkMutable();
         this.location = location;
     }
 
     public ActivityStreamsObject getPreview() {
-        return preview;
+        return (ActivityStreamsObject) getSparse(PREVIEW);
     }
 
     public void setPreview(ActivityStreamsObject preview) {
-        this.preview = preview;
+        checkMutable();
+        setSparse(PREVIEW, preview);
     }
 
     public Instant getPublished() {
@@ -147,6 +213,7 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setPublished(Instant published) {
+        checkMutable();
         this.published = published;
     }
 
@@ -155,6 +222,7 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setReplies(BaseCollection replies) {
+        checkMutable();
         this.replies = replies;
     }
 
@@ -163,6 +231,7 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setStartTime(Instant startTime) {
+        checkMutable();
         this.startTime = startTime;
     }
 
@@ -171,14 +240,31 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setSummary(String summary) {
+        checkMutable();
         this.summary = summary;
     }
 
+    /**
+     * The first value of {@link #getTagList()}.
+     */
     public ActivityStreamsObject getTag() {
-        return tag;
+        return first(tag);
     }
 
+    /**
+     * Replaces the values of {@link #getTagList()} with {@code tag} alone.
+     */
     public void setTag(ActivityStreamsObject tag) {
+        setTagList(single(tag));
+    }
+
+    @JsonIgnore
+    public List<ActivityStreamsObject> getTagList() {
+        return tag;
+    }
+
+    public void setTagList(List<ActivityStreamsObject> tag) {
+        checkMutable();
         this.tag = tag;
     }
 
@@ -187,6 +273,7 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setUpdated(String updated) {
+        checkMutable();
         this.updated = updated;
     }
 
@@ -195,39 +282,106 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setUrl(List<ActivityStreamsObject> url) {
+        checkMutable();
         this.url = url;
     }
 
+    /**
+     * The first value of {@link #getToList()}.
+     */
     public ActivityStreamsObject getTo() {
-        return to;
+        return first(to);
     }
 
+    /**
+     * Replaces the values of {@link #getToList()} with {@code to} alone.
+     */
     public void setTo(ActivityStreamsObject to) {
+        setToList(single(to));
+    }
+
+    @JsonIgnore
+    public List<ActivityStreamsObject> getToList() {
+        return to;
+    }
+
+    public void setToList(List<ActivityStreamsObject> to) {
+        checkMutable();
         this.to = to;
     }
 
+    /**
+     * The first value of {@link #getBtoList()}.
+     */
     public ActivityStreamsObject getBto() {
-        return bto;
+        return first(getBtoList());
     }
 
+    /**
+     * Replaces the values of {@link #getBtoList()} with {@code bto} alone.
+     */
     public void setBto(ActivityStreamsObject bto) {
-        this.bto = bto;
+        setBtoList(single(bto));
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unchecked")
+    public List<ActivityStreamsObject> getBtoList() {
+        return (List<ActivityStreamsObject>) getSparse(BTO);
+    }
+
+    public void setBtoList(List<ActivityStreamsObject> bto) {
+        checkMutable();
+        setSparse(BTO, bto == null || bto.isEmpty() ? null : bto);
     }
 
+    /**
+     * The first value of {@link #getCcList()}.
+     */
     public ActivityStreamsObject getCc() {
-        return cc;
+        return first(cc);
     }
 
+    /**
+     * Replaces the values of {@link #getCcList()} with {@code cc} alone.
+     */
     public void setCc(ActivityStreamsObject cc) {
+        setCcList(single(cc));
+    }
+
+    @JsonIgnore
+    public List<ActivityStreamsObject> getCcList() {
+        return cc;
+    }
+
+    public void setCcList(List<ActivityStreamsObject> cc) {
+        checkMutable();
         this.cc = cc;
     }
 
+    /**
+     * The first value of {@link #getBccList()}.
+     */
     public ActivityStreamsObject getBcc() {
-        return bcc;
+        return first(getBccList());
     }
 
+    /**
+     * Replaces the values of {@link #getBccList()} with {@code bcc} alone.
+     */
     public void setBcc(ActivityStreamsObject bcc) {
-        this.bcc = bcc;
+        setBccList(single(bcc));
+    }
+
+    @JsonIgnore
+    @SuppressWarnings("unchecked")
+    public List<ActivityStreamsObject> getBccList() {
+        return (List<ActivityStreamsObject>) getSparse(BCC);
+    }
+
+    public void setBccList(List<ActivityStreamsObject> bcc) {
+        checkMutable();
+        setSparse(BCC, bcc == null || bcc.isEmpty() ? null : bcc);
     }
 
     public String getMediaType() {
@@ -235,14 +389,101 @@ public class BaseObject extends ActivityStreamsObject {
     }
 
     public void setMediaType(String mediaType) {
+        checkMutable();
         this.mediaType = mediaType;
     }
 
     public String getDuration() {
-        return duration;
+        return (String) getSparse(DURATION);
     }
 
     public void setDuration(String duration) {
-        this.duration = duration;
+        checkMutable();
+        setSparse(DURATION, duration);
+    }
+
+    private static ActivityStreamsObject first(List<ActivityStreamsObject> values) {
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static List<ActivityStreamsObject> single(ActivityStreamsObject value) {
+        return value == null ? null : Collections.singletonList(value);
+    }
+
+    private Object getSparse(int property) {
+        if ((sparseMask & property) == 0) {
+            return null;
+        }
+        return sparse[Integer.bitCount(sparseMask & (property - 1))];
+    }
+
+    private void setSparse(int property, Object value) {
+        int index = Integer.bitCount(sparseMask & (property - 1));
+        int count = Integer.bitCount(sparseMask);
+        if ((sparseMask & property) != 0) {
+            if (value != null) {
+                sparse[index] = value;
+                return;
+            }
+            Object[] slots = null;
+            if (count > 1) {
+                slots = new Object[count - 1];
+                System.arraycopy(sparse, 0, slots, 0, index);
+                System.arraycopy(sparse, index + 1, slots, index, count - index - 1);
+            }
+            sparse = slots;
+            sparseMask &= ~property;
+        } else if (value != null) {
+            Object[] slots = new Object[count + 1];
+            if (count > 0) {
+                System.arraycopy(sparse, 0, slots, 0, index);
+                System.arraycopy(sparse, index, slots, index + 1, count - index);
+            }
+            slots[index] = value;
+            sparse = slots;
+            sparseMask |= property;
+        }
+    }
+
+    @Override
+    public BaseObject copy() {
+        BaseObject copy = (BaseObject) super.copy();
+        if (sparse != null) {
+            copy.sparse = sparse.clone();
+        }
+        return copy;
+    }
+
+    @Override
+    protected void freezeFields() {
+        super.freezeFields();
+        actors = freezeList(actors);
+        attachment = freezeList(attachment);
+        attributedTo = freezeObject(attributedTo);
+        audience = freezeList(audience);
+        context = freezeObject(context);
+        if (deferredContext != null) {
+            deferredContext = deferredContext.map(ActivityStreamsObject::freezeObject);
+        }
+        icon = freezeList(icon);
+        image = freezeList(image);
+        inReplyTo = freezeList(inReplyTo);
+        location = freezeObject(location);
+        freezeObject(replies);
+        tag = freezeList(tag);
+        url = freezeList(url);
+        to = freezeList(to);
+        cc = freezeList(cc);
+        if (sparse != null) {
+            for (int i = 0; i < sparse.length; i++) {
+                if (sparse[i] instanceof ActivityStreamsObject) {
+                    ((ActivityStreamsObject) sparse[i]).freeze();
+                } else if (sparse[i] instanceof List) {
+                    @SuppressWarnings("unchecked")
+                    List<ActivityStreamsObject> list = (List<ActivityStreamsObject>) sparse[i];
+                    sparse[i] = freezeList(list);
+                }
+            }
+        }
     }
 }
@@ -11,6 +11,7 @@ public class CollectionPage extends BaseCollection {
     }
 
     public void setPartOf(String partOf) {
+        checkMutable();
         this.partOf = partOf;
     }
 
@@ -19,6 +20,7 @@ public class CollectionPage extends BaseCollection {
     }
 
     public void setNext(ActivityStreamsObject next) {
+        checkMutable();
         this.next = next;
     }
 
@@ -27,6 +29,14 @@ public class CollectionPage extends BaseCollection {
     }
 
     public void setPrev(ActivityStreamsObject prev) {
+        checkMutable();
         this.prev = prev;
     }
+
+    @Override
+    protected void freezeFields() {
+        super.freezeFields();
+        next = freezeObject(next);
+        prev = freezeObject(prev);
+    }
 }
@@ -0,0 +1,58 @@
+package com.teacai.activitypub.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+
+/**
+ * A property value that is only built when it is first read. Loading happens at most once, also when
+ * several threads read the property concurrently; the loader is released afterwards.
+ */
+public final class Deferred<T> {
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    private Loader<T> loader;
+
+    private T value;
+
+    private volatile boolean loaded;
+
+    public Deferred(Loader<T> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @throws UncheckedIOException if the loader fails, the next call tries again
+     */
+    public T get() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    try {
+                        value = loader.load();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    loader = null;
+                    loaded = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return a value that applies {@code mapper} to this one when it is first read
+     */
+    public <R> Deferred<R> map(Function<? super T, ? extends R> mapper) {
+        return new Deferred<>(() -> mapper.apply(get()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.teacai.activitypub.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bare URL reference that can be shared between any number of parsed objects. It is frozen when
+ * created, so all setters throw {@link UnsupportedOperationException}; {@link #copy()} returns a
+ * plain {@link Link} that can be changed.
+ */
+public final class ImmutableLink extends Link {
+
+    private static final Map<String, ImmutableLink> WELL_KNOWN = new HashMap<>();
+
+    /**
+     * The public audience, {@code as:Public}.
+     */
+    public static final ImmutableLink PUBLIC = wellKnown(ActivityStreamsFields.PUBLIC);
+
+    static {
+        wellKnown(ActivityStreamsFields.PUBLIC_COMPACT);
+        wellKnown("Public");
+    }
+
+    public ImmutableLink(String href) {
+        setAtContext(ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS);
+        setType(ObjectType.Link);
+        setHref(href);
+        freeze();
+    }
+
+    private static ImmutableLink wellKnown(String href) {
+        ImmutableLink link = new ImmutableLink(href);
+        WELL_KNOWN.put(href, link);
+        return link;
+    }
+
+    /**
+     * @return the shared instance for a well-known URI such as the public audience, or {@code null}
+     */
+    public static ImmutableLink forWellKnown(String href) {
+        return WELL_KNOWN.get(href);
+    }
+
+    @Override
+    public Link copy() {
+        Link link = new Link();
+        link.setAtContext(getAtContext());
+        link.setType(getType());
+        link.setHref(getHref());
+        return link;
+    }
+}
@@ -1,20 +1,28 @@
 package com.teacai.activitypub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * An ActivityPub <b>Link</b> object.
+ * <p>
+ * {@code height} and {@code width} are stored as primitives with a bit recording whether they are set,
+ * the boxed getters return {@code null} for a value that is not set.
  */
 public class Link extends ActivityStreamsObject {
 
+    private static final int HEIGHT = 1;
+    private static final int WIDTH = 1 << 1;
+
     private String href;
 
     @JsonProperty(ActivityStreamsFields.HREF_LANG)
     private String hrefLang;
 
     private String rel;
-    private Integer height;
-    private Integer width;
+    private byte present;
+    private int height;
+    private int width;
     private String preview;
 
     public String getHref() {
@@ -22,6 +30,7 @@ public class Link extends ActivityStreamsObject {
     }
 
     public void setHref(String href) {
+        checkMutable();
         this.href = href;
     }
 
@@ -30,6 +39,7 @@ public class Link extends ActivityStreamsObject {
     }
 
     public void setHrefLang(String hrefLang) {
+        checkMutable();
         this.hrefLang = hrefLang;
     }
 
@@ -38,23 +48,72 @@ public class Link extends ActivityStreamsObject {
     }
 
     public void setRel(String rel) {
+        checkMutable();
         this.rel = rel;
     }
 
     public Integer getHeight() {
-        return height;
+        return hasHeight() ? height : null;
     }
 
     public void setHeight(Integer height) {
+        checkMutable();
+        if (height == null) {
+            this.height = 0;
+            present &= ~HEIGHT;
+        } else {
+            setHeightAsInt(height);
+        }
+    }
+
+    public boolean hasHeight() {
+        return (present & HEIGHT) != 0;
+    }
+
+    /**
+     * @return the height, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public int getHeightAsInt() {
+        return height;
+    }
+
+    public void setHeightAsInt(int height) {
+        checkMutable();
         this.height = height;
+        present |= HEIGHT;
     }
 
     public Integer getWidth() {
-        return width;
+        return hasWidth() ? width : null;
     }
 
     public void setWidth(Integer width) {
+        checkMutable();
+        if (width == null) {
+            this.width = 0;
+            present &= ~WIDTH;
+        } else {
+            setWidthAsInt(width);
+        }
+    }
+
+    public boolean hasWidth() {
+        return (present & WIDTH) != 0;
+    }
+
+    /**
+     * @return the width, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public int getWidthAsInt() {
+        return width;
+    }
+
+    public void setWidthAsInt(int width) {
+        checkMutable();
         this.width = width;
+        present |= WIDTH;
     }
 
     public String getPreview() {
@@ -62,6 +121,12 @@ public class Link extends ActivityStreamsObject {
     }
 
     public void setPreview(String preview) {
+        checkMutable();
         this.preview = preview;
     }
+
+    @Override
+    public Link copy() {
+        return (Link) super.copy();
+    }
 }
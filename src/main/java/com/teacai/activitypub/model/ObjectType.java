@@ -12,14 +12,86 @@ public enum ObjectType {
     Reject, Read, Remove, TentativeReject, TentativeAccept, Travel, Undo,
     Update, View;
 
+    /**
+     * Open addressing table of all constants keyed by their case-folded name, so lookups neither
+     * clone {@link #values()} nor allocate.
+     */
+    private static final ObjectType[] LOOKUP = new ObjectType[128];
+
+    static {
+        for (ObjectType type : values()) {
+            String name = type.name();
+            int slot = hash(name) & (LOOKUP.length - 1);
+            while (LOOKUP[slot] != null) {
+                slot = (slot + 1) & (LOOKUP.length - 1);
+            }
+            LOOKUP[slot] = type;
+        }
+    }
+
     public static ObjectType parse(String value) {
         if (value != null && value.length() > 0) {
-            for(ObjectType type : values()) {
-                if (type.name().equalsIgnoreCase(value)) {
-                    return type;
+            for (int slot = hash(value) & (LOOKUP.length - 1); LOOKUP[slot] != null; slot = (slot + 1) & (LOOKUP.length - 1)) {
+                String name = LOOKUP[slot].name();
+                if (name.length() == value.length() && name.regionMatches(true, 0, value, 0, name.length())) {
+                    return LOOKUP[slot];
                 }
             }
         }
         return Custom;
     }
+
+    /**
+     * Same as {@link #parse(String)} for a region of a character buffer, such as the text buffer of a
+     * {@code JsonParser}, without building a String.
+     */
+    public static ObjectType parse(char[] value, int offset, int length) {
+        if (value != null && length > 0) {
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + fold(value[i]);
+            }
+            for (int slot = spread(hash) & (LOOKUP.length - 1); LOOKUP[slot] != null; slot = (slot + 1) & (LOOKUP.length - 1)) {
+                if (matches(LOOKUP[slot].name(), value, offset, length)) {
+                    return LOOKUP[slot];
+                }
+            }
+        }
+        return Custom;
+    }
+
+    private static boolean matches(String name, char[] value, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (fold(name.charAt(i)) != fold(value[offset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String value) {
+        int hash = 0;
+        for (int i = 0; i < value.length(); i++) {
+            hash = 31 * hash + fold(value.charAt(i));
+        }
+        return spread(hash);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Folds a character the way {@link String#equalsIgnoreCase(String)} compares them, so that equal
+     * names always hash to the same slot.
+     */
+    private static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
 }
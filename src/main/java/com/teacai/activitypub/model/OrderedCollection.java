@@ -5,12 +5,33 @@ import java.util.List;
 public class OrderedCollection extends BaseCollection {
 
     private List<ActivityStreamsObject> orderedItems;
+    private Deferred<List<ActivityStreamsObject>> deferredOrderedItems;
 
     public List<ActivityStreamsObject> getOrderedItems() {
-        return orderedItems;
+        Deferred<List<ActivityStreamsObject>> deferred = this.deferredOrderedItems;
+        return deferred != null ? deferred.get() : orderedItems;
     }
 
     public void setOrderedItems(List<ActivityStreamsObject> orderedItems) {
+        checkMutable();
         this.orderedItems = orderedItems;
+        this.deferredOrderedItems = null;
+    }
+
+    /**
+     * Replaces the value with one that is loaded on the first call to {@link #getOrderedItems()}.
+     */
+    public void deferOrderedItems(Deferred<List<ActivityStreamsObject>> orderedItems) {
+        checkMutable();
+        this.deferredOrderedItems = orderedItems;
+    }
+
+    @Override
+    protected void freezeFields() {
+        super.freezeFields();
+        orderedItems = freezeList(orderedItems);
+        if (deferredOrderedItems != null) {
+            deferredOrderedItems = deferredOrderedItems.map(ActivityStreamsObject::freezeList);
+        }
     }
 }
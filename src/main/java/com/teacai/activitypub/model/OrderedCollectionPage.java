@@ -1,26 +1,74 @@
 package com.teacai.activitypub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class OrderedCollectionPage extends CollectionPage {
 
-    private Integer startIndex;
+    private boolean startIndexSet;
+    private int startIndex;
 
     private List<ActivityStreamsObject> orderedItems;
+    private Deferred<List<ActivityStreamsObject>> deferredOrderedItems;
 
     public List<ActivityStreamsObject> getOrderedItems() {
-        return orderedItems;
+        Deferred<List<ActivityStreamsObject>> deferred = this.deferredOrderedItems;
+        return deferred != null ? deferred.get() : orderedItems;
     }
 
     public void setOrderedItems(List<ActivityStreamsObject> orderedItems) {
+        checkMutable();
         this.orderedItems = orderedItems;
+        this.deferredOrderedItems = null;
+    }
+
+    /**
+     * Replaces the value with one that is loaded on the first call to {@link #getOrderedItems()}.
+     */
+    public void deferOrderedItems(Deferred<List<ActivityStreamsObject>> orderedItems) {
+        checkMutable();
+        this.deferredOrderedItems = orderedItems;
     }
 
     public Integer getStartIndex() {
-        return startIndex;
+        return startIndexSet ? startIndex : null;
     }
 
     public void setStartIndex(Integer startIndex) {
+        checkMutable();
+        if (startIndex == null) {
+            this.startIndex = 0;
+            this.startIndexSet = false;
+        } else {
+            setStartIndexAsInt(startIndex);
+        }
+    }
+
+    public boolean hasStartIndex() {
+        return startIndexSet;
+    }
+
+    /**
+     * @return the index of the first item, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public int getStartIndexAsInt() {
+        return startIndex;
+    }
+
+    public void setStartIndexAsInt(int startIndex) {
+        checkMutable();
         this.startIndex = startIndex;
+        this.startIndexSet = true;
+    }
+
+    @Override
+    protected void freezeFields() {
+        super.freezeFields();
+        orderedItems = freezeList(orderedItems);
+        if (deferredOrderedItems != null) {
+            deferredOrderedItems = deferredOrderedItems.map(ActivityStreamsObject::freezeList);
+        }
     }
 }
@@ -1,51 +1,188 @@
 package com.teacai.activitypub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * An ActivityStreams <b>Place</b>.
+ * <p>
+ * The coordinates are stored as primitives with a bit per field recording whether it is set. The
+ * boxed getters return {@code null} for a field that is not set; {@code hasX()},
+ * {@code getXAsDouble()} and {@code setXAsDouble(double)} read and write the primitive directly.
+ */
 public class Place extends BaseObject {
-    private Double accuracy;
-    private Double altitude;
-    private Double latitude;
-    private Double longitude;
-    private Double radius;
+
+    private static final int ACCURACY = 1;
+    private static final int ALTITUDE = 1 << 1;
+    private static final int LATITUDE = 1 << 2;
+    private static final int LONGITUDE = 1 << 3;
+    private static final int RADIUS = 1 << 4;
+
+    private byte present;
+    private double accuracy;
+    private double altitude;
+    private double latitude;
+    private double longitude;
+    private double radius;
     private String units;
 
     public Double getAccuracy() {
-        return accuracy;
+        return hasAccuracy() ? accuracy : null;
     }
 
     public void setAccuracy(Double accuracy) {
+        checkMutable();
+        if (accuracy == null) {
+            this.accuracy = 0;
+            present &= ~ACCURACY;
+        } else {
+            setAccuracyAsDouble(accuracy);
+        }
+    }
+
+    public boolean hasAccuracy() {
+        return (present & ACCURACY) != 0;
+    }
+
+    /**
+     * @return the accuracy, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public double getAccuracyAsDouble() {
+        return accuracy;
+    }
+
+    public void setAccuracyAsDouble(double accuracy) {
+        checkMutable();
         this.accuracy = accuracy;
+        present |= ACCURACY;
     }
 
     public Double getAltitude() {
-        return altitude;
+        return hasAltitude() ? altitude : null;
     }
 
     public void setAltitude(Double altitude) {
+        checkMutable();
+        if (altitude == null) {
+            this.altitude = 0;
+            present &= ~ALTITUDE;
+        } else {
+            setAltitudeAsDouble(altitude);
+        }
+    }
+
+    public boolean hasAltitude() {
+        return (present & ALTITUDE) != 0;
+    }
+
+    /**
+     * @return the altitude, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public double getAltitudeAsDouble() {
+        return altitude;
+    }
+
+    public void setAltitudeAsDouble(double altitude) {
+        checkMutable();
         this.altitude = altitude;
+        present |= ALTITUDE;
     }
 
     public Double getLatitude() {
-        return latitude;
+        return hasLatitude() ? latitude : null;
     }
 
     public void setLatitude(Double latitude) {
+        checkMutable();
+        if (latitude == null) {
+            this.latitude = 0;
+            present &= ~LATITUDE;
+        } else {
+            setLatitudeAsDouble(latitude);
+        }
+    }
+
+    public boolean hasLatitude() {
+        return (present & LATITUDE) != 0;
+    }
+
+    /**
+     * @return the latitude, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public double getLatitudeAsDouble() {
+        return latitude;
+    }
+
+    public void setLatitudeAsDouble(double latitude) {
+        checkMutable();
         this.latitude = latitude;
+        present |= LATITUDE;
     }
 
     public Double getLongitude() {
-        return longitude;
+        return hasLongitude() ? longitude : null;
     }
 
     public void setLongitude(Double longitude) {
+        checkMutable();
+        if (longitude == null) {
+            this.longitude = 0;
+            present &= ~LONGITUDE;
+        } else {
+            setLongitudeAsDouble(longitude);
+        }
+    }
+
+    public boolean hasLongitude() {
+        return (present & LONGITUDE) != 0;
+    }
+
+    /**
+     * @return the longitude, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public double getLongitudeAsDouble() {
+        return longitude;
+    }
+
+    public void setLongitudeAsDouble(double longitude) {
+        checkMutable();
         this.longitude = longitude;
+        present |= LONGITUDE;
     }
 
     public Double getRadius() {
-        return radius;
+        return hasRadius() ? radius : null;
     }
 
     public void setRadius(Double radius) {
+        checkMutable();
+        if (radius == null) {
+            this.radius = 0;
+            present &= ~RADIUS;
+        } else {
+            setRadiusAsDouble(radius);
+        }
+    }
+
+    public boolean hasRadius() {
+        return (present & RADIUS) != 0;
+    }
+
+    /**
+     * @return the radius, or {@code 0} when it is not set
+     */
+    @JsonIgnore
+    public double getRadiusAsDouble() {
+        return radius;
+    }
+
+    public void setRadiusAsDouble(double radius) {
+        checkMutable();
         this.radius = radius;
+        present |= RADIUS;
     }
 
     public String getUnits() {
@@ -53,6 +190,7 @@ public class Place extends BaseObject {
     }
 
     public void setUnits(String units) {
+        checkMutable();
         this.units = units;
     }
 }
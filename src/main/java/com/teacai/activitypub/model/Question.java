@@ -14,6 +14,7 @@ public class Question extends Activity {
     }
 
     public void setOneOf(List<ActivityStreamsObject> oneOf) {
+        checkMutable();
         this.oneOf = oneOf;
     }
 
@@ -22,6 +23,7 @@ public class Question extends Activity {
     }
 
     public void setAnyOf(List<ActivityStreamsObject> anyOf) {
+        checkMutable();
         this.anyOf = anyOf;
     }
 
@@ -30,6 +32,14 @@ public class Question extends Activity {
     }
 
     public void setClosed(Instant closed) {
+        checkMutable();
         this.closed = closed;
     }
+
+    @Override
+    protected void freezeFields() {
+        super.freezeFields();
+        oneOf = freezeList(oneOf);
+        anyOf = freezeList(anyOf);
+    }
 }
@@ -13,6 +13,7 @@ public class Tombstone extends BaseObject {
     }
 
     public void setFormerType(ObjectType formerType) {
+        checkMutable();
         this.formerType = formerType;
     }
 
@@ -21,6 +22,7 @@ public class Tombstone extends BaseObject {
     }
 
     public void setDeleted(Instant deleted) {
+        checkMutable();
         this.deleted = deleted;
     }
 }
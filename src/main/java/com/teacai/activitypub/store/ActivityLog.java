@@ -0,0 +1,468 @@
+package com.teacai.activitypub.store;
+
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.ActivityPubWriter;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.Tombstone;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only store of ActivityStreams objects keyed by their {@code id}, for objects
+ * received from other servers that are read back again and again.
+ * <p>
+ * Objects are serialized by the {@link ActivityPubWriter} straight into memory-mapped segment files
+ * of a directory. When a record does not fit in the current segment a new one is started. An index
+ * from ids to record locations is kept off-heap and rebuilt by scanning the segments when the log is
+ * opened. A record that was not completely written, after a crash, ends its segment.
+ * <p>
+ * Appending an object with an id that is already stored replaces it, appending a {@link Tombstone}
+ * records its deletion. Tombstone records are flagged, so {@link #contains} and {@link #isDeleted}
+ * answer without parsing. {@link #compact()} rewrites the log without the replaced records, so the
+ * content of deleted objects is dropped and only their tombstones are kept.
+ * <p>
+ * Reads hand a read-only slice of the mapped segment to the {@link ActivityPubParser} without copying
+ * it. All methods are thread-safe; objects are parsed outside the lock. Appends reach the file system
+ * when the mapped pages are written back, {@link #flush()} forces them to the storage device.
+ */
+public class ActivityLog implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int MAGIC = 0x41504c47;
+
+    private static final int VERSION = 1;
+
+    private static final int SEGMENT_HEADER_SIZE = 8;
+
+    /**
+     * Payload length, checksum of id and payload, flags and id length, followed by the id and the
+     * payload. A record is committed by writing its payload length last.
+     */
+    private static final int RECORD_HEADER_SIZE = 11;
+
+    private static final byte FLAG_TOMBSTONE = 1;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final class Segment {
+        final int number;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int end;
+
+        Segment(int number, Path path, MappedByteBuffer buffer, int end) {
+            this.number = number;
+            this.path = path;
+            this.buffer = buffer;
+            this.end = end;
+        }
+    }
+
+    private final Path directory;
+
+    private final ActivityPubParser parser;
+
+    private final ActivityPubWriter writer;
+
+    private final int segmentSize;
+
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    private final OffsetIndex index = new OffsetIndex(1024);
+
+    private final CRC32 crc = new CRC32();
+
+    private final List<Path> retired = new ArrayList<>();
+
+    private int lastSegmentNumber;
+
+    private Segment active;
+
+    private boolean closed;
+
+    public ActivityLog(Path directory, ActivityPubParser parser, ActivityPubWriter writer) throws IOException {
+        this(directory, parser, writer, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the log in {@code directory}, creating it if needed. The parser and writer must use the same
+     * format, JSON or binary.
+     *
+     * @param segmentSize size of new segment files; larger records get a segment of their own
+     */
+    public ActivityLog(Path directory, ActivityPubParser parser, ActivityPubWriter writer, int segmentSize) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize is too small: " + segmentSize);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.parser = parser;
+        this.writer = writer;
+        this.segmentSize = segmentSize;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                int number = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(number, map(number, path, Files.size(path)));
+            }
+        }
+        for (Segment segment : segments.values()) {
+            recover(segment);
+        }
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        lastSegmentNumber = segments.isEmpty() ? 0 : segments.lastKey();
+    }
+
+    /**
+     * Stores {@code object} under its id, replacing what was stored under it before.
+     *
+     * @throws IllegalArgumentException if the object has no id
+     */
+    public synchronized void append(ActivityStreamsObject object) throws IOException {
+        checkOpen();
+        String id = object.getId();
+        if (id == null) {
+            throw new IllegalArgumentException("Only objects with an id can be stored");
+        }
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > 0xffff) {
+            throw new IllegalArgumentException("Id is too long: " + idBytes.length + " bytes");
+        }
+        byte flags = object instanceof Tombstone ? FLAG_TOMBSTONE : 0;
+        long location = write(object, idBytes, flags);
+        index.put(hash(idBytes), location, candidate -> idMatches(candidate, idBytes));
+    }
+
+    /**
+     * @return the object stored under {@code id}, a {@link Tombstone} if it was deleted, or
+     * {@code null} if it is unknown
+     */
+    public ActivityStreamsObject get(String id) throws IOException {
+        ByteBuffer payload = getBytes(id);
+        return payload == null ? null : parser.parse(payload);
+    }
+
+    /**
+     * @return a read-only view of the serialized object stored under {@code id}, or {@code null}. The
+     * view stays valid after compaction.
+     */
+    public synchronized ByteBuffer getBytes(String id) {
+        checkOpen();
+        long location = find(id);
+        if (location == 0) {
+            return null;
+        }
+        Segment segment = segments.get(segmentNumber(location));
+        int offset = offset(location);
+        int start = offset + RECORD_HEADER_SIZE + (segment.buffer.getShort(offset + 9) & 0xffff);
+        ByteBuffer payload = segment.buffer.duplicate();
+        payload.limit(start + segment.buffer.getInt(offset)).position(start);
+        return payload.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return whether an object that has not been deleted is stored under {@code id}
+     */
+    public synchronized boolean contains(String id) {
+        checkOpen();
+        long location = find(id);
+        return location != 0 && (flags(location) & FLAG_TOMBSTONE) == 0;
+    }
+
+    /**
+     * @return whether the object stored under {@code id} is a {@link Tombstone}
+     */
+    public synchronized boolean isDeleted(String id) {
+        checkOpen();
+        long location = find(id);
+        return location != 0 && (flags(location) & FLAG_TOMBSTONE) != 0;
+    }
+
+    /**
+     * Number of distinct ids stored, including deleted ones.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Forces appended records to the storage device.
+     */
+    public synchronized void flush() {
+        checkOpen();
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Rewrites all records that are still current into new segments and deletes the old ones. Records
+     * replaced by a later version or by a {@link Tombstone} are dropped.
+     * <p>
+     * Views returned by {@link #getBytes} keep the old segments mapped. Where the file system refuses
+     * to delete a mapped file, as on Windows, the file is left in place and deleted by a later
+     * compaction once it has been unmapped; reopening the log before that reads its records again,
+     * but the compacted copies that follow them take precedence.
+     */
+    public synchronized void compact() throws IOException {
+        checkOpen();
+        deleteRetired();
+        List<Segment> old = new ArrayList<>(segments.values());
+        if (old.isEmpty()) {
+            return;
+        }
+        // new records must follow the compacted ones, so the next append starts a new segment
+        active = null;
+        for (Segment segment : old) {
+            for (int offset = SEGMENT_HEADER_SIZE; offset < segment.end; offset = next(segment, offset)) {
+                long location = location(segment.number, offset);
+                byte[] idBytes = idBytes(segment, offset);
+                long hash = hash(idBytes);
+                if (index.get(hash, candidate -> candidate == location) == 0) {
+                    continue;
+                }
+                ByteBuffer record = segment.buffer.duplicate();
+                record.limit(next(segment, offset)).position(offset);
+                long copy = copy(record);
+                index.put(hash, copy, candidate -> candidate == location);
+            }
+        }
+        for (Segment segment : segments.values()) {
+            if (segment.number > old.get(old.size() - 1).number) {
+                segment.buffer.force();
+            }
+        }
+        for (Segment segment : old) {
+            segments.remove(segment.number);
+            retired.add(segment.path);
+        }
+        deleteRetired();
+    }
+
+    /**
+     * Deletes the files of compacted segments, keeping those that cannot be deleted yet.
+     */
+    private void deleteRetired() {
+        for (Iterator<Path> paths = retired.iterator(); paths.hasNext(); ) {
+            try {
+                Files.deleteIfExists(paths.next());
+                paths.remove();
+            } catch (IOException e) {
+                // still mapped, try again on the next compaction
+            }
+        }
+    }
+
+    /**
+     * Forces the log to the storage device and closes it. Views returned by {@link #getBytes} must not
+     * be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            flush();
+            closed = true;
+            segments.clear();
+            active = null;
+        }
+    }
+
+    private long write(ActivityStreamsObject object, byte[] idBytes, byte flags) throws IOException {
+        int start = RECORD_HEADER_SIZE + idBytes.length;
+        if (active != null && active.buffer.capacity() - active.end > start) {
+            ByteBuffer target = active.buffer.duplicate();
+            target.position(active.end + start);
+            try {
+                writer.write(object, target);
+                return commit(active, idBytes, flags, target.position() - active.end - start);
+            } catch (BufferOverflowException e) {
+                // roll over to a new segment below
+            }
+        }
+        byte[] payload = writer.writeAsBytes(object);
+        Segment segment = roll(start + payload.length);
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(segment.end + start);
+        target.put(payload);
+        return commit(segment, idBytes, flags, payload.length);
+    }
+
+    /**
+     * Writes the header of the record whose payload has been written at the end of {@code segment}.
+     */
+    private long commit(Segment segment, byte[] idBytes, byte flags, int payloadLength) {
+        int offset = segment.end;
+        ByteBuffer buffer = segment.buffer;
+        ByteBuffer id = buffer.duplicate();
+        id.position(offset + RECORD_HEADER_SIZE);
+        id.put(idBytes);
+        buffer.putInt(offset + 4, checksum(segment, offset, idBytes.length, payloadLength));
+        buffer.put(offset + 8, flags);
+        buffer.putShort(offset + 9, (short) idBytes.length);
+        buffer.putInt(offset, payloadLength);
+        segment.end = offset + RECORD_HEADER_SIZE + idBytes.length + payloadLength;
+        return location(segment.number, offset);
+    }
+
+    /**
+     * Appends a complete record to the active segment during compaction.
+     */
+    private long copy(ByteBuffer record) throws IOException {
+        Segment segment = active != null && active.buffer.capacity() - active.end >= record.remaining()
+                ? active : roll(record.remaining());
+        int offset = segment.end;
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(offset);
+        target.put(record);
+        segment.end = target.position();
+        return location(segment.number, offset);
+    }
+
+    private Segment roll(int recordSize) throws IOException {
+        // numbers are never reused, a retired segment file may still exist
+        int number = lastSegmentNumber + 1;
+        if (number <= 0) {
+            throw new IOException("Segment numbers exhausted in " + directory);
+        }
+        long size = Math.max(segmentSize, (long) SEGMENT_HEADER_SIZE + recordSize);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Record of " + recordSize + " bytes is too large for a segment");
+        }
+        if (active != null) {
+            active.buffer.force();
+        }
+        Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        Segment segment = map(number, path, size);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        segments.put(number, segment);
+        lastSegmentNumber = number;
+        active = segment;
+        return segment;
+    }
+
+    private static Segment map(int number, Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new Segment(number, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), SEGMENT_HEADER_SIZE);
+        }
+    }
+
+    /**
+     * Finds the end of the records of {@code segment} and indexes them.
+     */
+    private void recover(Segment segment) throws IOException {
+        ByteBuffer buffer = segment.buffer;
+        if (buffer.capacity() < SEGMENT_HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an activity log segment: " + segment.path);
+        }
+        int offset = SEGMENT_HEADER_SIZE;
+        while (offset <= buffer.capacity() - RECORD_HEADER_SIZE) {
+            int payloadLength = buffer.getInt(offset);
+            int idLength = buffer.getShort(offset + 9) & 0xffff;
+            if (payloadLength <= 0 || payloadLength > buffer.capacity() - offset - RECORD_HEADER_SIZE - idLength
+                    || buffer.getInt(offset + 4) != checksum(segment, offset, idLength, payloadLength)) {
+                break;
+            }
+            byte[] idBytes = idBytes(segment, offset);
+            index.put(hash(idBytes), location(segment.number, offset), candidate -> idMatches(candidate, idBytes));
+            offset = next(segment, offset);
+        }
+        segment.end = offset;
+    }
+
+    private byte flags(long location) {
+        return segments.get(segmentNumber(location)).buffer.get(offset(location) + 8);
+    }
+
+    private long find(String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        return index.get(hash(idBytes), candidate -> idMatches(candidate, idBytes));
+    }
+
+    private boolean idMatches(long location, byte[] idBytes) {
+        Segment segment = segments.get(segmentNumber(location));
+        int offset = offset(location);
+        if ((segment.buffer.getShort(offset + 9) & 0xffff) != idBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < idBytes.length; i++) {
+            if (segment.buffer.get(offset + RECORD_HEADER_SIZE + i) != idBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] idBytes(Segment segment, int offset) {
+        byte[] idBytes = new byte[segment.buffer.getShort(offset + 9) & 0xffff];
+        ByteBuffer id = segment.buffer.duplicate();
+        id.position(offset + RECORD_HEADER_SIZE);
+        id.get(idBytes);
+        return idBytes;
+    }
+
+    private static int next(Segment segment, int offset) {
+        return offset + RECORD_HEADER_SIZE + (segment.buffer.getShort(offset + 9) & 0xffff) + segment.buffer.getInt(offset);
+    }
+
+    private int checksum(Segment segment, int offset, int idLength, int payloadLength) {
+        ByteBuffer content = segment.buffer.duplicate();
+        content.limit(offset + RECORD_HEADER_SIZE + idLength + payloadLength).position(offset + RECORD_HEADER_SIZE);
+        crc.reset();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 64-bit FNV-1a with a final mix, so the low bits the index probes with depend on every byte.
+     */
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segmentNumber(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Activity log is closed");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.teacai.activitypub.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Open-addressing hash table from ids to record locations, kept in a direct buffer so a large log
+ * costs no heap and no garbage collection work.
+ * <p>
+ * Each slot holds the 64-bit hash of an id and the location of its record, location {@code 0} marks
+ * an empty slot. Ids themselves are not stored: the caller confirms a candidate through a
+ * {@link KeyMatcher} that compares the id of the record at that location. Slots are probed linearly
+ * and the table doubles when it is three quarters full. Not thread-safe.
+ */
+final class OffsetIndex {
+
+    /**
+     * Decides whether the record at {@code location} has the id being looked up.
+     */
+    interface KeyMatcher {
+        boolean matches(long location);
+    }
+
+    private static final int SLOT_SIZE = 16;
+
+    private ByteBuffer slots;
+
+    private int capacity;
+
+    private int size;
+
+    OffsetIndex(int expectedSize) {
+        capacity = Integer.highestOneBit(Math.max(16, expectedSize * 4 / 3) - 1) << 1;
+        slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the location of the matching entry, or {@code 0}
+     */
+    long get(long hash, KeyMatcher matcher) {
+        for (int slot = slot(hash, capacity); ; slot = (slot + 1) & (capacity - 1)) {
+            long location = slots.getLong(slot * SLOT_SIZE + 8);
+            if (location == 0) {
+                return 0;
+            }
+            if (slots.getLong(slot * SLOT_SIZE) == hash && matcher.matches(location)) {
+                return location;
+            }
+        }
+    }
+
+    /**
+     * Points the matching entry at {@code location}, or adds an entry if there is none.
+     *
+     * @return the previous location, or {@code 0}
+     */
+    long put(long hash, long location, KeyMatcher matcher) {
+        if (location == 0) {
+            throw new IllegalArgumentException("Location 0 marks empty slots");
+        }
+        for (int slot = slot(hash, capacity); ; slot = (slot + 1) & (capacity - 1)) {
+            long current = slots.getLong(slot * SLOT_SIZE + 8);
+            if (current == 0) {
+                slots.putLong(slot * SLOT_SIZE, hash);
+                slots.putLong(slot * SLOT_SIZE + 8, location);
+                if (++size > capacity / 4 * 3) {
+                    grow();
+                }
+                return 0;
+            }
+            if (slots.getLong(slot * SLOT_SIZE) == hash && matcher.matches(current)) {
+                slots.putLong(slot * SLOT_SIZE + 8, location);
+                return current;
+            }
+        }
+    }
+
+    private void grow() {
+        int newCapacity = capacity << 1;
+        if (newCapacity <= 0 || (long) newCapacity * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Index is full at " + size + " entries");
+        }
+        ByteBuffer newSlots = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+        for (int slot = 0; slot < capacity; slot++) {
+            long location = slots.getLong(slot * SLOT_SIZE + 8);
+            if (location != 0) {
+                long hash = slots.getLong(slot * SLOT_SIZE);
+                int target = slot(hash, newCapacity);
+                while (newSlots.getLong(target * SLOT_SIZE + 8) != 0) {
+                    target = (target + 1) & (newCapacity - 1);
+                }
+                newSlots.putLong(target * SLOT_SIZE, hash);
+                newSlots.putLong(target * SLOT_SIZE + 8, location);
+            }
+        }
+        slots = newSlots;
+        capacity = newCapacity;
+    }
+
+    private static int slot(long hash, int capacity) {
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+}
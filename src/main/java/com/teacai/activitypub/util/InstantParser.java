@@ -0,0 +1,222 @@
+package com.teacai.activitypub.util;
+
+import java.nio.CharBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses the ISO-8601 timestamps found in ActivityStreams documents.
+ * <p>
+ * The common forms {@code yyyy-MM-ddTHH:mm[:ss[.fraction]]} followed by {@code Z}, an offset such as
+ * {@code +02:00}, {@code +0200} or {@code +02} are decoded directly from the characters, allocating
+ * only the resulting {@link Instant}. The fast path also accepts what some servers emit in the wild:
+ * a lowercase {@code t} / {@code z}, a space instead of {@code T}, a {@code UTC} suffix, more than
+ * nine fraction digits (truncated) and a missing zone, which is read as UTC. Anything else, such as
+ * leap seconds or years beyond four digits, goes through the JDK parsers and fails with their
+ * {@link DateTimeParseException}.
+ */
+public final class InstantParser {
+
+    private static final long DAYS_0000_TO_1970 = 719528L;
+
+    private static final int MAX_SLOW_PATH_LENGTH = 64;
+
+    private static final int[] NANO_SCALE = {
+            1_000_000_000, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1
+    };
+
+    private InstantParser() {
+    }
+
+    public static Instant parse(CharSequence text) {
+        Instant instant = parseFast(text);
+        return instant != null ? instant : parseSlow(text.toString());
+    }
+
+    /**
+     * Same as {@link #parse(CharSequence)} for a region of a character buffer, such as the text buffer
+     * of a {@code JsonParser}.
+     */
+    public static Instant parse(char[] text, int offset, int length) {
+        return parse(CharBuffer.wrap(text, offset, length));
+    }
+
+    /**
+     * Same as {@link #parse(CharSequence)}, but returns {@code null} instead of throwing. Texts that are
+     * too long to be a timestamp are rejected without trying the JDK parsers.
+     */
+    public static Instant tryParse(CharSequence text) {
+        Instant instant = parseFast(text);
+        if (instant != null || text.length() > MAX_SLOW_PATH_LENGTH) {
+            return instant;
+        }
+        try {
+            return parseSlow(text.toString());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the instant, or {@code null} when {@code s} is not in one of the fast path forms
+     */
+    public static Instant parseFast(CharSequence s) {
+        int length = s.length();
+        if (length < 16) {
+            return null;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        char separator = s.charAt(10);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(13) != ':'
+                || (separator != 'T' && separator != 't' && separator != ' ')) {
+            return null;
+        }
+
+        int pos = 16;
+        int second = 0;
+        int nanos = 0;
+        if (pos < length && s.charAt(pos) == ':') {
+            second = digits(s, pos + 1, 2);
+            if (second < 0 || second > 59) {
+                return null;
+            }
+            pos += 3;
+            if (pos < length && (s.charAt(pos) == '.' || s.charAt(pos) == ',')) {
+                int start = ++pos;
+                while (pos < length && isDigit(s.charAt(pos))) {
+                    if (pos - start < 9) {
+                        nanos = nanos * 10 + (s.charAt(pos) - '0');
+                    }
+                    pos++;
+                }
+                if (pos == start) {
+                    return null;
+                }
+                nanos *= NANO_SCALE[Math.min(9, pos - start)];
+            }
+        }
+
+        int offsetSeconds = 0;
+        if (pos < length) {
+            char zone = s.charAt(pos);
+            if (zone == 'Z' || zone == 'z') {
+                pos++;
+            } else if (zone == '+' || zone == '-') {
+                int offsetHours = digits(s, pos + 1, 2);
+                pos += 3;
+                int offsetMinutes = 0;
+                if (pos < length) {
+                    if (s.charAt(pos) == ':') {
+                        pos++;
+                    }
+                    offsetMinutes = digits(s, pos, 2);
+                    pos += 2;
+                }
+                if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    return null;
+                }
+                offsetSeconds = (zone == '-' ? -1 : 1) * (offsetHours * 3600 + offsetMinutes * 60);
+            } else if (isUtcSuffix(s, pos, length)) {
+                pos = length;
+            } else {
+                return null;
+            }
+        }
+        if (pos != length) {
+            return null;
+        }
+
+        long epochSecond = toEpochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    private static Instant parseSlow(String text) {
+        try {
+            return Instant.parse(text);
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant();
+            } catch (DateTimeParseException ignored) {
+                // not an offset date-time either
+            }
+            try {
+                return LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME).toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException ignored) {
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isUtcSuffix(CharSequence s, int pos, int length) {
+        if (pos < length && s.charAt(pos) == ' ') {
+            pos++;
+        }
+        return length - pos == 3 && s.charAt(pos) == 'U' && s.charAt(pos + 1) == 'T' && s.charAt(pos + 2) == 'C';
+    }
+
+    /**
+     * @return the value of {@code count} decimal digits at {@code start}, or -1 if they are not all digits
+     */
+    private static int digits(CharSequence s, int start, int count) {
+        if (start + count > s.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Same computation as {@link java.time.LocalDate#toEpochDay()} for years 0 to 9999.
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}
@@ -0,0 +1,74 @@
+package com.teacai.activitypub.util;
+
+import com.teacai.activitypub.model.ImmutableLink;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded table of shared {@link ImmutableLink} instances for bare URL references, so that URL lists
+ * such as collection pages or audiences repeated across objects allocate one link per distinct URL.
+ * <p>
+ * Like {@link StringCanonicalizer} the table is direct mapped and lock-free: a colliding URL replaces
+ * the previous occupant. Use one instance per parser to share links globally, or a short lived one
+ * per batch to bound how long links are retained.
+ */
+public class LinkCache {
+
+    private final AtomicReferenceArray<ImmutableLink> table;
+
+    private final int mask;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public LinkCache(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public ImmutableLink get(String href) {
+        int slot = spread(href.hashCode()) & mask;
+        ImmutableLink existing = table.get(slot);
+        if (existing != null && href.equals(existing.getHref())) {
+            return existing;
+        }
+        ImmutableLink created = create(href);
+        table.lazySet(slot, created);
+        return created;
+    }
+
+    /**
+     * Same as {@link #get(String)} for a region of a character buffer, no String is created when the
+     * link is already in the table.
+     */
+    public ImmutableLink get(char[] href, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + href[i];
+        }
+        int slot = spread(hash) & mask;
+        ImmutableLink existing = table.get(slot);
+        if (existing != null && StringCanonicalizer.matches(existing.getHref(), href, offset, length)) {
+            return existing;
+        }
+        ImmutableLink created = create(new String(href, offset, length));
+        table.lazySet(slot, created);
+        return created;
+    }
+
+    private static ImmutableLink create(String href) {
+        ImmutableLink wellKnown = ImmutableLink.forWellKnown(href);
+        return wellKnown != null ? wellKnown : new ImmutableLink(href);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
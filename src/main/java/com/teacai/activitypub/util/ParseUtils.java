@@ -1,9 +1,23 @@
 package com.teacai.activitypub.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.ObjectType;
+
+import java.io.IOException;
+import java.io.StringWriter;
 import java.time.Instant;
 
 public class ParseUtils {
 
+    private static final int MAX_NUMBER_LENGTH = 64;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
     public static String strValue(Object obj) {
         return strValue(obj, null);
     }
@@ -13,14 +27,147 @@ public class ParseUtils {
     }
 
     public static Integer intValue(Object obj) {
+        if (obj instanceof Integer) {
+            return (Integer) obj;
+        }
         return obj == null ? null : Integer.parseInt(obj.toString());
     }
 
+    /**
+     * Parses a plain decimal integer such as {@code -12} without throwing.
+     *
+     * @return the value, or {@code null} if {@code s} is not a decimal integer or out of range
+     */
+    public static Integer parseInteger(CharSequence s) {
+        int length = s.length();
+        int start = length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+') ? 1 : 0;
+        if (length == start || length - start > 10) {
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (s.charAt(0) == '-') {
+            value = -value;
+        }
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? null : (int) value;
+    }
+
+    /**
+     * Parses a decimal number such as {@code -1.5e3} without throwing.
+     *
+     * @return the value, or {@code null} if {@code s} is not a decimal number
+     */
+    public static Double parseDouble(CharSequence s) {
+        int length = s.length();
+        if (length > MAX_NUMBER_LENGTH) {
+            return null;
+        }
+        int i = length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+') ? 1 : 0;
+        int digits = 0;
+        for (; i < length && isDigit(s.charAt(i)); i++) {
+            digits++;
+        }
+        if (i < length && s.charAt(i) == '.') {
+            for (i++; i < length && isDigit(s.charAt(i)); i++) {
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        if (i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < length && isDigit(s.charAt(i))) {
+                i++;
+            }
+            if (i == exponent) {
+                return null;
+            }
+        }
+        return i == length ? Double.parseDouble(s.toString()) : null;
+    }
+
     public static Instant instantValue(Object obj) {
-        return obj == null ? null : Instant.parse(obj.toString());
+        return obj == null ? null : InstantParser.parse(obj.toString());
     }
 
     public static Double doubleValue(Object obj) {
+        if (obj instanceof Double) {
+            return (Double) obj;
+        } else if (obj instanceof Integer || obj instanceof Long) {
+            return ((Number) obj).doubleValue();
+        }
         return obj == null ? null : Double.parseDouble(obj.toString());
     }
+
+    /**
+     * Whether {@code object} is a link that carries nothing but an {@code href}, such as the ones the
+     * parsers create for properties given as a bare URL.
+     */
+    public static boolean isBareLink(ActivityStreamsObject object) {
+        if (!(object instanceof Link)) {
+            return false;
+        }
+        Link link = (Link) object;
+        return link.getHref() != null
+                && link.getType() == ObjectType.Link
+                && link.getId() == null
+                && link.getName() == null
+                && link.getHrefLang() == null
+                && link.getRel() == null
+                && !link.hasHeight()
+                && !link.hasWidth()
+                && link.getPreview() == null
+                && (link.getAtContext() == null || ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS.equals(link.getAtContext()));
+    }
+
+    /**
+     * Whether {@code context} is the JSON text of an array or object {@code @context} rather than an IRI.
+     */
+    public static boolean isStructuredContext(String context) {
+        return context != null && !context.isEmpty() && (context.charAt(0) == '[' || context.charAt(0) == '{');
+    }
+
+    /**
+     * Renders a value read by an {@link ObjectMapper}, such as a map or list, as compact JSON text.
+     */
+    public static String toJson(Object value) throws IOException {
+        return JSON.writeValueAsString(value);
+    }
+
+    /**
+     * Renders the value at the current token of {@code parser} as compact JSON text, leaving the parser
+     * at its last token.
+     */
+    public static String toJson(JsonParser parser) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON.getFactory().createGenerator(json)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Writes JSON text to {@code generator} as structure, so it also works for binary formats.
+     */
+    public static void writeJson(String json, JsonGenerator generator) throws IOException {
+        try (JsonParser parser = JSON.getFactory().createParser(json)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 }
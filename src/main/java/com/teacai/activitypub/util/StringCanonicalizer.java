@@ -0,0 +1,84 @@
+package com.teacai.activitypub.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded table mapping equal strings to one shared instance, so the URLs that repeat across
+ * thousands of parsed objects (actors, audiences, contexts) are retained once.
+ * <p>
+ * The table is direct mapped: each string hashes to a single slot and a colliding string simply
+ * replaces the previous occupant. Memory is fixed by the capacity, lookups and updates are lock-free
+ * and a lost race only means a string is not shared.
+ */
+public class StringCanonicalizer {
+
+    private final AtomicReferenceArray<String> table;
+
+    private final int mask;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public StringCanonicalizer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public String canonicalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        int slot = spread(value.hashCode()) & mask;
+        String existing = table.get(slot);
+        if (value.equals(existing)) {
+            return existing;
+        }
+        table.lazySet(slot, value);
+        return value;
+    }
+
+    /**
+     * Same as {@link #canonicalize(String)} for a region of a character buffer, such as the text
+     * buffer of a {@code JsonParser}; no String is created when the value is already in the table.
+     */
+    public String canonicalize(char[] value, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + value[i];
+        }
+        int slot = spread(hash) & mask;
+        String existing = table.get(slot);
+        if (existing != null && matches(existing, value, offset, length)) {
+            return existing;
+        }
+        String created = new String(value, offset, length);
+        table.lazySet(slot, created);
+        return created;
+    }
+
+    /**
+     * Whether the region of {@code value} holds the same characters as {@code existing}.
+     */
+    public static boolean matches(String existing, char[] value, int offset, int length) {
+        if (existing.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (existing.charAt(i) != value[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
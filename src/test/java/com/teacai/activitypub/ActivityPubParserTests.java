@@ -8,6 +8,7 @@ import com.teacai.activitypub.model.ActivityStreamsFields;
 import com.teacai.activitypub.model.ActivityStreamsObject;
 import com.teacai.activitypub.model.BaseObject;
 import com.teacai.activitypub.model.CollectionPage;
+import com.teacai.activitypub.model.ImmutableLink;
 import com.teacai.activitypub.model.Link;
 import com.teacai.activitypub.model.ObjectType;
 import com.teacai.activitypub.model.OrderedCollection;
@@ -16,16 +17,40 @@ import com.teacai.activitypub.model.Place;
 import com.teacai.activitypub.model.Question;
 import com.teacai.activitypub.model.Tombstone;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ActivityPubParserTests {
 
-	private final ActivityPubParser parser = new ActivityPubParser(new ObjectMapper());
+	private final ActivityPubParser parser = createParser();
+
+	ActivityPubParser createParser() {
+		return new ActivityPubParser(new ObjectMapper());
+	}
+
+	ActivityPubParser createParser(ParserLimits limits) {
+		return new ActivityPubParser(new ObjectMapper(), limits);
+	}
 
 	@Test
 	void parseEx001() throws JsonProcessingException {
@@ -1373,4 +1398,323 @@ class ActivityPubParserTests {
 		assertEquals(ObjectType.Note, ((OrderedCollectionPage) object).getOrderedItems().get(1).getType());
 	}
 
+	private static final String NOTE = "{\n" +
+			"  \"@context\": \"https://www.w3.org/ns/activitystreams\",\n" +
+			"  \"type\": \"Note\",\n" +
+			"  \"id\": \"http://example.org/notes/1\",\n" +
+			"  \"content\": \"Caf\u00e9 \u2615\"\n" +
+			"}";
+
+	@Test
+	void parseBytes() throws IOException {
+		byte[] json = NOTE.getBytes(StandardCharsets.UTF_8);
+		byte[] padded = new byte[json.length + 8];
+		System.arraycopy(json, 0, padded, 4, json.length);
+
+		assertNote(parser.parse(json));
+		assertNote(parser.parse(padded, 4, json.length));
+		assertNote(parser.parse(new ByteArrayInputStream(json)));
+	}
+
+	@Test
+	void parseByteBuffer() throws IOException {
+		byte[] json = NOTE.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer heap = ByteBuffer.allocate(json.length + 4);
+		heap.position(4);
+		heap.put(json).position(4);
+		ByteBuffer direct = ByteBuffer.allocateDirect(json.length);
+		direct.put(json).flip();
+
+		assertNote(parser.parse(heap.slice()));
+		assertNote(parser.parse(heap));
+		assertEquals(4, heap.position());
+		assertNote(parser.parse(direct));
+		assertEquals(0, direct.position());
+		assertNote(parser.parse(direct.asReadOnlyBuffer()));
+	}
+
+	@Test
+	void parseDataBuffer() throws IOException {
+		DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(NOTE.getBytes(StandardCharsets.UTF_8));
+
+		assertNote(parser.parse(buffer));
+		assertEquals(0, buffer.readableByteCount());
+	}
+
+	@Test
+	void parseAllNdjson() throws IOException {
+		String json = "{\"type\": \"Note\", \"id\": \"http://example.org/notes/1\"}\n" +
+				"{\"type\": \"Like\", \"object\": \"http://example.org/notes/1\"}\n" +
+				"null\n" +
+				"{\"type\": \"Person\", \"name\": \"Sally\"}\n";
+
+		try (Stream<ActivityStreamsObject> objects = parser.parseAll(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+			List<ActivityStreamsObject> list = objects.collect(Collectors.toList());
+			assertEquals(3, list.size());
+			assertEquals("http://example.org/notes/1", list.get(0).getId());
+			assertEquals(ObjectType.Like, list.get(1).getType());
+			assertEquals("Sally", list.get(2).getName());
+		}
+	}
+
+	@Test
+	void parseAllArray() throws IOException {
+		String json = "[\n" +
+				"  {\"type\": \"Note\", \"id\": \"http://example.org/notes/1\"},\n" +
+				"  {\"type\": \"Note\", \"id\": \"http://example.org/notes/2\"}\n" +
+				"]";
+
+		try (Stream<ActivityStreamsObject> objects = parser.parseAll(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+			assertEquals(Arrays.asList("http://example.org/notes/1", "http://example.org/notes/2"),
+					objects.map(ActivityStreamsObject::getId).collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	void parseProjection() throws IOException {
+		String json = "{\n" +
+				"  \"id\": \"http://example.org/create/1\",\n" +
+				"  \"type\": \"Create\",\n" +
+				"  \"actor\": {\"type\": \"Person\", \"name\": \"Sally\"},\n" +
+				"  \"summary\": \"Sally created a note\",\n" +
+				"  \"to\": \"https://www.w3.org/ns/activitystreams#Public\",\n" +
+				"  \"object\": [\n" +
+				"    {\"type\": \"Note\", \"name\": \"A\", \"content\": \"one\", \"tag\": [{\"type\": \"Mention\"}]},\n" +
+				"    \"http://example.org/notes/2\"\n" +
+				"  ]\n" +
+				"}";
+
+		Activity create = (Activity) parser.parse(json, Projection.of("actor", "to", "object.content"));
+
+		assertEquals(ObjectType.Create, create.getType());
+		assertNull(create.getId());
+		assertNull(create.getSummary());
+		assertEquals("Sally", create.getActors().get(0).getName());
+		assertEquals("https://www.w3.org/ns/activitystreams#Public", ((Link) create.getTo()).getHref());
+		assertEquals(2, create.getObjects().size());
+		BaseObject note = (BaseObject) create.getObjects().get(0);
+		assertEquals(ObjectType.Note, note.getType());
+		assertEquals("one", note.getContent());
+		assertNull(note.getName());
+		assertNull(note.getTag());
+		assertEquals("http://example.org/notes/2", ((Link) create.getObjects().get(1)).getHref());
+	}
+
+	@Test
+	void collapseDefaultContext() throws IOException {
+		ActivityStreamsObject object = parser.parse(NOTE.getBytes(StandardCharsets.UTF_8));
+
+		assertSame(ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS, object.getAtContext());
+	}
+
+	@Test
+	void shareWellKnownLinks() throws IOException {
+		BaseObject note = (BaseObject) parser.parse("{\"type\": \"Note\", \"to\": \"https://www.w3.org/ns/activitystreams#Public\", \"cc\": \"as:Public\"}");
+
+		assertSame(ImmutableLink.PUBLIC, note.getTo());
+		assertEquals("as:Public", ((Link) note.getCc()).getHref());
+		assertThrows(UnsupportedOperationException.class, () -> ((Link) note.getTo()).setHref("https://example.org"));
+	}
+
+	@Test
+	void readAddressingAsLists() throws IOException {
+		String json = "{\"type\": \"Note\", \"to\": [\"https://www.w3.org/ns/activitystreams#Public\", \"https://example.org/bob\"], " +
+				"\"cc\": [\"https://example.org/followers\", \"https://example.org/carol\"], \"bcc\": [\"https://example.org/dave\"], " +
+				"\"tag\": [{\"type\": \"Mention\", \"name\": \"@bob\"}, {\"type\": \"Hashtag\", \"name\": \"#cats\"}], " +
+				"\"attachment\": [{\"type\": \"Image\", \"url\": \"https://example.org/a.png\"}, {\"type\": \"Image\", \"url\": \"https://example.org/b.png\"}]}";
+
+		BaseObject note = (BaseObject) parser.parse(json);
+		BaseObject reparsed = (BaseObject) parser.parse(new ActivityPubWriter(new ObjectMapper()).writeAsString(note));
+
+		for (BaseObject object : Arrays.asList(note, reparsed)) {
+			assertEquals(2, object.getToList().size());
+			assertEquals("https://example.org/bob", ((Link) object.getToList().get(1)).getHref());
+			assertEquals(ImmutableLink.PUBLIC, object.getTo());
+			assertEquals(2, object.getCcList().size());
+			assertEquals("https://example.org/dave", ((Link) object.getBcc()).getHref());
+			assertNull(object.getBtoList());
+			assertEquals(Arrays.asList("@bob", "#cats"), object.getTagList().stream().map(ActivityStreamsObject::getName).collect(Collectors.toList()));
+			assertEquals("@bob", object.getTag().getName());
+			assertEquals(2, object.getAttachmentList().size());
+			assertNull(object.getAudience());
+		}
+	}
+
+	@Test
+	void readNumbersAsPrimitives() throws IOException {
+		Place place = (Place) parser.parse("{\"type\": \"Place\", \"latitude\": 36.75, \"longitude\": -119, \"radius\": \"15.5\"}");
+
+		assertTrue(place.hasLatitude());
+		assertEquals(36.75, place.getLatitudeAsDouble());
+		assertEquals(-119.0, place.getLongitude());
+		assertEquals(15.5, place.getRadiusAsDouble());
+		assertFalse(place.hasAltitude());
+		assertNull(place.getAltitude());
+		assertEquals(0.0, place.getAltitudeAsDouble());
+
+		Link link = (Link) parser.parse("{\"type\": \"Link\", \"href\": \"https://example.org/a.png\", \"width\": 0}");
+
+		assertTrue(link.hasWidth());
+		assertEquals(0, link.getWidthAsInt());
+		assertEquals(Integer.valueOf(0), link.getWidth());
+		assertFalse(link.hasHeight());
+		assertNull(link.getHeight());
+
+		link.setWidth(null);
+		assertFalse(link.hasWidth());
+		assertNull(link.getWidth());
+
+		OrderedCollectionPage page = (OrderedCollectionPage) parser.parse("{\"type\": \"OrderedCollectionPage\", \"totalItems\": 2, \"startIndex\": 1}");
+
+		assertEquals(2, page.getTotalItemsAsInt());
+		assertEquals(1, page.getStartIndexAsInt());
+		assertTrue(page.hasStartIndex());
+	}
+
+	private static final String INVALID_VALUES = "{\n" +
+			"  \"type\": \"Note\",\n" +
+			"  \"published\": \"yesterday\",\n" +
+			"  \"content\": \"Still here\",\n" +
+			"  \"attachment\": {\"type\": \"Link\", \"href\": \"https://example.org/a.png\", \"width\": \"wide\", \"height\": 480},\n" +
+			"  \"location\": {\"type\": \"Place\", \"latitude\": \"north\", \"longitude\": \"-119.5\"},\n" +
+			"  \"replies\": {\"type\": \"Collection\", \"totalItems\": 30000000000}\n" +
+			"}";
+
+	@Test
+	void parseLeniently() throws IOException {
+		assertThrows(RuntimeException.class, () -> parser.parse(INVALID_VALUES));
+
+		ParseDiagnostics diagnostics = new ParseDiagnostics();
+		BaseObject note = (BaseObject) parser.parse(INVALID_VALUES, diagnostics);
+
+		assertEquals("Still here", note.getContent());
+		assertNull(note.getPublished());
+		Link attachment = (Link) note.getAttachment();
+		assertNull(attachment.getWidth());
+		assertEquals(480, attachment.getHeight());
+		Place location = (Place) note.getLocation();
+		assertNull(location.getLatitude());
+		assertEquals(-119.5, location.getLongitude());
+		assertNull(note.getReplies().getTotalItems());
+
+		assertEquals(4, diagnostics.getProblemCount());
+		List<String> problems = new ArrayList<>();
+		for (int i = 0; i < diagnostics.getRecordedCount(); i++) {
+			problems.add(diagnostics.getError(i) + " " + diagnostics.getField(i));
+		}
+		problems.sort(null);
+		assertEquals(Arrays.asList("INVALID_NUMBER latitude", "INVALID_NUMBER totalItems", "INVALID_NUMBER width",
+				"INVALID_TIMESTAMP published"), problems);
+
+		parser.parse(NOTE, diagnostics);
+		assertFalse(diagnostics.hasProblems());
+	}
+
+	@Test
+	void reportInvalidTimestampsLeniently() throws IOException {
+		String json = "{\"type\": \"Event\", \"content\": \"Meetup\", \"published\": \"2023-06-01\", " +
+				"\"startTime\": \"Thu, 01 Jun 2023 12:00:00 GMT\", \"endTime\": \"2023-06-01T14:00:00Z\"}";
+
+		assertThrows(DateTimeParseException.class, () -> parser.parse(json));
+
+		ParseDiagnostics diagnostics = new ParseDiagnostics();
+		BaseObject event = (BaseObject) parser.parse(json, diagnostics);
+
+		assertEquals("Meetup", event.getContent());
+		assertNull(event.getPublished());
+		assertNull(event.getStartTime());
+		assertEquals(Instant.parse("2023-06-01T14:00:00Z"), event.getEndTime());
+		assertEquals(2, diagnostics.getProblemCount());
+		assertEquals(ParseError.INVALID_TIMESTAMP, diagnostics.getError(0));
+		assertEquals(ActivityStreamsFields.PUBLISHED, diagnostics.getField(0));
+	}
+
+	@Test
+	void reportSkippedItems() throws IOException {
+		String json = "{\"type\": \"Collection\", \"to\": 5, " +
+				"\"items\": [1, null, [\"nested\"], \"http://example.org/a\", {\"type\": \"Note\"}]}";
+
+		assertEquals(2, ((BaseCollection) parser.parse(json)).getItems().size());
+
+		ParseDiagnostics diagnostics = new ParseDiagnostics();
+		BaseCollection collection = (BaseCollection) parser.parse(json, diagnostics);
+
+		assertEquals(2, collection.getItems().size());
+		assertEquals(4, diagnostics.getProblemCount());
+		List<String> problems = new ArrayList<>();
+		for (int i = 0; i < diagnostics.getRecordedCount(); i++) {
+			problems.add(diagnostics.getError(i) + " " + diagnostics.getField(i));
+		}
+		problems.sort(null);
+		assertEquals(Arrays.asList("INVALID_ITEM items", "INVALID_ITEM items", "INVALID_ITEM items", "INVALID_ITEM to"), problems);
+	}
+
+	@Test
+	void limitRecordedProblems() throws IOException {
+		ParseDiagnostics diagnostics = new ParseDiagnostics(1);
+		parser.parse(INVALID_VALUES.getBytes(StandardCharsets.UTF_8), diagnostics);
+
+		assertEquals(4, diagnostics.getProblemCount());
+		assertEquals(1, diagnostics.getRecordedCount());
+		assertThrows(IndexOutOfBoundsException.class, () -> diagnostics.getError(1));
+	}
+
+	@Test
+	void enforceLimits() throws IOException {
+		ParserLimits limits = new ParserLimits(8, 3, 20, 64, -1);
+		ActivityPubParser limited = createParser(limits);
+		assertNote(limited.parse(NOTE));
+
+		StringBuilder nested = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			nested.append("{\"type\": \"Announce\", \"object\": ");
+		}
+		nested.append("\"https://example.org/notes/1\"");
+		for (int i = 0; i < 10; i++) {
+			nested.append('}');
+		}
+		assertLimit(ParserLimits.Limit.DEPTH, () -> limited.parse(nested.toString()));
+		assertLimit(ParserLimits.Limit.ITEMS, () -> limited.parse("{\"type\": \"Collection\", \"items\": [\"a\", \"b\", \"c\", \"d\"]}"));
+		assertLimit(ParserLimits.Limit.ITEMS, () -> limited.parse("{\"type\": \"Note\", \"x:ignored\": [[1, 2, 3, 4]]}"));
+		assertLimit(ParserLimits.Limit.STRING_LENGTH, () -> limited.parse("{\"type\": \"Note\", \"content\": \"" + repeat('x', 65) + "\"}"));
+
+		StringBuilder crowded = new StringBuilder("{\"type\": \"Note\"");
+		for (int i = 0; i < 20; i++) {
+			crowded.append(", \"x:").append(i).append("\": {}");
+		}
+		assertLimit(ParserLimits.Limit.OBJECTS, () -> limited.parse(crowded.append('}').toString()));
+
+		assertEquals(1, limits.getExceededCount(ParserLimits.Limit.DEPTH));
+		assertEquals(2, limits.getExceededCount(ParserLimits.Limit.ITEMS));
+		assertEquals(0, limits.getExceededCount(ParserLimits.Limit.BYTES));
+	}
+
+	@Test
+	void limitPayloadSize() throws IOException {
+		ParserLimits limits = new ParserLimits(-1, -1, -1, -1, NOTE.length() - 1);
+		ActivityPubParser limited = createParser(limits);
+		byte[] json = NOTE.getBytes(StandardCharsets.UTF_8);
+
+		assertLimit(ParserLimits.Limit.BYTES, () -> limited.parse(json));
+		String padded = NOTE.replace("{", "{" + repeat(' ', 1000) + "\"x:padding\": [" + repeat('1', 400).replace("1", "1,") + "1],");
+		assertLimit(ParserLimits.Limit.BYTES, () -> limited.parse(new ByteArrayInputStream(padded.getBytes(StandardCharsets.UTF_8))));
+		assertEquals(2, limits.getExceededCount(ParserLimits.Limit.BYTES));
+	}
+
+	private static void assertLimit(ParserLimits.Limit limit, Executable parse) {
+		assertEquals(limit, assertThrows(ParserLimitException.class, parse).getLimit());
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	private static void assertNote(ActivityStreamsObject object) {
+		assertEquals(ObjectType.Note, object.getType());
+		assertEquals("http://example.org/notes/1", object.getId());
+		assertEquals("Caf\u00e9 \u2615", ((BaseObject) object).getContent());
+	}
+
 }
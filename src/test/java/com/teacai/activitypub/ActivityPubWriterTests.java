@@ -0,0 +1,212 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.ObjectType;
+import com.teacai.activitypub.model.OrderedCollectionPage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityPubWriterTests {
+
+	private static final String CREATE = "{\n" +
+			"  \"@context\": \"https://www.w3.org/ns/activitystreams\",\n" +
+			"  \"type\": \"Create\",\n" +
+			"  \"id\": \"https://example.org/create/1\",\n" +
+			"  \"actor\": {\"type\": \"Person\", \"id\": \"https://example.org/sally\", \"name\": \"Sally\"},\n" +
+			"  \"to\": \"https://www.w3.org/ns/activitystreams#Public\",\n" +
+			"  \"published\": \"2023-06-01T12:00:00Z\",\n" +
+			"  \"object\": {\n" +
+			"    \"type\": \"Note\",\n" +
+			"    \"content\": \"Caf\\u00e9 \\\"quoted\\\"\",\n" +
+			"    \"inReplyTo\": [\"https://example.org/a\", \"https://example.org/b\"],\n" +
+			"    \"tag\": {\"type\": \"Mention\", \"href\": \"https://example.org/bob\", \"name\": \"@bob\"},\n" +
+			"    \"attachment\": {\"type\": \"Link\", \"href\": \"https://example.org/img.png\", \"mediaType\": \"image/png\", \"width\": 640}\n" +
+			"  }\n" +
+			"}";
+
+	private static final String PAGE = "{\n" +
+			"  \"@context\": \"https://www.w3.org/ns/activitystreams\",\n" +
+			"  \"type\": \"OrderedCollectionPage\",\n" +
+			"  \"partOf\": \"https://example.org/outbox\",\n" +
+			"  \"next\": \"https://example.org/outbox?page=2\",\n" +
+			"  \"startIndex\": 0,\n" +
+			"  \"totalItems\": 3,\n" +
+			"  \"orderedItems\": [\n" +
+			"    \"https://example.org/1\",\n" +
+			"    {\"type\": \"Note\", \"content\": \"two\"},\n" +
+			"    {\"type\": \"Place\", \"name\": \"Home\", \"latitude\": 36.75, \"longitude\": -119.7667, \"units\": \"km\"},\n" +
+			"    {\"type\": \"Tombstone\", \"formerType\": \"Article\", \"deleted\": \"2016-03-17T00:00:00Z\"},\n" +
+			"    {\"type\": \"x:Custom\", \"id\": \"https://example.org/custom\"}\n" +
+			"  ]\n" +
+			"}";
+
+	private static final String QUESTION = "{\n" +
+			"  \"@context\": \"https://example.org/context\",\n" +
+			"  \"type\": \"Question\",\n" +
+			"  \"name\": \"Which?\",\n" +
+			"  \"oneOf\": [{\"type\": \"Note\", \"name\": \"A\"}, {\"type\": \"Note\", \"name\": \"B\"}],\n" +
+			"  \"closed\": \"2016-05-10T00:00:00Z\"\n" +
+			"}";
+
+	private static final String MASTODON_NOTE = "{\n" +
+			"  \"@context\": [\"https://www.w3.org/ns/activitystreams\", {\"ostatus\": \"http://ostatus.org#\", " +
+			"\"sensitive\": \"as:sensitive\", \"Hashtag\": \"as:Hashtag\", \"votersCount\": {\"@id\": \"toot:votersCount\", \"@type\": \"xsd:integer\"}}],\n" +
+			"  \"type\": \"Note\",\n" +
+			"  \"id\": \"https://mastodon.example/users/sally/statuses/1\",\n" +
+			"  \"content\": \"<p>Hello</p>\"\n" +
+			"}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final ActivityPubParser parser = new StreamingActivityPubParser(objectMapper);
+
+	private final ActivityPubWriter writer = new ActivityPubWriter(objectMapper);
+
+	@Test
+	void roundTripIsByteStable() throws IOException {
+		for (String json : Arrays.asList(CREATE, PAGE, QUESTION, MASTODON_NOTE)) {
+			byte[] first = writer.writeAsBytes(parser.parse(json));
+			byte[] second = writer.writeAsBytes(parser.parse(first));
+			assertArrayEquals(first, second, json);
+			byte[] mapEngine = writer.writeAsBytes(new ActivityPubParser(objectMapper).parse(first));
+			assertArrayEquals(first, mapEngine, json);
+		}
+	}
+
+	@Test
+	void roundTripSmile() throws IOException {
+		ObjectMapper smileMapper = new ObjectMapper(SmileFactory.builder()
+				.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+				.build());
+		ActivityPubWriter smileWriter = new ActivityPubWriter(smileMapper);
+		List<ActivityPubParser> smileParsers = Arrays.asList(new ActivityPubParser(smileMapper),
+				new StreamingActivityPubParser(smileMapper), new LazyActivityPubParser(smileMapper));
+		for (String json : Arrays.asList(CREATE, PAGE, QUESTION, MASTODON_NOTE)) {
+			byte[] expected = writer.writeAsBytes(parser.parse(json));
+			byte[] smile = smileWriter.writeAsBytes(parser.parse(json));
+			assertTrue(smile.length < expected.length, smile.length + " >= " + expected.length);
+			for (ActivityPubParser smileParser : smileParsers) {
+				assertArrayEquals(expected, writer.writeAsBytes(smileParser.parse(smile)), json);
+			}
+		}
+		assertThrows(IllegalStateException.class, () -> smileWriter.writeAsString(parser.parse(CREATE)));
+	}
+
+	@Test
+	void writeStructuredContext() throws IOException {
+		for (ActivityPubParser engine : Arrays.asList(new ActivityPubParser(objectMapper), parser, new LazyActivityPubParser(objectMapper))) {
+			ActivityStreamsObject note = engine.parse(MASTODON_NOTE);
+
+			assertEquals(objectMapper.readTree(MASTODON_NOTE).get("@context"),
+					objectMapper.readTree(writer.writeAsString(note)).get("@context"));
+		}
+	}
+
+	@Test
+	void skipNullListElements() throws IOException {
+		BaseObject note = new BaseObject();
+		note.setType(ObjectType.Note);
+		note.setInReplyTo(Collections.singletonList(null));
+		Link bob = new Link();
+		bob.setType(ObjectType.Link);
+		bob.setHref("https://example.org/bob");
+		note.setToList(Arrays.asList(null, bob, null));
+
+		assertEquals("{\"@context\":\"https://www.w3.org/ns/activitystreams\",\"type\":\"Note\",\"to\":\"https://example.org/bob\"}",
+				writer.writeAsString(note));
+	}
+
+	@Test
+	void roundTripPreservesValues() throws IOException {
+		Activity create = (Activity) parser.parse(writer.writeAsBytes(parser.parse(CREATE)));
+
+		assertEquals("https://example.org/create/1", create.getId());
+		assertEquals("Sally", create.getActors().get(0).getName());
+		assertEquals("https://www.w3.org/ns/activitystreams#Public", ((Link) create.getTo()).getHref());
+		BaseObject note = (BaseObject) create.getObjects().get(0);
+		assertEquals("Caf\u00e9 \"quoted\"", note.getContent());
+		assertEquals(2, note.getInReplyTo().size());
+		assertEquals(ObjectType.Mention, note.getTag().getType());
+		assertEquals(Integer.valueOf(640), ((Link) note.getAttachment()).getWidth());
+	}
+
+	@Test
+	void writeCompactForms() throws IOException {
+		String json = writer.writeAsString(parser.parse(CREATE));
+
+		assertEquals("{\"@context\":\"https://www.w3.org/ns/activitystreams\",\"type\":\"Create\"," +
+				"\"id\":\"https://example.org/create/1\"," +
+				"\"actor\":{\"type\":\"Person\",\"id\":\"https://example.org/sally\",\"name\":\"Sally\"}," +
+				"\"object\":{\"type\":\"Note\",\"content\":\"Caf\u00e9 \\\"quoted\\\"\"," +
+				"\"inReplyTo\":[\"https://example.org/a\",\"https://example.org/b\"]," +
+				"\"attachment\":{\"type\":\"Link\",\"href\":\"https://example.org/img.png\",\"width\":640}," +
+				"\"tag\":{\"type\":\"Mention\",\"name\":\"@bob\",\"href\":\"https://example.org/bob\"}}," +
+				"\"to\":\"https://www.w3.org/ns/activitystreams#Public\"," +
+				"\"published\":\"2023-06-01T12:00:00Z\"}", json);
+	}
+
+	@Test
+	void writePolymorphicList() throws IOException {
+		OrderedCollectionPage page = (OrderedCollectionPage) parser.parse(writer.writeAsBytes(parser.parse(PAGE)));
+
+		assertEquals(5, page.getOrderedItems().size());
+		assertInstanceOf(Link.class, page.getOrderedItems().get(0));
+		assertEquals(ObjectType.Note, page.getOrderedItems().get(1).getType());
+		assertEquals(ObjectType.Place, page.getOrderedItems().get(2).getType());
+		assertEquals(ObjectType.Tombstone, page.getOrderedItems().get(3).getType());
+		assertEquals("x:Custom", page.getOrderedItems().get(4).getCustomType());
+		assertEquals("https://example.org/outbox?page=2", ((Link) page.getNext()).getHref());
+	}
+
+	@Test
+	void writeNestedContextOnlyWhenNotDefault() throws IOException {
+		Link link = new Link();
+		link.setType(ObjectType.Link);
+		link.setHref("https://example.org/a");
+		link.setAtContext("https://example.org/context");
+		Activity like = new Activity();
+		like.setType(ObjectType.Like);
+		like.setObjects(Collections.singletonList(link));
+
+		assertEquals("{\"@context\":\"https://www.w3.org/ns/activitystreams\",\"type\":\"Like\"," +
+				"\"object\":{\"@context\":\"https://example.org/context\",\"type\":\"Link\",\"href\":\"https://example.org/a\"}}",
+				writer.writeAsString(like));
+	}
+
+	@Test
+	void writeOutputStreamAndByteBuffer() throws IOException {
+		ActivityStreamsObject question = parser.parse(QUESTION);
+		byte[] expected = writer.writeAsBytes(question);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(question, out);
+		assertArrayEquals(expected, out.toByteArray());
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length + 10);
+		buffer.position(5);
+		writer.write(question, buffer);
+		assertEquals(5 + expected.length, buffer.position());
+		byte[] written = new byte[expected.length];
+		buffer.position(5);
+		buffer.get(written);
+		assertArrayEquals(expected, written);
+	}
+}
@@ -0,0 +1,117 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.model.ObjectType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ActivityStreamsVisitorTests {
+
+	private static final String CREATE = "{\n" +
+			"  \"@context\": \"https://www.w3.org/ns/activitystreams\",\n" +
+			"  \"id\": \"https://example.org/create/1\",\n" +
+			"  \"actor\": {\"type\": \"Person\", \"id\": \"https://example.org/sally\"},\n" +
+			"  \"type\": \"Create\",\n" +
+			"  \"to\": [\"https://www.w3.org/ns/activitystreams#Public\", null],\n" +
+			"  \"object\": {\n" +
+			"    \"id\": \"https://example.org/notes/1\",\n" +
+			"    \"type\": \"Note\",\n" +
+			"    \"content\": \"Hello @bob\",\n" +
+			"    \"tag\": [{\"type\": \"Mention\", \"href\": \"https://example.org/bob\", \"name\": \"@bob\"},\n" +
+			"            {\"type\": \"toot:Emoji\", \"name\": \":wave:\"}],\n" +
+			"    \"inReplyTo\": \"https://example.org/notes/0\",\n" +
+			"    \"attachment\": {\"width\": 640, \"type\": \"Link\", \"href\": \"https://example.org/a.png\"}\n" +
+			"  }\n" +
+			"}";
+
+	private final ActivityPubParser parser = new ActivityPubParser(new ObjectMapper());
+
+	@Test
+	void visitDocument() throws IOException {
+		EventRecorder recorder = new EventRecorder();
+		parser.visit(CREATE, recorder);
+
+		assertEquals(Arrays.asList(
+				"start Create null",
+				"field @context https://www.w3.org/ns/activitystreams",
+				"field id https://example.org/create/1",
+				"start Person actor",
+				"field id https://example.org/sally",
+				"end Person actor",
+				"link to https://www.w3.org/ns/activitystreams#Public",
+				"start Note object",
+				"field id https://example.org/notes/1",
+				"field content Hello @bob",
+				"start Mention tag",
+				"link tag https://example.org/bob",
+				"field name @bob",
+				"end Mention tag",
+				"start Custom tag",
+				"field type toot:Emoji",
+				"field name :wave:",
+				"end Custom tag",
+				"link inReplyTo https://example.org/notes/0",
+				"start Link attachment",
+				"field width 640",
+				"link attachment https://example.org/a.png",
+				"end Link attachment",
+				"end Note object",
+				"end Create null"), recorder.events);
+	}
+
+	@Test
+	void reuseValueBetweenEvents() throws IOException {
+		List<CharSequence> values = new ArrayList<>();
+		parser.visit(CREATE.getBytes(StandardCharsets.UTF_8), new ActivityStreamsVisitor() {
+			@Override
+			public void onLink(String field, CharSequence href) {
+				values.add(href);
+			}
+		});
+
+		assertEquals(4, values.size());
+		assertSame(values.get(0), values.get(3));
+	}
+
+	@Test
+	void applyLimits() {
+		ActivityPubParser limited = new ActivityPubParser(new ObjectMapper(), new ParserLimits(2, -1, -1, -1, -1));
+
+		ParserLimitException e = assertThrows(ParserLimitException.class, () -> limited.visit(CREATE, new EventRecorder()));
+		assertEquals(ParserLimits.Limit.DEPTH, e.getLimit());
+	}
+
+	private static class EventRecorder implements ActivityStreamsVisitor {
+
+		private final List<String> events = new ArrayList<>();
+
+		@Override
+		public void onObjectStart(ObjectType type, String field) {
+			events.add("start " + type + " " + field);
+		}
+
+		@Override
+		public void onField(String name, CharSequence value) {
+			events.add("field " + name + " " + value);
+		}
+
+		@Override
+		public void onLink(String field, CharSequence href) {
+			events.add("link " + field + " " + href);
+		}
+
+		@Override
+		public void onObjectEnd(ObjectType type, String field) {
+			events.add("end " + type + " " + field);
+		}
+	}
+}
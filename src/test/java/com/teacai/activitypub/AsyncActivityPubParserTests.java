@@ -0,0 +1,74 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.ObjectType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncActivityPubParserTests {
+
+	private static final String CREATE = "{\n" +
+			"  \"@context\": [\"https://www.w3.org/ns/activitystreams\", {\"sensitive\": \"as:sensitive\"}],\n" +
+			"  \"type\": \"Create\",\n" +
+			"  \"actor\": \"http://sally.example.org\",\n" +
+			"  \"object\": {\"type\": \"Note\", \"content\": \"Caf\\u00e9\"}\n" +
+			"}";
+
+	private final ActivityPubParser activityPubParser = new StreamingActivityPubParser(new ObjectMapper());
+
+	@Test
+	void feedByteByByte() throws IOException {
+		byte[] json = CREATE.getBytes(StandardCharsets.UTF_8);
+		List<ActivityStreamsObject> objects = new ArrayList<>();
+		try (AsyncActivityPubParser parser = new AsyncActivityPubParser(activityPubParser)) {
+			for (int i = 0; i < json.length; i++) {
+				assertTrue(objects.isEmpty());
+				objects.addAll(parser.feed(json, i, 1));
+			}
+			objects.addAll(parser.endOfInput());
+		}
+
+		assertEquals(1, objects.size());
+		assertEquals(ObjectType.Create, objects.get(0).getType());
+		assertEquals(activityPubParser.parse(CREATE).getAtContext(), objects.get(0).getAtContext());
+		assertEquals(ObjectType.Note, ((Activity) objects.get(0)).getObjects().get(0).getType());
+	}
+
+	@Test
+	void feedDirectBuffers() throws IOException {
+		byte[] json = ("[" + CREATE + ", " + CREATE + "]").getBytes(StandardCharsets.UTF_8);
+		List<ActivityStreamsObject> objects = new ArrayList<>();
+		try (AsyncActivityPubParser parser = new AsyncActivityPubParser(activityPubParser, true)) {
+			for (int i = 0; i < json.length; i += 7) {
+				ByteBuffer chunk = ByteBuffer.allocateDirect(Math.min(7, json.length - i));
+				chunk.put(json, i, chunk.capacity()).flip();
+				objects.addAll(parser.feed(chunk));
+			}
+			objects.addAll(parser.endOfInput());
+		}
+
+		assertEquals(2, objects.size());
+		assertEquals(ObjectType.Create, objects.get(1).getType());
+	}
+
+	@Test
+	void endOfInputInsideRecord() throws IOException {
+		try (AsyncActivityPubParser parser = new AsyncActivityPubParser(activityPubParser)) {
+			parser.feed(CREATE.substring(0, 40).getBytes(StandardCharsets.UTF_8));
+			assertEquals(40, parser.getBufferedBytes());
+			assertThrows(JsonParseException.class, parser::endOfInput);
+		}
+	}
+}
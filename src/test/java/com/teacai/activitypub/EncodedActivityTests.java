@@ -0,0 +1,68 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EncodedActivityTests {
+
+	private static final String CREATE = "{\"type\": \"Create\", \"actor\": \"https://example.org/sally\", " +
+			"\"object\": {\"type\": \"Note\", \"content\": \"Hello\"}}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void encodeOnce() throws Exception {
+		AtomicInteger writes = new AtomicInteger();
+		ActivityPubWriter writer = new ActivityPubWriter(objectMapper) {
+			@Override
+			public byte[] writeAsBytes(ActivityStreamsObject object) throws IOException {
+				writes.incrementAndGet();
+				return super.writeAsBytes(object);
+			}
+		};
+		Activity create = (Activity) new ActivityPubParser(objectMapper).parse(CREATE);
+		EncodedActivity encoded = new EncodedActivity(create, writer);
+		assertEquals(0, writes.get());
+
+		byte[] expected = new ActivityPubWriter(objectMapper).writeAsBytes(create);
+		ByteBuffer first = encoded.asByteBuffer();
+		ByteBuffer second = encoded.asByteBuffer();
+		String digest = encoded.getDigest();
+
+		assertEquals(1, writes.get());
+		assertTrue(first.isReadOnly());
+		assertEquals(expected.length, encoded.getLength());
+		byte[] read = new byte[first.remaining()];
+		first.get(read);
+		assertArrayEquals(expected, read);
+		assertEquals(0, second.position());
+		assertEquals("SHA-256=" + Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(expected)), digest);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoded.writeTo(out);
+		assertArrayEquals(expected, out.toByteArray());
+	}
+
+	@Test
+	void viewsAreReadOnly() throws IOException {
+		Activity create = (Activity) new ActivityPubParser(objectMapper).parse(CREATE);
+		ByteBuffer view = new EncodedActivity(create, new ActivityPubWriter(objectMapper)).asByteBuffer();
+
+		assertThrows(ReadOnlyBufferException.class, () -> view.put(0, (byte) 0));
+	}
+}
@@ -0,0 +1,99 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseCollection;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.ObjectType;
+import com.teacai.activitypub.model.OrderedCollection;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link ActivityPubParserTests} corpus against the lazy engine.
+ */
+class LazyActivityPubParserTests extends ActivityPubParserTests {
+
+	private static final String CREATE = "{\n" +
+			"  \"type\": \"Create\",\n" +
+			"  \"actor\": \"https://example.org/sally\",\n" +
+			"  \"context\": \"https://example.org/thread/1\",\n" +
+			"  \"object\": [{\"type\": \"Note\", \"content\": \"one\"}, \"https://example.org/2\"],\n" +
+			"  \"target\": {\"type\": \"Collection\", \"items\": [\"https://example.org/3\"]}\n" +
+			"}";
+
+	@Override
+	ActivityPubParser createParser() {
+		return new LazyActivityPubParser(new ObjectMapper());
+	}
+
+	@Override
+	ActivityPubParser createParser(ParserLimits limits) {
+		return new LazyActivityPubParser(new ObjectMapper(), null, null, limits);
+	}
+
+	@Test
+	void materializeOnFirstAccess() throws IOException {
+		Activity create = (Activity) createParser().parse(CREATE);
+
+		assertEquals(ObjectType.Create, create.getType());
+		assertEquals("https://example.org/sally", ((Link) create.getActors().get(0)).getHref());
+
+		List<ActivityStreamsObject> objects = create.getObjects();
+		assertEquals(2, objects.size());
+		assertEquals("one", ((BaseObject) objects.get(0)).getContent());
+		assertSame(objects, create.getObjects());
+		assertEquals("https://example.org/thread/1", ((Link) create.getContext()).getHref());
+		assertEquals(1, ((BaseCollection) create.getTargets().get(0)).getItems().size());
+	}
+
+	@Test
+	void setterReplacesDeferredValue() throws IOException {
+		Activity create = (Activity) createParser().parse(CREATE);
+
+		create.setObjects(Collections.emptyList());
+
+		assertTrue(create.getObjects().isEmpty());
+	}
+
+	@Test
+	void materializeConcurrently() throws Exception {
+		StringBuilder json = new StringBuilder("{\"type\": \"OrderedCollection\", \"orderedItems\": [");
+		for (int i = 0; i < 500; i++) {
+			json.append(i == 0 ? "" : ",").append("{\"type\": \"Note\", \"id\": \"https://example.org/").append(i).append("\"}");
+		}
+		OrderedCollection collection = (OrderedCollection) createParser().parse(json.append("]}").toString());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Callable<List<ActivityStreamsObject>>> readers = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				readers.add(collection::getOrderedItems);
+			}
+			List<ActivityStreamsObject> first = null;
+			for (Future<List<ActivityStreamsObject>> result : executor.invokeAll(readers)) {
+				if (first == null) {
+					first = result.get();
+				}
+				assertSame(first, result.get());
+			}
+			assertEquals(500, first.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectPatchTests {
+
+	private static final String NOTE = "{\n" +
+			"  \"@context\": \"https://www.w3.org/ns/activitystreams\",\n" +
+			"  \"type\": \"Note\",\n" +
+			"  \"id\": \"https://example.org/notes/1\",\n" +
+			"  \"content\": \"Hello\",\n" +
+			"  \"attributedTo\": {\"type\": \"Person\", \"id\": \"https://example.org/sally\", \"name\": \"Sally\"},\n" +
+			"  \"to\": \"https://www.w3.org/ns/activitystreams#Public\",\n" +
+			"  \"tag\": {\"type\": \"Mention\", \"href\": \"https://example.org/bob\", \"name\": \"@bob\"},\n" +
+			"  \"attachment\": {\"type\": \"Image\", \"url\": \"https://example.org/a.png\"},\n" +
+			"  \"published\": \"2023-06-01T12:00:00Z\"\n" +
+			"}";
+
+	private static final String UPDATE = "{\n" +
+			"  \"@context\": \"https://www.w3.org/ns/activitystreams\",\n" +
+			"  \"type\": \"Update\",\n" +
+			"  \"actor\": \"https://example.org/sally\",\n" +
+			"  \"object\": {\n" +
+			"    \"type\": \"Note\",\n" +
+			"    \"id\": \"https://example.org/notes/1\",\n" +
+			"    \"content\": \"Hello, edited\",\n" +
+			"    \"attributedTo\": {\"type\": \"Person\", \"id\": \"https://example.org/sally\", \"name\": \"Sally\"},\n" +
+			"    \"tag\": {\"type\": \"Mention\", \"href\": \"https://example.org/bob\", \"name\": \"@bobby\"},\n" +
+			"    \"updated\": \"2023-06-02T08:00:00Z\"\n" +
+			"  }\n" +
+			"}";
+
+	private final ActivityPubParser parser = new StreamingActivityPubParser(new ObjectMapper());
+
+	@Test
+	void applyUpdate() throws IOException {
+		BaseObject note = (BaseObject) parser.parse(NOTE);
+		ObjectPatch patch = ObjectPatch.apply(note, (Activity) parser.parse(UPDATE));
+
+		assertEquals(Arrays.asList(ActivityStreamsFields.CONTENT, ActivityStreamsFields.TO, ActivityStreamsFields.PUBLISHED,
+						ActivityStreamsFields.UPDATED, ActivityStreamsFields.ATTACHMENT, ActivityStreamsFields.TAG),
+				Arrays.asList(patch.getChangedFields().toArray()));
+		BaseObject updated = patch.getObject();
+		assertNotSame(note, updated);
+		assertEquals("Hello, edited", updated.getContent());
+		assertEquals("@bobby", updated.getTag().getName());
+		assertEquals("2023-06-02T08:00:00Z", updated.getUpdated());
+		assertNull(updated.getTo());
+		assertNull(updated.getAttachment());
+		assertNull(updated.getPublished());
+
+		assertEquals("Hello", note.getContent());
+		assertEquals("@bob", note.getTag().getName());
+		assertEquals(1, note.getAttachmentList().size());
+		assertSame(note.getAttributedTo(), updated.getAttributedTo());
+	}
+
+	@Test
+	void mergeUpdate() throws IOException {
+		BaseObject note = (BaseObject) parser.parse(NOTE);
+		ObjectPatch patch = ObjectPatch.apply(note, (Activity) parser.parse(UPDATE), ObjectPatch.Mode.MERGE);
+
+		assertEquals(Arrays.asList(ActivityStreamsFields.CONTENT, ActivityStreamsFields.UPDATED, ActivityStreamsFields.TAG),
+				Arrays.asList(patch.getChangedFields().toArray()));
+		BaseObject updated = patch.getObject();
+		assertEquals("Hello, edited", updated.getContent());
+		assertSame(note.getAttributedTo(), updated.getAttributedTo());
+		assertSame(note.getAttachment(), updated.getAttachment());
+		assertSame(note.getTo(), updated.getTo());
+		assertSame(note.getPublished(), updated.getPublished());
+	}
+
+	@Test
+	void applyUnchangedUpdate() throws IOException {
+		BaseObject note = (BaseObject) parser.parse(NOTE);
+		ObjectPatch patch = ObjectPatch.merge(note, (BaseObject) parser.parse(NOTE));
+
+		assertFalse(patch.hasChanges());
+		assertSame(note, patch.getObject());
+	}
+
+	@Test
+	void applyToFrozenObject() throws IOException {
+		BaseObject note = (BaseObject) parser.parse(NOTE).freeze();
+		BaseObject updated = ObjectPatch.apply(note, (Activity) parser.parse(UPDATE)).getObject();
+
+		assertTrue(updated.isFrozen());
+		assertTrue(updated.getTag().isFrozen());
+		assertSame(note.getAttributedTo(), updated.getAttributedTo());
+	}
+
+	@Test
+	void shareUnchangedListElements() throws IOException {
+		Question poll = (Question) parser.parse("{\"type\": \"Question\", \"id\": \"https://example.org/q\", \"oneOf\": [" +
+				"{\"type\": \"Note\", \"name\": \"A\", \"replies\": {\"type\": \"Collection\", \"totalItems\": 1}}," +
+				"{\"type\": \"Note\", \"name\": \"B\", \"replies\": {\"type\": \"Collection\", \"totalItems\": 2}}]}");
+		Question votes = (Question) parser.parse("{\"type\": \"Question\", \"id\": \"https://example.org/q\", \"oneOf\": [" +
+				"{\"type\": \"Note\", \"name\": \"A\", \"replies\": {\"type\": \"Collection\", \"totalItems\": 1}}," +
+				"{\"type\": \"Note\", \"name\": \"B\", \"replies\": {\"type\": \"Collection\", \"totalItems\": 3}}]}");
+
+		ObjectPatch patch = ObjectPatch.merge(poll, votes);
+
+		Question updated = (Question) patch.getObject();
+		assertEquals(1, patch.getChangedFields().size());
+		assertSame(poll.getOneOf().get(0), updated.getOneOf().get(0));
+		assertSame(votes.getOneOf().get(1), updated.getOneOf().get(1));
+		assertEquals(3, ((BaseObject) updated.getOneOf().get(1)).getReplies().getTotalItems());
+	}
+
+	@Test
+	void rejectUpdateOfOtherObject() throws IOException {
+		BaseObject note = (BaseObject) parser.parse(NOTE);
+		BaseObject other = (BaseObject) parser.parse("{\"type\": \"Note\", \"id\": \"https://example.org/notes/2\"}");
+		BaseObject article = (BaseObject) parser.parse("{\"type\": \"Article\", \"id\": \"https://example.org/notes/1\"}");
+
+		assertThrows(IllegalArgumentException.class, () -> ObjectPatch.merge(note, other));
+		assertThrows(IllegalArgumentException.class, () -> ObjectPatch.merge(note, article));
+		assertThrows(IllegalArgumentException.class, () -> ObjectPatch.apply(note, (Activity) parser.parse(NOTE.replace("Note", "Create"))));
+	}
+}
@@ -0,0 +1,106 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.ObjectType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelActivityPubParserTests {
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	private final ParallelActivityPubParser parser =
+			new ParallelActivityPubParser(new StreamingActivityPubParser(new ObjectMapper()), pool, 256, 3);
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	void parseAllNdjsonInOrder() {
+		StringBuilder json = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			json.append(note(i)).append('\n');
+		}
+
+		try (Stream<ActivityStreamsObject> objects = parser.parseAll(input(json.toString()), true)) {
+			assertEquals(ids(500), objects.map(ActivityStreamsObject::getId).collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	void parseAllArrayOutOfOrder() {
+		StringBuilder json = new StringBuilder("[\n");
+		for (int i = 0; i < 500; i++) {
+			json.append(i == 0 ? "  " : ",\n  ").append(note(i));
+		}
+		json.append("\n]\n");
+
+		try (Stream<ActivityStreamsObject> objects = parser.parseAll(input(json.toString()), false)) {
+			List<String> parsed = objects.map(ActivityStreamsObject::getId).collect(Collectors.toList());
+			Collections.sort(parsed);
+			List<String> expected = ids(500);
+			Collections.sort(expected);
+			assertEquals(expected, parsed);
+		}
+	}
+
+	@Test
+	void parseAllRecordsLargerThanChunk() {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			content.append("{[\\\"}],\\n ");
+		}
+		String json = "{\"type\": \"Note\", \"content\": \"" + content + "\"}{\"type\": \"Like\"}";
+
+		try (Stream<ActivityStreamsObject> objects = parser.parseAll(input(json), true)) {
+			List<ActivityStreamsObject> list = objects.collect(Collectors.toList());
+			assertEquals(2, list.size());
+			assertEquals(ObjectType.Note, list.get(0).getType());
+			assertEquals(1600, ((BaseObject) list.get(0)).getContent().length());
+			assertEquals(ObjectType.Like, list.get(1).getType());
+		}
+	}
+
+	@Test
+	void parseAllReportsMalformedRecords() {
+		String json = note(1) + "\n{\"type\": \"Note\", \"id\": }\n" + note(2);
+
+		try (Stream<ActivityStreamsObject> objects = parser.parseAll(input(json), true)) {
+			assertThrows(UncheckedIOException.class, () -> objects.collect(Collectors.toList()));
+		}
+	}
+
+	private static String note(int i) {
+		return "{\"type\": \"Note\", \"id\": \"http://example.org/notes/" + i + "\", \"content\": \"[{\\\"quoted\\\"}]\"}";
+	}
+
+	private static List<String> ids(int count) {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add("http://example.org/notes/" + i);
+		}
+		return ids;
+	}
+
+	private static InputStream input(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
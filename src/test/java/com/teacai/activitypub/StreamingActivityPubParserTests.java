@@ -0,0 +1,184 @@
+package com.teacai.activitypub;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsFields;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseCollection;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.ObjectType;
+import com.teacai.activitypub.model.OrderedCollectionPage;
+import com.teacai.activitypub.util.LinkCache;
+import com.teacai.activitypub.util.StringCanonicalizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link ActivityPubParserTests} corpus against the streaming engine and checks it agrees
+ * with the map based parser on payloads outside of the corpus.
+ */
+class StreamingActivityPubParserTests extends ActivityPubParserTests {
+
+	private final ActivityPubParser mapParser = new ActivityPubParser(new ObjectMapper());
+
+	private final ActivityPubParser streamingParser = new StreamingActivityPubParser(new ObjectMapper());
+
+	@Override
+	ActivityPubParser createParser() {
+		return new StreamingActivityPubParser(new ObjectMapper());
+	}
+
+	@Override
+	ActivityPubParser createParser(ParserLimits limits) {
+		return new StreamingActivityPubParser(new ObjectMapper(), null, null, limits);
+	}
+
+	@Test
+	void parseFieldsBeforeType() throws JsonProcessingException {
+		String json = "{\n" +
+				"  \"@context\": [\"https://www.w3.org/ns/activitystreams\", {\"sensitive\": \"as:sensitive\"}],\n" +
+				"  \"id\": \"https://mastodon.example/users/sally/statuses/1/activity\",\n" +
+				"  \"actor\": \"https://mastodon.example/users/sally\",\n" +
+				"  \"object\": {\n" +
+				"    \"id\": \"https://mastodon.example/users/sally/statuses/1\",\n" +
+				"    \"content\": \"<p>Hello</p>\",\n" +
+				"    \"tag\": [{\"type\": \"Mention\", \"href\": \"https://example.org/joe\"}],\n" +
+				"    \"type\": \"Note\"\n" +
+				"  },\n" +
+				"  \"type\": \"Create\"\n" +
+				"}";
+		ActivityStreamsObject expected = mapParser.parse(json);
+		ActivityStreamsObject object = streamingParser.parse(json);
+
+		assertEquals(ObjectType.Create, object.getType());
+		assertEquals(expected.getAtContext(), object.getAtContext());
+		assertEquals(expected.getId(), object.getId());
+		assertEquals(((Link) ((Activity) expected).getActors().get(0)).getHref(),
+				((Link) ((Activity) object).getActors().get(0)).getHref());
+		assertEquals(ObjectType.Note, ((Activity) object).getObjects().get(0).getType());
+		assertEquals(((Activity) expected).getObjects().get(0).getId(), ((Activity) object).getObjects().get(0).getId());
+		assertTrue(((Activity) object).getTargets().isEmpty());
+	}
+
+	@Test
+	void parseWithoutType() throws JsonProcessingException {
+		ActivityStreamsObject object = streamingParser.parse("{\n" +
+				"  \"id\": \"http://example.org/foo\",\n" +
+				"  \"name\": \"Untyped\"\n" +
+				"}");
+
+		assertEquals(ObjectType.Custom, object.getType());
+		assertNull(object.getCustomType());
+		assertEquals("http://example.org/foo", object.getId());
+		assertEquals("Untyped", object.getName());
+	}
+
+	@Test
+	void dropItemsThatFailLeniently() throws IOException {
+		ActivityPubParser failing = new StreamingActivityPubParser(new ObjectMapper()) {
+			@Override
+			protected boolean readField(JsonParser parser, String field, ActivityStreamsObject object) throws IOException {
+				if ("x:bad".equals(field)) {
+					throw new IllegalArgumentException("bad item");
+				} else if ("x:bug".equals(field)) {
+					throw new NullPointerException("bug");
+				}
+				return super.readField(parser, field, object);
+			}
+		};
+		String json = "{\"type\": \"Collection\", \"items\": [" +
+				"{\"type\": \"Note\", \"id\": \"https://example.org/1\"}," +
+				"{\"type\": \"Note\", \"x:bad\": true, \"content\": {\"nested\": [1, 2]}}," +
+				"\"https://example.org/3\"]}";
+
+		assertThrows(IllegalArgumentException.class, () -> failing.parse(json));
+
+		ParseDiagnostics diagnostics = new ParseDiagnostics();
+		BaseCollection collection = (BaseCollection) failing.parse(json, diagnostics);
+
+		assertEquals(2, collection.getItems().size());
+		assertEquals("https://example.org/1", collection.getItems().get(0).getId());
+		assertEquals("https://example.org/3", ((Link) collection.getItems().get(1)).getHref());
+		assertEquals(ParseError.INVALID_ITEM, diagnostics.getError(0));
+		assertEquals(ActivityStreamsFields.ITEMS, diagnostics.getField(0));
+
+		assertThrows(NullPointerException.class, () -> failing.parse(json.replace("x:bad", "x:bug"), new ParseDiagnostics()));
+
+		TokenBuffer truncated = new TokenBuffer(null, false);
+		truncated.writeStartObject();
+		truncated.writeStringField("type", "Collection");
+		truncated.writeArrayFieldStart("items");
+		truncated.writeStartObject();
+		truncated.writeStringField("type", "Note");
+		truncated.writeBooleanField("x:bad", true);
+		truncated.writeStringField("content", "cut off");
+		collection = (BaseCollection) failing.parse(truncated.asParser(), new ParseDiagnostics());
+		assertTrue(collection.getItems().isEmpty());
+	}
+
+	@Test
+	void parseSkipsMalformedItems() throws JsonProcessingException {
+		String json = "{\n" +
+				"  \"type\": \"Collection\",\n" +
+				"  \"first\": {\"type\": \"CollectionPage\", \"id\": \"http://example.org/c?page=1\"},\n" +
+				"  \"items\": [1, null, [\"nested\"], \"http://example.org/a\", {\"type\": \"Note\"}],\n" +
+				"  \"totalItems\": \"2\"\n" +
+				"}";
+		BaseCollection expected = (BaseCollection) mapParser.parse(json);
+		BaseCollection object = (BaseCollection) streamingParser.parse(json);
+
+		assertEquals(expected.getFirst(), object.getFirst());
+		assertEquals("http://example.org/c?page=1", object.getFirst());
+		assertEquals(ObjectType.CollectionPage, object.getFirstPage().getType());
+		assertEquals(2, object.getTotalItems());
+		assertEquals(2, object.getItems().size());
+		assertEquals("http://example.org/a", ((Link) object.getItems().get(0)).getHref());
+		assertEquals(ObjectType.Note, object.getItems().get(1).getType());
+	}
+
+	@Test
+	void canonicalizeRepeatedStrings() throws JsonProcessingException {
+		ActivityPubParser parser = new StreamingActivityPubParser(new ObjectMapper(), new StringCanonicalizer(1024));
+		String json = "{\n" +
+				"  \"@context\": \"https://www.w3.org/ns/activitystreams\",\n" +
+				"  \"type\": \"Create\",\n" +
+				"  \"actor\": \"https://example.org/sally\",\n" +
+				"  \"to\": \"https://www.w3.org/ns/activitystreams#Public\",\n" +
+				"  \"object\": {\"type\": \"Note\", \"id\": \"https://example.org/notes/1\", \"attributedTo\": \"https://example.org/sally\"}\n" +
+				"}";
+
+		Activity first = (Activity) parser.parse(json);
+		Activity second = (Activity) parser.parse(json);
+
+		assertSame(ActivityStreamsFields.CONTEXT_ACTIVITY_STREAMS, first.getAtContext());
+		assertSame(((Link) first.getActors().get(0)).getHref(), ((Link) second.getActors().get(0)).getHref());
+		assertSame(((Link) first.getActors().get(0)).getHref(), ((Link) ((BaseObject) first.getObjects().get(0)).getAttributedTo()).getHref());
+		assertSame(((Link) first.getTo()).getHref(), ((Link) second.getTo()).getHref());
+		assertSame(first.getObjects().get(0).getId(), second.getObjects().get(0).getId());
+	}
+
+	@Test
+	void shareBareLinks() throws JsonProcessingException {
+		ActivityPubParser parser = new StreamingActivityPubParser(new ObjectMapper(), null, new LinkCache(1024));
+		String json = "{\"type\": \"OrderedCollectionPage\", \"orderedItems\": [\"https://example.org/1\", \"https://example.org/2\", \"https://example.org/1\"]}";
+
+		OrderedCollectionPage first = (OrderedCollectionPage) parser.parse(json);
+		OrderedCollectionPage second = (OrderedCollectionPage) parser.parse(json);
+
+		assertSame(first.getOrderedItems().get(0), first.getOrderedItems().get(2));
+		assertSame(first.getOrderedItems().get(1), second.getOrderedItems().get(1));
+		assertEquals("https://example.org/2", ((Link) first.getOrderedItems().get(1)).getHref());
+		assertEquals(ObjectType.Link, first.getOrderedItems().get(1).getType());
+	}
+}
@@ -0,0 +1,260 @@
+package com.teacai.activitypub.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.ParserLimitException;
+import com.teacai.activitypub.ParserLimits;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.ObjectType;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityStreamsDecoderTests {
+
+	private static final ResolvableType TYPE = ResolvableType.forClass(ActivityStreamsObject.class);
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory(true);
+
+	private final ActivityStreamsDecoder decoder = new ActivityStreamsDecoder(new StreamingActivityPubParser(new ObjectMapper()));
+
+	@Test
+	void canDecode() {
+		assertTrue(decoder.canDecode(TYPE, ActivityStreamsDecoder.APPLICATION_ACTIVITY_JSON));
+		assertTrue(decoder.canDecode(ResolvableType.forClass(BaseObject.class), MimeType.valueOf("application/ld+json; profile=\"https://www.w3.org/ns/activitystreams\"")));
+		assertTrue(decoder.canDecode(TYPE, null));
+		assertFalse(decoder.canDecode(TYPE, MimeTypeUtils.TEXT_PLAIN));
+		assertFalse(decoder.canDecode(ResolvableType.forClass(String.class), MimeTypeUtils.APPLICATION_JSON));
+	}
+
+	@Test
+	void decodeToMonoFromChunks() {
+		ActivityStreamsObject object = decoder.decodeToMono(chunks(note(1), 5), TYPE, ActivityStreamsDecoder.APPLICATION_ACTIVITY_JSON, Collections.emptyMap()).block();
+
+		assertEquals(ObjectType.Note, object.getType());
+		assertEquals("http://example.org/notes/1", object.getId());
+	}
+
+	@Test
+	void decodeNdjson() {
+		List<ActivityStreamsObject> objects = decoder.decode(chunks(note(1) + "\n" + note(2) + "\n", 11), TYPE, ActivityStreamsDecoder.APPLICATION_NDJSON, Collections.emptyMap())
+				.collectList().block();
+
+		assertEquals(2, objects.size());
+		assertEquals("http://example.org/notes/2", objects.get(1).getId());
+	}
+
+	@Test
+	void decodeSingleBuffer() {
+		DataBuffer buffer = bufferFactory.wrap(note(3).getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("http://example.org/notes/3", decoder.decode(buffer, TYPE, null, null).getId());
+	}
+
+	@Test
+	void decodeErrors() {
+		Flux<DataBuffer> truncated = chunks(note(1).substring(0, 20), 5);
+		assertThrows(DecodingException.class, () -> decoder.decodeToMono(truncated, TYPE, null, null).block());
+
+		decoder.setMaxInMemorySize(16);
+		assertThrows(DataBufferLimitException.class, () -> decoder.decodeToMono(chunks(note(1), 5), TYPE, null, null).block());
+	}
+
+	@Test
+	void decodeEnforcesParserLimitsWhileFeeding() {
+		ActivityStreamsDecoder limited = new ActivityStreamsDecoder(new ActivityPubParser(new ObjectMapper(), new ParserLimits(3, -1, -1, -1, -1)));
+		StringBuilder json = new StringBuilder("{\"type\": \"Note\"");
+		for (int i = 0; i < 5; i++) {
+			json.append(", \"inReplyTo\": {\"type\": \"Note\"");
+		}
+		json.append(", \"content\": \"");
+		for (int i = 0; i < 100; i++) {
+			json.append("padding ");
+		}
+		json.append("\"}}}}}}");
+		AtomicInteger fed = new AtomicInteger();
+		Flux<DataBuffer> body = chunks(json.toString(), 16).doOnNext(buffer -> fed.incrementAndGet());
+
+		DecodingException e = assertThrows(DecodingException.class, () -> limited.decodeToMono(body, TYPE, null, null).block());
+		assertInstanceOf(ParserLimitException.class, e.getCause());
+		assertEquals(ParserLimits.Limit.DEPTH, ((ParserLimitException) e.getCause()).getLimit());
+		assertTrue(fed.get() < json.length() / 16, "failed after " + fed.get() + " chunks");
+	}
+
+	@Test
+	void decodeEnforcesByteLimitInsideLongStrings() {
+		ActivityStreamsDecoder limited = new ActivityStreamsDecoder(new ActivityPubParser(new ObjectMapper(), new ParserLimits(-1, -1, -1, -1, 256)));
+		StringBuilder json = new StringBuilder("{\"type\": \"Note\", \"content\": \"");
+		for (int i = 0; i < 1000; i++) {
+			json.append("padding ");
+		}
+		json.append("\"}");
+		AtomicInteger fed = new AtomicInteger();
+		Flux<DataBuffer> body = chunks(json.toString(), 64).doOnNext(buffer -> fed.incrementAndGet());
+
+		DecodingException e = assertThrows(DecodingException.class, () -> limited.decodeToMono(body, TYPE, null, null).block());
+		assertEquals(ParserLimits.Limit.BYTES, ((ParserLimitException) e.getCause()).getLimit());
+		assertTrue(fed.get() < json.length() / 64, "failed after " + fed.get() + " chunks");
+	}
+
+	@Test
+	void releaseBuffersOnCancel() {
+		List<TrackedBuffer> buffers = new ArrayList<>();
+		for (int i = 1; i <= 10; i++) {
+			buffers.add(new TrackedBuffer(note(i) + "\n"));
+		}
+		List<ActivityStreamsObject> objects = new ArrayList<>();
+		OnDemand subscriber = new OnDemand(objects);
+
+		decoder.decode(body(buffers), TYPE, ActivityStreamsDecoder.APPLICATION_NDJSON, Collections.emptyMap()).subscribe(subscriber);
+		subscriber.request(1);
+		subscriber.dispose();
+
+		assertEquals(1, objects.size());
+		assertReleased(buffers);
+	}
+
+	@Test
+	void releaseBuffersOnError() {
+		List<TrackedBuffer> buffers = new ArrayList<>();
+		buffers.add(new TrackedBuffer(note(1) + "\n"));
+		buffers.add(new TrackedBuffer("{\"type\": }\n"));
+		for (int i = 2; i <= 5; i++) {
+			buffers.add(new TrackedBuffer(note(i) + "\n"));
+		}
+		List<ActivityStreamsObject> objects = new ArrayList<>();
+		OnDemand subscriber = new OnDemand(objects);
+
+		decoder.decode(body(buffers), TYPE, ActivityStreamsDecoder.APPLICATION_NDJSON, Collections.emptyMap()).subscribe(subscriber);
+		subscriber.request(1);
+
+		assertEquals(1, objects.size());
+		assertInstanceOf(DecodingException.class, subscriber.error);
+		assertReleased(buffers);
+	}
+
+	/**
+	 * Emits all buffers up front, so those the decoder has not read yet wait in its queue.
+	 */
+	private static Flux<DataBuffer> body(List<TrackedBuffer> buffers) {
+		return Flux.fromIterable(buffers).map(TrackedBuffer::proxy).hide();
+	}
+
+	private static void assertReleased(List<TrackedBuffer> buffers) {
+		for (int i = 0; i < buffers.size(); i++) {
+			assertFalse(buffers.get(i).allocated, "buffer " + i + " not released");
+		}
+	}
+
+	/**
+	 * Requests objects only when asked to.
+	 */
+	private static final class OnDemand extends BaseSubscriber<ActivityStreamsObject> {
+
+		private final List<ActivityStreamsObject> objects;
+
+		private Throwable error;
+
+		OnDemand(List<ActivityStreamsObject> objects) {
+			this.objects = objects;
+		}
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+		}
+
+		@Override
+		protected void hookOnNext(ActivityStreamsObject object) {
+			objects.add(object);
+		}
+
+		@Override
+		protected void hookOnError(Throwable throwable) {
+			error = throwable;
+		}
+	}
+
+	/**
+	 * Pooled view of a buffer that records whether it was released.
+	 */
+	private static final class TrackedBuffer implements InvocationHandler {
+
+		private final DataBuffer delegate;
+
+		private boolean allocated = true;
+
+		TrackedBuffer(String json) {
+			this.delegate = DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+		}
+
+		DataBuffer proxy() {
+			return (DataBuffer) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PooledDataBuffer.class}, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "isAllocated":
+					return allocated;
+				case "release":
+					allocated = false;
+					return true;
+				case "retain":
+				case "touch":
+					return proxy;
+				default:
+					try {
+						return method.invoke(delegate, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+			}
+		}
+	}
+
+	private Flux<DataBuffer> chunks(String json, int size) {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		List<byte[]> chunks = new ArrayList<>();
+		for (int i = 0; i < bytes.length; i += size) {
+			byte[] chunk = new byte[Math.min(size, bytes.length - i)];
+			System.arraycopy(bytes, i, chunk, 0, chunk.length);
+			chunks.add(chunk);
+		}
+		return Flux.fromIterable(chunks).map(chunk -> {
+			DataBuffer buffer = bufferFactory.allocateBuffer(chunk.length);
+			buffer.write(chunk);
+			return buffer;
+		});
+	}
+
+	private static String note(int i) {
+		return "{\"type\": \"Note\", \"id\": \"http://example.org/notes/" + i + "\", \"content\": \"Note " + i + "\"}";
+	}
+}
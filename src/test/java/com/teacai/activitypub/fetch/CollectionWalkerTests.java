@@ -0,0 +1,169 @@
+package com.teacai.activitypub.fetch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseCollection;
+import com.teacai.activitypub.model.Link;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectionWalkerTests {
+
+	private static final String OUTBOX = "https://example.org/outbox";
+
+	private final ActivityPubParser parser = new StreamingActivityPubParser(new ObjectMapper());
+
+	/**
+	 * Fetcher serving pages from memory and recording the order and thread of each fetch.
+	 */
+	private static class StubFetcher implements ObjectFetcher {
+		final Map<String, ActivityStreamsObject> objects = new HashMap<>();
+		final List<String> fetched = new ArrayList<>();
+		final List<String> threads = new ArrayList<>();
+
+		@Override
+		public synchronized ActivityStreamsObject fetch(String id) throws IOException {
+			fetched.add(id);
+			threads.add(Thread.currentThread().getName());
+			if ("https://example.org/broken".equals(id)) {
+				throw new IOException("503 Service Unavailable");
+			}
+			return objects.get(id);
+		}
+	}
+
+	private BaseCollection outbox(StubFetcher fetcher, int pages, String lastNext) throws IOException {
+		for (int i = 1; i <= pages; i++) {
+			String next = i < pages ? "\"" + OUTBOX + "?page=" + (i + 1) + "\"" : lastNext;
+			String json = "{\"type\": \"OrderedCollectionPage\", \"id\": \"" + OUTBOX + "?page=" + i + "\", " +
+					"\"partOf\": \"" + OUTBOX + "\", " +
+					(next == null ? "" : "\"next\": " + next + ", ") +
+					"\"orderedItems\": [\"https://example.org/" + i + "/a\", \"https://example.org/" + i + "/b\"]}";
+			fetcher.objects.put(OUTBOX + "?page=" + i, parser.parse(json));
+		}
+		return (BaseCollection) parser.parse("{\"type\": \"OrderedCollection\", \"id\": \"" + OUTBOX + "\", " +
+				"\"totalItems\": " + (2 * pages + 1) + ", \"first\": \"" + OUTBOX + "?page=1\", " +
+				"\"orderedItems\": [\"https://example.org/0/a\"]}");
+	}
+
+	private static List<String> ids(Stream<ActivityStreamsObject> items) {
+		return items.map(item -> ((Link) item).getHref()).collect(Collectors.toList());
+	}
+
+	@Test
+	void walkAllPages() throws IOException {
+		StubFetcher fetcher = new StubFetcher();
+		BaseCollection outbox = outbox(fetcher, 3, null);
+		ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "page-fetcher"));
+		try (Stream<ActivityStreamsObject> items = new CollectionWalker(fetcher, executor, 2).stream(outbox)) {
+			assertEquals(7, ids(items).size());
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(3, fetcher.fetched.size());
+		assertTrue(fetcher.threads.stream().allMatch("page-fetcher"::equals));
+	}
+
+	@Test
+	void walkInOrder() throws IOException {
+		StubFetcher fetcher = new StubFetcher();
+		BaseCollection outbox = outbox(fetcher, 2, null);
+
+		try (Stream<ActivityStreamsObject> items = new CollectionWalker(fetcher, Runnable::run, 1).stream(outbox)) {
+			List<String> expected = new ArrayList<>();
+			expected.add("https://example.org/0/a");
+			for (int i = 1; i <= 2; i++) {
+				expected.add("https://example.org/" + i + "/a");
+				expected.add("https://example.org/" + i + "/b");
+			}
+			assertEquals(expected, ids(items));
+		}
+	}
+
+	@Test
+	void prefetchIsBounded() throws IOException {
+		StubFetcher fetcher = new StubFetcher();
+		BaseCollection outbox = outbox(fetcher, 10, null);
+
+		CollectionWalker.PageIterator items = new CollectionWalker(fetcher, Runnable::run, 3).iterator(outbox);
+		assertEquals(2, fetcher.fetched.size());
+		items.next();
+		items.next();
+		assertEquals(1, items.getPagesRead());
+		assertEquals(3, fetcher.fetched.size());
+
+		items.close();
+		assertFalse(items.hasNext());
+		assertEquals(3, fetcher.fetched.size());
+	}
+
+	@Test
+	void stopOnCycle() throws IOException {
+		StubFetcher fetcher = new StubFetcher();
+		BaseCollection outbox = outbox(fetcher, 2, "\"" + OUTBOX + "?page=1\"");
+
+		try (Stream<ActivityStreamsObject> items = new CollectionWalker(fetcher, Runnable::run, 2).stream(outbox)) {
+			assertEquals(5, items.count());
+		}
+		assertEquals(2, fetcher.fetched.size());
+	}
+
+	@Test
+	void walkEmbeddedFirstPage() throws IOException {
+		StubFetcher fetcher = new StubFetcher();
+		outbox(fetcher, 2, null);
+		BaseCollection outbox = (BaseCollection) parser.parse("{\"type\": \"OrderedCollection\", \"id\": \"" + OUTBOX + "\", " +
+				"\"first\": {\"type\": \"OrderedCollectionPage\", \"id\": \"" + OUTBOX + "?page=1\", " +
+				"\"next\": \"" + OUTBOX + "?page=2\", \"orderedItems\": [\"https://example.org/1/a\"]}}");
+
+		try (Stream<ActivityStreamsObject> items = new CollectionWalker(fetcher, Runnable::run, 2).stream(outbox)) {
+			assertEquals(3, items.count());
+		}
+		assertEquals(Collections.singletonList(OUTBOX + "?page=2"), fetcher.fetched);
+	}
+
+	@Test
+	void skipFirstPageWithoutUrl() throws IOException {
+		StubFetcher fetcher = new StubFetcher();
+		BaseCollection outbox = (BaseCollection) parser.parse("{\"type\": \"Collection\", \"id\": \"" + OUTBOX + "\", " +
+				"\"first\": {\"type\": \"Note\", \"id\": \"urn:uuid:1\"}, \"items\": [\"https://example.org/a\"]}");
+
+		try (Stream<ActivityStreamsObject> items = new CollectionWalker(fetcher, Runnable::run, 2).stream(outbox)) {
+			assertEquals(1, items.count());
+		}
+		assertTrue(fetcher.fetched.isEmpty());
+	}
+
+	@Test
+	void propagateFetchErrors() throws IOException {
+		StubFetcher fetcher = new StubFetcher();
+		BaseCollection outbox = outbox(fetcher, 1, "\"https://example.org/broken\"");
+
+		Iterator<ActivityStreamsObject> items = new CollectionWalker(fetcher, Runnable::run, 2).iterator(outbox);
+		for (int i = 0; i < 3; i++) {
+			items.next();
+		}
+		UncheckedIOException error = assertThrows(UncheckedIOException.class, items::hasNext);
+		assertEquals("503 Service Unavailable", error.getCause().getMessage());
+	}
+}
@@ -0,0 +1,184 @@
+package com.teacai.activitypub.fetch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.Link;
+import com.teacai.activitypub.model.ObjectType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DereferencerTests {
+
+	private final ActivityPubParser parser = new StreamingActivityPubParser(new ObjectMapper());
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	private final Map<String, String> documents = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicInteger> fetches = new ConcurrentHashMap<>();
+
+	private final ObjectFetcher fetcher = id -> {
+		fetches.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet();
+		String json = documents.get(id);
+		if (json == null) {
+			throw new IOException("404 Not Found: " + id);
+		}
+		return parser.parse(json);
+	};
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private void note(String id, String inReplyTo) {
+		documents.put(id, "{\"type\": \"Note\", \"id\": \"" + id + "\", \"attributedTo\": \"https://example.org/sally\"" +
+				(inReplyTo == null ? "" : ", \"inReplyTo\": \"" + inReplyTo + "\"") + "}");
+	}
+
+	@Test
+	void resolvePlaceholders() throws Exception {
+		documents.put("https://example.org/sally", "{\"type\": \"Person\", \"id\": \"https://example.org/sally\", \"name\": \"Sally\"}");
+		note("https://example.org/notes/1", null);
+		Activity create = (Activity) parser.parse("{\"type\": \"Create\", \"actor\": \"https://example.org/sally\", " +
+				"\"object\": [\"https://example.org/notes/1\", {\"type\": \"Note\", \"attributedTo\": \"https://example.org/sally\"}], " +
+				"\"to\": \"https://www.w3.org/ns/activitystreams#Public\"}");
+
+		Dereferencer.Result result = new Dereferencer(fetcher, executor, 2, 100).dereference(create);
+
+		assertEquals("Sally", create.getActors().get(0).getName());
+		BaseObject first = (BaseObject) create.getObjects().get(0);
+		assertEquals(ObjectType.Note, first.getType());
+		assertSame(create.getActors().get(0), ((BaseObject) create.getObjects().get(1)).getAttributedTo());
+		assertInstanceOf(Link.class, create.getTo());
+		assertEquals(3, result.getResolved());
+		assertEquals(1, fetches.get("https://example.org/sally").get());
+		// the actor was known after the first level, so the note keeps its link
+		assertInstanceOf(Link.class, first.getAttributedTo());
+	}
+
+	@Test
+	void limitDepthAndFetches() throws Exception {
+		for (int i = 1; i < 10; i++) {
+			note("https://example.org/notes/" + i, "https://example.org/notes/" + (i + 1));
+		}
+		BaseObject reply = (BaseObject) parser.parse("{\"type\": \"Note\", \"inReplyTo\": \"https://example.org/notes/1\"}");
+
+		Dereferencer.Result result = new Dereferencer(fetcher, executor, 3, 100).dereference(reply);
+
+		ActivityStreamsObject object = reply;
+		for (int i = 0; i < 3; i++) {
+			object = ((BaseObject) object).getInReplyTo().get(0);
+			assertEquals(ObjectType.Note, object.getType());
+		}
+		assertInstanceOf(Link.class, ((BaseObject) object).getInReplyTo().get(0));
+		assertEquals(3, result.getResolved());
+
+		BaseObject other = (BaseObject) parser.parse("{\"type\": \"Note\", \"inReplyTo\": \"https://example.org/notes/5\"}");
+		result = new Dereferencer(fetcher, executor, 10, 2).dereference(other);
+		assertEquals(2, result.getResolved());
+		// notes/7 and the author of notes/5
+		assertEquals(2, result.getSkipped());
+	}
+
+	@Test
+	void keepCyclesAsLinks() throws Exception {
+		note("https://example.org/notes/2", "https://example.org/notes/1");
+		BaseObject root = (BaseObject) parser.parse("{\"type\": \"Note\", \"id\": \"https://example.org/notes/1\", " +
+				"\"inReplyTo\": \"https://example.org/notes/2\"}");
+
+		new Dereferencer(fetcher, executor, 5, 100).dereference(root);
+
+		BaseObject parent = (BaseObject) root.getInReplyTo().get(0);
+		assertEquals("https://example.org/notes/2", parent.getId());
+		assertInstanceOf(Link.class, parent.getInReplyTo().get(0));
+	}
+
+	@Test
+	void keepFailedPlaceholders() throws Exception {
+		Activity like = (Activity) parser.parse("{\"type\": \"Like\", \"object\": \"https://example.org/gone\"}");
+
+		Dereferencer.Result result = new Dereferencer(fetcher, executor, 1, 100).dereference(like);
+
+		assertInstanceOf(Link.class, like.getObjects().get(0));
+		assertTrue(result.getFailures().get("https://example.org/gone") instanceof IOException);
+	}
+
+	@Test
+	void collapseConcurrentRequests() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		ObjectFetcher slow = id -> {
+			calls.incrementAndGet();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return parser.parse("{\"type\": \"Person\", \"id\": \"" + id + "\"}");
+		};
+		Dereferencer dereferencer = new Dereferencer(slow, executor, 1, 100);
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			Future<Activity> first = callers.submit(() -> {
+				Activity like = (Activity) parser.parse("{\"type\": \"Like\", \"actor\": \"https://example.org/sally\"}");
+				dereferencer.dereference(like);
+				return like;
+			});
+			Future<Activity> second = callers.submit(() -> {
+				Activity follow = (Activity) parser.parse("{\"type\": \"Follow\", \"actor\": \"https://example.org/sally\"}");
+				dereferencer.dereference(follow);
+				return follow;
+			});
+			Thread.sleep(200);
+			release.countDown();
+
+			ActivityStreamsObject sally = first.get().getActors().get(0);
+			assertEquals("https://example.org/sally", sally.getId());
+			assertNotSame(sally, second.get().getActors().get(0));
+			assertEquals(1, calls.get());
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+
+	@Test
+	void leaveFetchedObjectsUnchanged() throws Exception {
+		documents.put("https://example.org/sally", "{\"type\": \"Person\", \"id\": \"https://example.org/sally\", \"name\": \"Sally\"}");
+		note("https://example.org/notes/1", null);
+		ActivityStreamsObject shared = parser.parse("{\"type\": \"Create\", \"id\": \"https://example.org/create/1\", " +
+				"\"object\": {\"type\": \"Note\", \"attributedTo\": \"https://example.org/sally\"}}").freeze();
+		ObjectFetcher sharing = id -> "https://example.org/create/1".equals(id) ? shared : fetcher.fetch(id);
+		Dereferencer dereferencer = new Dereferencer(sharing, executor, 3, 100);
+
+		for (int i = 0; i < 2; i++) {
+			Activity announce = (Activity) parser.parse("{\"type\": \"Announce\", \"object\": \"https://example.org/create/1\"}");
+			dereferencer.dereference(announce);
+
+			Activity create = (Activity) announce.getObjects().get(0);
+			assertNotSame(shared, create);
+			assertEquals("Sally", ((BaseObject) create.getObjects().get(0)).getAttributedTo().getName());
+		}
+		assertInstanceOf(Link.class, ((BaseObject) ((Activity) shared).getObjects().get(0)).getAttributedTo());
+	}
+}
@@ -0,0 +1,201 @@
+package com.teacai.activitypub.fetch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import com.teacai.activitypub.model.Activity;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectCacheTests {
+
+	private static final Instant NOW = Instant.parse("2023-06-01T12:00:00Z");
+
+	private static class MutableClock extends Clock {
+		Instant instant = NOW;
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+
+	private final ActivityPubParser parser = new StreamingActivityPubParser(new ObjectMapper());
+
+	private final MutableClock clock = new MutableClock();
+
+	private ActivityStreamsObject note(String id, String published) throws IOException {
+		return parser.parse("{\"type\": \"Note\", \"id\": \"" + id + "\"" +
+				(published == null ? "" : ", \"published\": \"" + published + "\"") + "}");
+	}
+
+	private ObjectCache cache(int maxEntries) {
+		return new ObjectCache(maxEntries, maxEntries, object -> 1, Duration.ofMinutes(1), Duration.ofDays(1), clock);
+	}
+
+	@Test
+	void countHitsAndMisses() throws IOException {
+		ObjectCache cache = cache(10);
+		ActivityStreamsObject note = note("https://example.org/1", null);
+
+		assertNull(cache.getIfPresent("https://example.org/1"));
+		cache.put(note);
+		assertSame(note, cache.getIfPresent("https://example.org/1"));
+		assertSame(note, cache.getIfPresent("https://example.org/1"));
+
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	void protectFrequentlyReadEntries() throws IOException {
+		ObjectCache cache = cache(10);
+		cache.put(note("https://example.org/hot", null));
+		// fill the read buffer so the read is applied to the segments
+		for (int i = 0; i < 128; i++) {
+			cache.getIfPresent("https://example.org/hot");
+		}
+		for (int i = 0; i < 100; i++) {
+			cache.put(note("https://example.org/cold/" + i, null));
+		}
+
+		assertEquals(10, cache.size());
+		assertNotNull(cache.getIfPresent("https://example.org/hot"));
+		assertEquals(91, cache.getEvictionCount());
+	}
+
+	@Test
+	void boundByWeight() throws IOException {
+		ObjectCache cache = new ObjectCache(100, 10, object -> object.getId().length() > 21 ? 5 : 1,
+				Duration.ofMinutes(1), Duration.ofDays(1), clock);
+		for (int i = 0; i < 5; i++) {
+			cache.put(note("https://example.org/" + i, null));
+		}
+		cache.put(note("https://example.org/heavy/1", null));
+		cache.put(note("https://example.org/heavy/2", null));
+
+		assertNull(cache.getIfPresent("https://example.org/0"));
+		assertNotNull(cache.getIfPresent("https://example.org/heavy/2"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void expireByAge() throws IOException {
+		ObjectCache cache = cache(10);
+		cache.put(note("https://example.org/fresh", "2023-06-01T11:55:00Z"));
+		cache.put(note("https://example.org/old", "2023-05-31T12:00:00Z"));
+		cache.put(note("https://example.org/ancient", "2001-01-01T00:00:00Z"));
+		cache.put(note("https://example.org/undated", null));
+
+		clock.instant = NOW.plus(Duration.ofMinutes(2));
+		assertNull(cache.getIfPresent("https://example.org/fresh"));
+		assertNull(cache.getIfPresent("https://example.org/undated"));
+		assertNotNull(cache.getIfPresent("https://example.org/old"));
+
+		clock.instant = NOW.plus(Duration.ofHours(23));
+		assertNull(cache.getIfPresent("https://example.org/old"));
+		assertNotNull(cache.getIfPresent("https://example.org/ancient"));
+		clock.instant = NOW.plus(Duration.ofHours(25));
+		assertNull(cache.getIfPresent("https://example.org/ancient"));
+
+		assertEquals(4, cache.getExpirationCount());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void loadOncePerMissingId() throws Exception {
+		ObjectCache cache = cache(10);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ObjectFetcher loader = id -> {
+			loads.incrementAndGet();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return note(id, null);
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ActivityStreamsObject>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> cache.get("https://example.org/1", loader)));
+			}
+			Thread.sleep(200);
+			release.countDown();
+			for (Future<ActivityStreamsObject> result : results) {
+				assertSame(results.get(0).get(), result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void doNotCacheFailures() throws IOException {
+		ObjectCache cache = cache(10);
+		ObjectFetcher failing = id -> {
+			throw new IOException("timeout");
+		};
+
+		assertThrows(IOException.class, () -> cache.get("https://example.org/1", failing));
+		assertEquals("https://example.org/1", cache.get("https://example.org/1", id -> note(id, null)).getId());
+	}
+
+	@Test
+	void serveDereferencerFromCache() throws Exception {
+		ObjectCache cache = cache(10);
+		AtomicInteger fetches = new AtomicInteger();
+		ObjectFetcher fetcher = cache.asFetcher(id -> {
+			fetches.incrementAndGet();
+			return parser.parse("{\"type\": \"Person\", \"id\": \"" + id + "\"}");
+		});
+		Dereferencer dereferencer = new Dereferencer(fetcher, Runnable::run, 1, 10);
+
+		for (int i = 0; i < 3; i++) {
+			Activity like = (Activity) parser.parse("{\"type\": \"Like\", \"actor\": \"https://example.org/sally\"}");
+			dereferencer.dereference(like);
+			assertEquals("https://example.org/sally", like.getActors().get(0).getId());
+			assertFalse(like.getActors().get(0).isFrozen());
+		}
+
+		assertEquals(1, fetches.get());
+		assertEquals(2, cache.getHitCount());
+		assertTrue(cache.getIfPresent("https://example.org/sally").isFrozen());
+	}
+}
@@ -0,0 +1,100 @@
+package com.teacai.activitypub.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.LazyActivityPubParser;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityStreamsObjectTests {
+
+	private static final String CREATE = "{\n" +
+			"  \"@context\": \"https://www.w3.org/ns/activitystreams\",\n" +
+			"  \"type\": \"Create\",\n" +
+			"  \"id\": \"https://example.org/create/1\",\n" +
+			"  \"actor\": {\"type\": \"Person\", \"id\": \"https://example.org/sally\"},\n" +
+			"  \"object\": {\n" +
+			"    \"type\": \"Note\",\n" +
+			"    \"content\": \"Hello\",\n" +
+			"    \"bcc\": {\"type\": \"Person\", \"id\": \"https://example.org/bob\"},\n" +
+			"    \"inReplyTo\": [\"https://example.org/a\", \"https://example.org/b\"]\n" +
+			"  }\n" +
+			"}";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void freezeObjectGraph() throws IOException {
+		Activity create = (Activity) new StreamingActivityPubParser(objectMapper).parse(CREATE);
+
+		assertSame(create, create.freeze());
+
+		assertTrue(create.isFrozen());
+		assertThrows(UnsupportedOperationException.class, () -> create.setId("https://example.org/other"));
+		assertThrows(UnsupportedOperationException.class, () -> create.getActors().get(0).setName("Sally"));
+		assertThrows(UnsupportedOperationException.class, () -> create.getActors().add(new Link()));
+		BaseObject note = (BaseObject) create.getObjects().get(0);
+		assertThrows(UnsupportedOperationException.class, () -> note.setContent("Changed"));
+		assertThrows(UnsupportedOperationException.class, () -> note.getBcc().setName("Bob"));
+		assertThrows(UnsupportedOperationException.class, () -> note.getInReplyTo().remove(0));
+		assertThrows(UnsupportedOperationException.class, () -> ((Link) note.getInReplyTo().get(1)).setHref("https://example.org/c"));
+	}
+
+	@Test
+	void freezeDeferredValuesWhenLoaded() throws IOException {
+		Activity create = (Activity) new LazyActivityPubParser(objectMapper).parse(CREATE);
+		create.freeze();
+
+		BaseObject note = (BaseObject) create.getObjects().get(0);
+		assertTrue(note.isFrozen());
+		assertThrows(UnsupportedOperationException.class, () -> create.getObjects().clear());
+	}
+
+	@Test
+	void copyFrozenObject() throws IOException {
+		Activity create = (Activity) new StreamingActivityPubParser(objectMapper).parse(CREATE);
+		create.freeze();
+		BaseObject note = (BaseObject) create.getObjects().get(0);
+
+		BaseObject edited = note.copy();
+		edited.setContent("Edited");
+		edited.setBcc(null);
+		edited.setDuration("PT1M");
+
+		assertFalse(edited.isFrozen());
+		assertEquals("Edited", edited.getContent());
+		assertEquals("Hello", note.getContent());
+		assertEquals("https://example.org/bob", note.getBcc().getId());
+		assertNull(note.getDuration());
+		assertSame(note.getInReplyTo(), edited.getInReplyTo());
+
+		Activity update = (Activity) create.copy();
+		update.setType(ObjectType.Update);
+		update.setObjects(Collections.singletonList(edited));
+		update.freeze();
+
+		assertTrue(edited.isFrozen());
+		assertSame(create.getActors(), update.getActors());
+		assertEquals(ObjectType.Create, create.getType());
+	}
+
+	@Test
+	void copyImmutableLink() {
+		Link link = ImmutableLink.PUBLIC.copy();
+		link.setName("Public");
+
+		assertNotSame(ImmutableLink.class, link.getClass());
+		assertEquals(ActivityStreamsFields.PUBLIC, link.getHref());
+		assertTrue(ImmutableLink.PUBLIC.isFrozen());
+	}
+}
@@ -0,0 +1,121 @@
+package com.teacai.activitypub.model;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaseObjectTests {
+
+	@Test
+	void sparseFieldsInAnyOrder() {
+		Link bto = link("https://example.org/bto");
+		Link bcc = link("https://example.org/bcc");
+		Link generator = link("https://example.org/generator");
+		Link preview = link("https://example.org/preview");
+		Instant endTime = Instant.parse("2023-06-01T12:00:00Z");
+
+		BaseObject object = new BaseObject();
+		object.setEndTime(endTime);
+		object.setBcc(bcc);
+		object.setDuration("PT5M");
+		object.setBto(bto);
+		object.setPreview(preview);
+		object.setGenerator(generator);
+
+		assertSame(bto, object.getBto());
+		assertSame(bcc, object.getBcc());
+		assertSame(generator, object.getGenerator());
+		assertSame(preview, object.getPreview());
+		assertEquals("PT5M", object.getDuration());
+		assertSame(endTime, object.getEndTime());
+
+		object.setGenerator(null);
+		object.setBto(null);
+		object.setDuration("PT1H");
+
+		assertNull(object.getGenerator());
+		assertNull(object.getBto());
+		assertSame(bcc, object.getBcc());
+		assertSame(preview, object.getPreview());
+		assertEquals("PT1H", object.getDuration());
+		assertSame(endTime, object.getEndTime());
+
+		object.setBcc(null);
+		object.setPreview(null);
+		object.setDuration(null);
+		object.setEndTime(null);
+		object.setEndTime(null);
+
+		assertNull(object.getBcc());
+		assertNull(object.getEndTime());
+	}
+
+	@Test
+	void compactLayout() {
+		long before = ClassLayout.parseClass(WideObject.class).instanceSize();
+		long after = ClassLayout.parseClass(BaseObject.class).instanceSize();
+		assertTrue(after < before, "BaseObject is " + after + " bytes, was " + before);
+
+		BaseObject note = new BaseObject();
+		note.setType(ObjectType.Note);
+		note.setId("https://example.org/notes/1");
+		note.setContent("Hello");
+		note.setPublished(Instant.parse("2023-06-01T12:00:00Z"));
+		long plain = GraphLayout.parseInstance(note).totalSize();
+
+		note.setGenerator(link("https://example.org/app"));
+		long withGenerator = GraphLayout.parseInstance(note).totalSize();
+		long generatorSize = GraphLayout.parseInstance(note.getGenerator()).totalSize();
+		long slots = ClassLayout.parseInstance(new Object[1]).instanceSize();
+		assertEquals(plain + generatorSize + slots, withGenerator);
+	}
+
+	private static Link link(String href) {
+		Link link = new Link();
+		link.setType(ObjectType.Link);
+		link.setHref(href);
+		return link;
+	}
+
+	/**
+	 * The fields {@link BaseObject} declared before the rarely used properties moved to slots.
+	 */
+	@SuppressWarnings("unused")
+	private static class WideObject extends ActivityStreamsObject {
+		private List<ActivityStreamsObject> actors;
+		private ActivityStreamsObject attachment;
+		private ActivityStreamsObject attributedTo;
+		private ActivityStreamsObject audience;
+		private String content;
+		private ActivityStreamsObject context;
+		private Deferred<ActivityStreamsObject> deferredContext;
+		private Instant endTime;
+		private ActivityStreamsObject generator;
+		private List<ActivityStreamsObject> icon;
+		private List<ActivityStreamsObject> image;
+		private List<ActivityStreamsObject> inReplyTo;
+		private ActivityStreamsObject location;
+		private ActivityStreamsObject preview;
+		private Instant published;
+		private BaseCollection replies;
+		private Instant startTime;
+		private String summary;
+		private ActivityStreamsObject tag;
+		private String updated;
+		private List<ActivityStreamsObject> url;
+		private ActivityStreamsObject to;
+		private ActivityStreamsObject bto;
+		private ActivityStreamsObject cc;
+		private ActivityStreamsObject bcc;
+		private String mediaType;
+		private String duration;
+	}
+}
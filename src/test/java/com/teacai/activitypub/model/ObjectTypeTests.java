@@ -0,0 +1,42 @@
+package com.teacai.activitypub.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ObjectTypeTests {
+
+	@Test
+	void parseAllTypes() {
+		for (ObjectType type : ObjectType.values()) {
+			String name = type.name();
+			assertEquals(type, ObjectType.parse(name));
+			assertEquals(type, ObjectType.parse(name.toLowerCase(Locale.ROOT)));
+			assertEquals(type, ObjectType.parse(name.toUpperCase(Locale.ROOT)));
+
+			char[] buffer = ("[\"" + name + "\"]").toCharArray();
+			assertEquals(type, ObjectType.parse(buffer, 2, name.length()));
+		}
+	}
+
+	@Test
+	void parseUnknownTypes() {
+		assertEquals(ObjectType.Custom, ObjectType.parse((String) null));
+		assertEquals(ObjectType.Custom, ObjectType.parse(""));
+		assertEquals(ObjectType.Custom, ObjectType.parse("Notes"));
+		assertEquals(ObjectType.Custom, ObjectType.parse("Not"));
+		assertEquals(ObjectType.Custom, ObjectType.parse("http://www.types.example/ProductOffer"));
+		assertEquals(ObjectType.Custom, ObjectType.parse("Note".toCharArray(), 1, 3));
+		assertEquals(ObjectType.Custom, ObjectType.parse(null, 0, 0));
+	}
+
+	@Test
+	void parseMatchesEqualsIgnoreCase() {
+		// U+212A KELVIN SIGN and U+0131 DOTLESS I compare equal to 'k' and 'i' under equalsIgnoreCase
+		assertEquals(ObjectType.Like, ObjectType.parse("Li\u212Ae"));
+		assertEquals(ObjectType.Like, ObjectType.parse("L\u0131ke"));
+		assertEquals(ObjectType.Like, ObjectType.parse("L\u0131\u212Ae".toCharArray(), 0, 4));
+	}
+}
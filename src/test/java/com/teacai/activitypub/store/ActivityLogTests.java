@@ -0,0 +1,217 @@
+package com.teacai.activitypub.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teacai.activitypub.ActivityPubParser;
+import com.teacai.activitypub.ActivityPubWriter;
+import com.teacai.activitypub.StreamingActivityPubParser;
+import com.teacai.activitypub.model.ActivityStreamsObject;
+import com.teacai.activitypub.model.BaseObject;
+import com.teacai.activitypub.model.ObjectType;
+import com.teacai.activitypub.model.Tombstone;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityLogTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final ActivityPubParser parser = new StreamingActivityPubParser(objectMapper);
+
+	private final ActivityPubWriter writer = new ActivityPubWriter(objectMapper);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void appendAndRead() throws IOException {
+		try (ActivityLog log = open(ActivityLog.DEFAULT_SEGMENT_SIZE)) {
+			log.append(note(1, "Hello"));
+			log.append(note(2, "World"));
+			log.append(note(1, "Hello, edited"));
+
+			assertEquals("Hello, edited", ((BaseObject) log.get(id(1))).getContent());
+			assertEquals("World", ((BaseObject) log.get(id(2))).getContent());
+			assertNull(log.get(id(3)));
+			assertEquals(2, log.size());
+
+			ByteBuffer bytes = log.getBytes(id(2));
+			assertTrue(bytes.isDirect());
+			assertTrue(bytes.isReadOnly());
+			assertEquals(writer.writeAsString(note(2, "World")), new String(toArray(bytes), "UTF-8"));
+
+			BaseObject anonymous = new BaseObject();
+			assertThrows(IllegalArgumentException.class, () -> log.append(anonymous));
+		}
+	}
+
+	@Test
+	void recoverAfterReopening() throws IOException {
+		try (ActivityLog log = open(ActivityLog.DEFAULT_SEGMENT_SIZE)) {
+			log.append(note(1, "Hello"));
+			log.append(note(1, "Hello, edited"));
+			log.append(note(2, "World"));
+		}
+		Path segment = segmentFiles().get(0);
+		long end = endOfRecords(segment);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			// a record whose payload was not completely written
+			channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 0, 0, 1, 'x'}), end);
+		}
+
+		try (ActivityLog log = open(ActivityLog.DEFAULT_SEGMENT_SIZE)) {
+			assertEquals(2, log.size());
+			assertEquals("Hello, edited", ((BaseObject) log.get(id(1))).getContent());
+			log.append(note(3, "Again"));
+			assertEquals("World", ((BaseObject) log.get(id(2))).getContent());
+			assertEquals("Again", ((BaseObject) log.get(id(3))).getContent());
+		}
+	}
+
+	@Test
+	void rollSegments() throws IOException {
+		int count = 2000;
+		try (ActivityLog log = open(4096)) {
+			for (int i = 0; i < count; i++) {
+				log.append(note(i, "Note " + i));
+			}
+			log.append(note(5000, bigContent(10_000)));
+
+			assertTrue(log.getSegmentCount() > 10);
+			assertEquals(count + 1, log.size());
+		}
+		try (ActivityLog log = open(4096)) {
+			assertEquals(count + 1, log.size());
+			for (int i = 0; i < count; i++) {
+				assertEquals("Note " + i, ((BaseObject) log.get(id(i))).getContent());
+			}
+			assertEquals(10_000, ((BaseObject) log.get(id(5000))).getContent().length());
+		}
+	}
+
+	@Test
+	void compactDropsReplacedObjects() throws IOException {
+		try (ActivityLog log = open(4096)) {
+			for (int i = 0; i < 100; i++) {
+				log.append(note(i, "Note " + i));
+			}
+			for (int i = 0; i < 100; i += 2) {
+				log.append(tombstone(i));
+			}
+			ByteBuffer before = log.getBytes(id(1));
+			int segments = log.getSegmentCount();
+
+			log.compact();
+
+			assertTrue(log.getSegmentCount() < segments, log.getSegmentCount() + " >= " + segments);
+			assertEquals(100, log.size());
+			assertInstanceOf(Tombstone.class, log.get(id(0)));
+			assertTrue(log.isDeleted(id(0)));
+			assertFalse(log.contains(id(0)));
+			assertTrue(log.contains(id(1)));
+			assertFalse(log.isDeleted(id(1)));
+			assertEquals("Note 1", ((BaseObject) log.get(id(1))).getContent());
+			assertEquals("Note 1", ((BaseObject) parser.parse(before)).getContent());
+
+			log.append(note(1, "Note 1, edited"));
+		}
+		try (ActivityLog log = open(4096)) {
+			assertEquals(100, log.size());
+			assertInstanceOf(Tombstone.class, log.get(id(98)));
+			assertTrue(log.isDeleted(id(98)));
+			assertEquals("Note 1, edited", ((BaseObject) log.get(id(1))).getContent());
+			assertEquals("Note 99", ((BaseObject) log.get(id(99))).getContent());
+		}
+		for (Path segment : segmentFiles()) {
+			String content = new String(Files.readAllBytes(segment), "UTF-8");
+			assertFalse(content.contains("\"Note 2\""), segment.toString());
+		}
+	}
+
+	@Test
+	void growIndex() {
+		OffsetIndex index = new OffsetIndex(16);
+		for (long i = 1; i <= 10_000; i++) {
+			long key = i;
+			index.put(i * 0x9e3779b97f4a7c15L, i, location -> location == key);
+		}
+		assertEquals(10_000, index.size());
+		for (long i = 1; i <= 10_000; i++) {
+			long key = i;
+			assertEquals(i, index.get(i * 0x9e3779b97f4a7c15L, location -> location == key));
+		}
+		assertEquals(0, index.get(42, location -> true));
+	}
+
+	private ActivityLog open(int segmentSize) throws IOException {
+		return new ActivityLog(directory, parser, writer, segmentSize);
+	}
+
+	private List<Path> segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.sorted().collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Offset after the last record of a segment, found by walking the record headers.
+	 */
+	private static long endOfRecords(Path segment) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+		int offset = 8;
+		while (buffer.getInt(offset) != 0) {
+			offset += 11 + (buffer.getShort(offset + 9) & 0xffff) + buffer.getInt(offset);
+		}
+		return offset;
+	}
+
+	private static String id(int i) {
+		return "https://example.org/notes/" + i;
+	}
+
+	private static BaseObject note(int i, String content) {
+		BaseObject note = new BaseObject();
+		note.setType(ObjectType.Note);
+		note.setId(id(i));
+		note.setContent(content);
+		return note;
+	}
+
+	private static ActivityStreamsObject tombstone(int i) {
+		Tombstone tombstone = new Tombstone();
+		tombstone.setType(ObjectType.Tombstone);
+		tombstone.setId(id(i));
+		tombstone.setFormerType(ObjectType.Note);
+		return tombstone;
+	}
+
+	private static String bigContent(int length) {
+		StringBuilder content = new StringBuilder(length);
+		while (content.length() < length) {
+			content.append('x');
+		}
+		return content.toString();
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+}
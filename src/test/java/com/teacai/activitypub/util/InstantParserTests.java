@@ -0,0 +1,79 @@
+package com.teacai.activitypub.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InstantParserTests {
+
+	@Test
+	void parseLikeInstantParse() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10_000; i++) {
+			Instant expected = Instant.ofEpochSecond(random.nextInt(Integer.MAX_VALUE) * 4L - 4_000_000_000L,
+					random.nextBoolean() ? 0 : random.nextInt(1_000_000_000));
+			String text = expected.toString();
+			assertNotNull(InstantParser.parseFast(text), text);
+			assertEquals(expected, InstantParser.parse(text), text);
+		}
+	}
+
+	@Test
+	void parseCommonForms() {
+		assertEquals(Instant.parse("2023-06-01T12:00:00Z"), InstantParser.parse("2023-06-01T12:00:00Z"));
+		assertEquals(Instant.parse("2023-06-01T12:00:00.123Z"), InstantParser.parse("2023-06-01T12:00:00.123Z"));
+		assertEquals(Instant.parse("2023-06-01T12:00:00.123456Z"), InstantParser.parse("2023-06-01T12:00:00.123456Z"));
+		assertEquals(OffsetDateTime.parse("2023-06-01T12:00:00+02:00").toInstant(), InstantParser.parse("2023-06-01T12:00:00+02:00"));
+		assertEquals(OffsetDateTime.parse("2023-06-01T12:00:00-05:30").toInstant(), InstantParser.parse("2023-06-01T12:00:00-0530"));
+		assertEquals(Instant.parse("2024-02-29T23:59:59Z"), InstantParser.parse("2024-02-29T23:59:59Z"));
+	}
+
+	@Test
+	void parseLenientForms() {
+		Instant expected = Instant.parse("2023-06-01T12:00:00Z");
+
+		assertEquals(expected, InstantParser.parse("2023-06-01t12:00:00z"));
+		assertEquals(expected, InstantParser.parse("2023-06-01 12:00:00Z"));
+		assertEquals(expected, InstantParser.parse("2023-06-01T12:00:00"));
+		assertEquals(expected, InstantParser.parse("2023-06-01T12:00Z"));
+		assertEquals(expected, InstantParser.parse("2023-06-01 12:00:00 UTC"));
+		assertEquals(expected, InstantParser.parse("2023-06-01T14:00:00+02"));
+		assertEquals(Instant.parse("2023-06-01T12:00:00.123456789Z"), InstantParser.parse("2023-06-01T12:00:00.1234567891Z"));
+	}
+
+	@Test
+	void fallBackToJdk() {
+		assertNull(InstantParser.parseFast("+12023-06-01T12:00:00Z"));
+		assertEquals(Instant.parse("+12023-06-01T12:00:00Z"), InstantParser.parse("+12023-06-01T12:00:00Z"));
+	}
+
+	@Test
+	void rejectInvalid() {
+		assertThrows(DateTimeParseException.class, () -> InstantParser.parse("2023-02-29T12:00:00Z"));
+		assertThrows(DateTimeParseException.class, () -> InstantParser.parse("2023-06-01T12:00:00Zjunk"));
+		assertThrows(DateTimeParseException.class, () -> InstantParser.parse("yesterday"));
+	}
+
+	@Test
+	void tryParseWithoutThrowing() {
+		assertEquals(Instant.parse("2023-06-01T12:00:00Z"), InstantParser.tryParse("2023-06-01T12:00:00Z"));
+		assertEquals(Instant.parse("+12023-06-01T12:00:00Z"), InstantParser.tryParse("+12023-06-01T12:00:00Z"));
+		assertNull(InstantParser.tryParse("2023-02-29T12:00:00Z"));
+		assertNull(InstantParser.tryParse("yesterday"));
+	}
+
+	@Test
+	void parseCharacterRegion() {
+		char[] buffer = "\"2023-06-01T12:00:00Z\"".toCharArray();
+
+		assertEquals(Instant.parse("2023-06-01T12:00:00Z"), InstantParser.parse(buffer, 1, 20));
+	}
+}
@@ -0,0 +1,40 @@
+package com.teacai.activitypub.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StringCanonicalizerTests {
+
+	@Test
+	void canonicalizeStrings() {
+		StringCanonicalizer canonicalizer = new StringCanonicalizer(16);
+		String first = new String("https://example.org/sally");
+		String second = new String("https://example.org/sally");
+
+		assertSame(first, canonicalizer.canonicalize(first));
+		assertSame(first, canonicalizer.canonicalize(second));
+	}
+
+	@Test
+	void canonicalizeCharacters() {
+		StringCanonicalizer canonicalizer = new StringCanonicalizer(16);
+		char[] buffer = "xx\"https://example.org/sally\"xx".toCharArray();
+
+		String created = canonicalizer.canonicalize(buffer, 3, 25);
+		assertEquals("https://example.org/sally", created);
+		assertSame(created, canonicalizer.canonicalize(buffer, 3, 25));
+		assertSame(created, canonicalizer.canonicalize(new String("https://example.org/sally")));
+	}
+
+	@Test
+	void replaceOnCollision() {
+		StringCanonicalizer canonicalizer = new StringCanonicalizer(1);
+		String first = canonicalizer.canonicalize(new String("a"));
+		canonicalizer.canonicalize("b");
+
+		assertNotSame(first, canonicalizer.canonicalize(new String("a")));
+	}
+}